@@ -0,0 +1,88 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the accessors on one loaded configuration.  All the readers share
+ * the same YamlConfiguration, the subclasses set how many of them there are.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes"})
+public abstract class AccessorBenchmark {
+
+  public static final String TEST_SCREEN = "User Details";
+  public static final String TEST_ELEMENT_GROUP = "Discworld";
+  public static final String TEST_MESSAGE = "not_registered";
+  public static final String TEST_FORMATTED_MESSAGE = "not_found";
+
+  private YamlConfiguration configuration;
+
+  @Setup
+  public void setupConfiguration() throws IOException {
+    BenchmarkConfigurations.useTestConfiguration();
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.loadConfiguration();
+  }
+
+  @Benchmark
+  public String url_for() {
+    return configuration.url_for(TEST_SCREEN);
+  }
+
+  @Benchmark
+  public List element_group() {
+    return configuration.element_group(TEST_ELEMENT_GROUP);
+  }
+
+  @Benchmark
+  public List element_ids_for() {
+    return configuration.element_ids_for(TEST_ELEMENT_GROUP);
+  }
+
+  @Benchmark
+  public String absolute_url_for() {
+    return configuration.absolute_url_for(TEST_SCREEN);
+  }
+
+  @Benchmark
+  public ScreenRecord screen_record() {
+    return configuration.screen_record(TEST_SCREEN);
+  }
+
+  @Benchmark
+  public String message() {
+    return configuration.message(TEST_MESSAGE);
+  }
+
+  @Benchmark
+  public String message_formatted() {
+    return configuration.message(TEST_FORMATTED_MESSAGE, "Rincewind", 3);
+  }
+
+  @Benchmark
+  public String browser() {
+    return configuration.browser();
+  }
+}
@@ -0,0 +1,61 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Configuration shared by the benchmarks.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class BenchmarkConfigurations {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private BenchmarkConfigurations() {
+  }
+
+  /**
+   * Point YamlConfiguration at the test configuration files
+   */
+  static void useTestConfiguration() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+  }
+
+  /**
+   * @return a configuration file shaped like the test one with the given number
+   *         of screens, each with its own elements and a message
+   */
+  static byte[] syntheticYaml(int screens) {
+    StringBuilder yaml = new StringBuilder();
+    yaml.append("webpage_client:\n  base_url: localhost:8700\n  selenium:\n    browser: firefox\n\n");
+    yaml.append("screens:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Screen ").append(screen).append(":\n");
+      yaml.append("    url: /screen/").append(screen).append('\n');
+      yaml.append("    title: Screen ").append(screen).append('\n');
+      yaml.append("    check_for_ids:\n");
+      yaml.append("      - header-").append(screen).append('\n');
+      yaml.append("      - input-").append(screen).append('\n');
+      yaml.append("    get_here_by: GET\n");
+    }
+    yaml.append("\nelement_ids:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Header ").append(screen).append(": header-").append(screen).append('\n');
+      yaml.append("  Input ").append(screen).append(": input-").append(screen).append('\n');
+    }
+    yaml.append("\nelement_groups:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Group ").append(screen).append(":\n");
+      yaml.append("    - Header ").append(screen).append('\n');
+      yaml.append("    - Input ").append(screen).append('\n');
+    }
+    yaml.append("\nmessages:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  message_").append(screen).append(": 'Message for screen ").append(screen).append("'\n");
+    }
+    return yaml.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,97 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long loadConfiguration() takes for the test configuration.
+ *
+ * Cold gives every call its own empty cache so the files are found, read, parsed
+ * and frozen each time.  Warm shares a cache that already holds the snapshot, which
+ * is what every YamlConfiguration after the first one in a test run sees.  Disk 
+ * cached is cold but with the parsed files already in a ConfigurationDiskCache, 
+ * which is what a forked test JVM after the first one sees.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes"})
+public class ConfigurationLoadBenchmark {
+
+  private YamlConfigurationCache warmCache;
+
+  private Path diskCacheDirectory;
+
+  @Setup
+  public void setupConfiguration() throws IOException {
+    BenchmarkConfigurations.useTestConfiguration();
+    warmCache = new YamlConfigurationCache();
+    newConfiguration(warmCache).loadConfiguration();
+    diskCacheDirectory = Files.createTempDirectory("yaml-disk-cache");
+    diskCachedConfiguration().loadConfiguration();
+  }
+
+  @TearDown
+  public void deleteDiskCache() throws IOException {
+    try (Stream<Path> entries = Files.list(diskCacheDirectory)) {
+      for (Path entry : (Iterable<Path>)entries::iterator) {
+        Files.delete(entry);
+      }
+    }
+    Files.delete(diskCacheDirectory);
+  }
+
+  @Benchmark
+  public Map load_configuration_cold() throws IOException {
+    return newConfiguration(new YamlConfigurationCache()).loadConfiguration();
+  }
+
+  @Benchmark
+  public Map load_configuration_warm() throws IOException {
+    return newConfiguration(warmCache).loadConfiguration();
+  }
+
+  @Benchmark
+  public Map load_configuration_disk_cached() throws IOException {
+    return diskCachedConfiguration().loadConfiguration();
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration(YamlConfigurationCache cache) {
+    YamlConfiguration configuration = new YamlConfiguration();
+    configuration.setCache(cache);
+    return configuration;
+  }
+
+  private YamlConfiguration diskCachedConfiguration() {
+    YamlConfiguration configuration = newConfiguration(new YamlConfigurationCache());
+    configuration.setDiskCacheDirectory(diskCacheDirectory);
+    return configuration;
+  }
+}
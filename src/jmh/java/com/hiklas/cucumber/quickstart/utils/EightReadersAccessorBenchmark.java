@@ -0,0 +1,13 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Accessor throughput with eight readers on the same configuration.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@Threads(8)
+public class EightReadersAccessorBenchmark extends AccessorBenchmark {
+}
@@ -0,0 +1,52 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How parsing with loadYaml() scales with the size of the file, using generated
+ * files with the given number of screens.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({"rawtypes"})
+public class LoadYamlBenchmark {
+
+  @Param({"10", "100", "1000", "10000"})
+  public int screens;
+
+  private byte[] yaml;
+  private YamlConfiguration configuration;
+
+  @Setup
+  public void setupYaml() {
+    yaml = BenchmarkConfigurations.syntheticYaml(screens);
+    configuration = new YamlConfiguration();
+  }
+
+  @Benchmark
+  public Map load_yaml() throws IOException {
+    return configuration.loadYaml(new ByteArrayInputStream(yaml));
+  }
+}
@@ -0,0 +1,54 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the same generated files with each YamlParserBackend.  Run with -prof gc
+ * to compare how much each one allocates as well as how long it takes.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBackendBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int screens;
+
+  @Param({SnakeYamlParserBackend.NAME, YamlBeansParserBackend.NAME})
+  public String backend;
+
+  private String yaml;
+  private YamlParserBackend parser;
+
+  @Setup
+  public void setupYaml() {
+    yaml = new String(BenchmarkConfigurations.syntheticYaml(screens), StandardCharsets.UTF_8);
+    parser = YamlParserBackends.named(backend);
+  }
+
+  @Benchmark
+  public Object parse() throws IOException {
+    return parser.parse(new StringReader(yaml));
+  }
+}
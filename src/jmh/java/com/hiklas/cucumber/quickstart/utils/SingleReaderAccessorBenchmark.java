@@ -0,0 +1,13 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Accessor throughput with one reader on the same configuration.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@Threads(1)
+public class SingleReaderAccessorBenchmark extends AccessorBenchmark {
+}
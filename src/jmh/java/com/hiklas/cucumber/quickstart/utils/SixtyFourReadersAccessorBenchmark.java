@@ -0,0 +1,13 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Accessor throughput with sixty four readers on the same configuration.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@Threads(64)
+public class SixtyFourReadersAccessorBenchmark extends AccessorBenchmark {
+}
@@ -0,0 +1,35 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list backed by an exactly sized array.  Any attempt to modify the
+ * list throws UnsupportedOperationException.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class CompactList extends AbstractList<Object> implements RandomAccess {
+
+  static final CompactList EMPTY = new CompactList(new Object[0]);
+
+  private final Object[] items;
+
+  /**
+   * The array is used as it is, the caller mustn't change it afterwards
+   */
+  CompactList(Object[] items) {
+    this.items = items;
+  }
+
+  @Override
+  public Object get(int index) {
+    return items[index];
+  }
+
+  @Override
+  public int size() {
+    return items.length;
+  }
+}
@@ -0,0 +1,177 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map backed by two exactly sized arrays, one of keys and one of values.
+ *
+ * Most maps in a configuration file only have a handful of entries so they are
+ * searched with a linear scan, which for interned keys is usually just an identity
+ * check.  Bigger maps, e.g. a screens section with hundreds of screens, also get an
+ * open addressing table of indexes so lookups stay constant time.
+ *
+ * Iteration order is the order the entries were passed in.  Any attempt to modify
+ * the map throws UnsupportedOperationException.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class CompactMap extends AbstractMap<Object, Object> {
+
+  static final CompactMap EMPTY = new CompactMap(new Object[0], new Object[0]);
+
+  /**
+   * Maps with this many entries or fewer don't get a hash table
+   */
+  static final int LINEAR_SCAN_LIMIT = 8;
+
+  private final Object[] keys;
+  private final Object[] values;
+
+  /**
+   * Open addressing table holding index + 1 into keys, 0 means an empty slot.
+   * Null for small maps.
+   */
+  private final int[] slots;
+
+  private Set<Map.Entry<Object, Object>> entrySet;
+
+
+  /**
+   * The arrays are used as they are, the caller mustn't change them afterwards
+   * and the keys must be unique.
+   */
+  CompactMap(Object[] keys, Object[] values) {
+    this.keys = keys;
+    this.values = values;
+    this.slots = keys.length > LINEAR_SCAN_LIMIT ? buildSlots(keys) : null;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : values[index];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Set<Map.Entry<Object, Object>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  Object keyAt(int index) {
+    return keys[index];
+  }
+
+  Object valueAt(int index) {
+    return values[index];
+  }
+
+  /**
+   * @return the number of array slots used by this map, for footprint estimates
+   */
+  int slotCount() {
+    return slots == null ? 0 : slots.length;
+  }
+
+  private int indexOf(Object key) {
+    if (slots == null) {
+      return linearIndexOf(key);
+    }
+    int mask = slots.length - 1;
+    int slot = spread(key) & mask;
+    while (slots[slot] != 0) {
+      int index = slots[slot] - 1;
+      if (sameKey(keys[index], key)) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int linearIndexOf(Object key) {
+    for (int index = 0; index < keys.length; index++) {
+      if (keys[index] == key) {
+        return index;
+      }
+    }
+    for (int index = 0; index < keys.length; index++) {
+      if (sameKey(keys[index], key)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean sameKey(Object storedKey, Object key) {
+    return storedKey == key || (storedKey != null && storedKey.equals(key));
+  }
+
+  private static int[] buildSlots(Object[] keys) {
+    int capacity = Integer.highestOneBit(keys.length * 2 - 1) << 1;
+    int[] slots = new int[capacity];
+    int mask = capacity - 1;
+    for (int index = 0; index < keys.length; index++) {
+      int slot = spread(keys[index]) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = index + 1;
+    }
+    return slots;
+  }
+
+  private static int spread(Object key) {
+    int hash = key == null ? 0 : key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+
+  private final class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Object, Object>> iterator() {
+      return new Iterator<Map.Entry<Object, Object>>() {
+
+        private int nextIndex = 0;
+
+        @Override
+        public boolean hasNext() {
+          return nextIndex < keys.length;
+        }
+
+        @Override
+        public Map.Entry<Object, Object> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int index = nextIndex++;
+          return new AbstractMap.SimpleImmutableEntry<Object, Object>(keys[index], values[index]);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Base class for configuration compiled into Java at build time by the
+ * YamlConfigurationCompiler.
+ *
+ * A generated subclass holds the common and environment trees, and the merged tree
+ * with its references already resolved, as constants built from CompactMap and
+ * CompactList.  Nothing is parsed, frozen or interpolated when it's used, the
+ * snapshot just wraps the trees.  The trees are only built the first time the
+ * snapshot is asked for, not when the class is found.
+ *
+ * Generated classes are listed in META-INF/services and when YamlConfiguration is
+ * asked to load a pair of files from the classpath that has been compiled it uses
+ * the compiled trees instead of parsing the files.  If there's no compiled class for
+ * the files, or they're read from a directory, they're parsed as usual.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+public abstract class CompiledConfiguration {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompiledConfiguration.class);
+
+  private static volatile List<CompiledConfiguration> compiledConfigurations;
+
+  private volatile ConfigurationSnapshot snapshot;
+
+  private volatile YamlConfiguration configuration;
+
+
+  /**
+   * @return the common filename this was compiled from, as returned by getCommonYamlFilename()
+   */
+  public abstract String commonYamlFilename();
+
+  /**
+   * @return the environment filename this was compiled from, as returned by
+   *         getEnvironmentYamlFilename()
+   */
+  public abstract String environmentYamlFilename();
+
+  protected abstract Map commonLayer();
+
+  protected abstract Map environmentLayer();
+
+  /**
+   * @return the two layers merged with every reference resolved, sharing the
+   *         sections that didn't change with the layers
+   */
+  protected abstract Map tree();
+
+  /**
+   * @return a YamlConfiguration holding this compiled configuration, all the usual
+   *         accessors can be used on it
+   */
+  public YamlConfiguration toYamlConfiguration() {
+    YamlConfiguration loaded = configuration;
+    if (loaded == null) {
+      loaded = YamlConfiguration.fromSnapshot(toSnapshot());
+      configuration = loaded;
+    }
+    return loaded;
+  }
+
+  ConfigurationSnapshot toSnapshot() {
+    ConfigurationSnapshot compiled = snapshot;
+    if (compiled == null) {
+      compiled = ConfigurationSnapshot.ofCompiled(commonLayer(), environmentLayer(), tree());
+      snapshot = compiled;
+    }
+    return compiled;
+  }
+
+  /**
+   * @return the compiled configuration for the given files or null if they haven't
+   *         been compiled
+   */
+  static CompiledConfiguration find(String commonFilename, String environmentFilename) {
+    for (CompiledConfiguration compiled : compiledConfigurations()) {
+      if (compiled.commonYamlFilename().equals(commonFilename)
+          && compiled.environmentYamlFilename().equals(environmentFilename)) {
+        return compiled;
+      }
+    }
+    return null;
+  }
+
+  private static List<CompiledConfiguration> compiledConfigurations() {
+    List<CompiledConfiguration> found = compiledConfigurations;
+    if (found == null) {
+      found = new ArrayList<CompiledConfiguration>();
+      for (CompiledConfiguration compiled : ServiceLoader.load(CompiledConfiguration.class)) {
+        LOGGER.debug("Found compiled configuration for '{}' and '{}'",
+            compiled.commonYamlFilename(), compiled.environmentYamlFilename());
+        found.add(compiled);
+      }
+      compiledConfigurations = found;
+    }
+    return found;
+  }
+
+
+  //
+  // Used by the generated code to build the trees
+  //
+
+  protected static Map map(Object... keysAndValues) {
+    if (keysAndValues.length == 0) {
+      return CompactMap.EMPTY;
+    }
+    Object[] keys = new Object[keysAndValues.length / 2];
+    Object[] values = new Object[keys.length];
+    for (int index = 0; index < keys.length; index++) {
+      keys[index] = keysAndValues[index * 2];
+      values[index] = keysAndValues[index * 2 + 1];
+    }
+    return new CompactMap(keys, values);
+  }
+
+  protected static List list(Object... items) {
+    return items.length == 0 ? CompactList.EMPTY : new CompactList(items);
+  }
+}
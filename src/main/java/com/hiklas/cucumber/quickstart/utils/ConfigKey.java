@@ -0,0 +1,21 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The key a method in a ConfigView reads, when it isn't the method name in snake_case
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConfigKey {
+  
+  String value();
+}
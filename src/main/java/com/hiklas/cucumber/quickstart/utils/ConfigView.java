@@ -0,0 +1,35 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface as a typed view of part of the configuration, e.g.
+ * 
+ *   &#64;ConfigView
+ *   public interface ScreenInfo {
+ *     String url();
+ *     String title();
+ *     List&lt;String&gt; checkForIds();
+ *   }
+ * 
+ * The ConfigViewProcessor generates an implementation, ScreenInfoConfigView, that 
+ * copies each value into a final field when it's bound.  Get one with 
+ * 
+ *   configuration.view(ScreenInfo.class, "screens", "User Details")
+ * 
+ * Each method reads the key with the same name in snake_case, checkForIds() reads 
+ * check_for_ids, use ConfigKey to read a different key.  Methods can return String, 
+ * int, long, double, boolean, List, Map, another ConfigView or a List or Map of them.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ConfigView {
+}
@@ -0,0 +1,213 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the implementation of each interface annotated with ConfigView.
+ * 
+ * The implementation has a final field for each method and a constructor taking 
+ * the Map to read from, which fills in every field there and then.  After that the 
+ * methods just return their field, there are no lookups or casts left to do.
+ * 
+ * The processor is registered in META-INF/services so javac runs it for anything 
+ * compiled with this jar on the classpath.  It doesn't run when this project's own 
+ * main classes are compiled, see the compiler configuration in the pom.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+public class ConfigViewProcessor extends AbstractProcessor {
+
+  private static final String CONFIG_VIEWS = ConfigViews.class.getName();
+  
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ConfigView.class.getName());
+  }
+  
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+  
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+    for (Element element : roundEnvironment.getElementsAnnotatedWith(ConfigView.class)) {
+      if (element.getKind() != ElementKind.INTERFACE) {
+        error(element, "@ConfigView can only be used on an interface");
+      } else {
+        generate((TypeElement)element);
+      }
+    }
+    return true;
+  }
+  
+  
+  /**
+   * Write the implementation of one view, nothing is written if any of its methods 
+   * can't be generated
+   */
+  private void generate(TypeElement view) {
+    String packageName = processingEnv.getElementUtils().getPackageOf(view).getQualifiedName().toString();
+    String implementationName = ConfigViews.implementationName(packageName, view.getQualifiedName().toString());
+    String className = implementationName.substring(implementationName.lastIndexOf('.') + 1);
+    
+    StringBuilder fields = new StringBuilder();
+    StringBuilder bindings = new StringBuilder();
+    StringBuilder methods = new StringBuilder();
+    StringBuilder toString = new StringBuilder();
+    boolean valid = true;
+    for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(view))) {
+      if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+        continue;
+      }
+      String name = method.getSimpleName().toString();
+      TypeMirror type = method.getReturnType();
+      String binding = binding(type, key(method));
+      if (!method.getParameters().isEmpty() || binding == null) {
+        error(method, "@ConfigView methods need no parameters and must return String, int, long, double, " 
+            + "boolean, List, Map, another @ConfigView or a List or Map of them");
+        valid = false;
+        continue;
+      }
+      fields.append("  private final ").append(type).append(' ').append(name).append(";\n");
+      bindings.append("    this.").append(name).append(" = ").append(binding).append(";\n");
+      methods.append("\n  @Override\n  public ").append(type).append(' ').append(name).append("() {\n")
+          .append("    return ").append(name).append(";\n  }\n");
+      toString.append(toString.length() == 0 ? "\"" : " + \", ").append(name).append("=\" + ").append(name);
+    }
+    if (!valid) {
+      return;
+    }
+    
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("/**\n")
+        .append(" * Generated by ConfigViewProcessor from ").append(view.getQualifiedName()).append(".\n")
+        .append(" * Don't edit, change the interface and rebuild.\n")
+        .append(" */\n")
+        .append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+        .append("public final class ").append(className).append(" implements ")
+        .append(view.getQualifiedName()).append(" {\n\n")
+        .append(fields)
+        .append("\n  public ").append(className).append("(java.util.Map source) {\n")
+        .append(bindings)
+        .append("  }\n")
+        .append(methods)
+        .append("\n  @Override\n  public String toString() {\n")
+        .append("    return \"").append(view.getSimpleName()).append("{\" + ")
+        .append(toString.length() == 0 ? "\"" : toString + " + \"").append("}\";\n  }\n")
+        .append("}\n");
+    
+    try (Writer writer = processingEnv.getFiler().createSourceFile(implementationName, view).openWriter()) {
+      writer.write(source.toString());
+    } catch (IOException ie) {
+      error(view, "Couldn't write " + implementationName + ": " + ie.getMessage());
+    }
+  }
+  
+  /**
+   * @return the expression reading the key into a field of the given type, or null 
+   *         if the type isn't supported
+   */
+  private String binding(TypeMirror type, String key) {
+    String keyLiteral = processingEnv.getElementUtils().getConstantExpression(key);
+    switch (type.getKind()) {
+      case INT:
+        return CONFIG_VIEWS + ".intValue(source, " + keyLiteral + ")";
+      case LONG:
+        return CONFIG_VIEWS + ".longValue(source, " + keyLiteral + ")";
+      case DOUBLE:
+        return CONFIG_VIEWS + ".doubleValue(source, " + keyLiteral + ")";
+      case BOOLEAN:
+        return CONFIG_VIEWS + ".booleanValue(source, " + keyLiteral + ")";
+      case DECLARED:
+        return declaredBinding((DeclaredType)type, keyLiteral);
+      default:
+        return null;
+    }
+  }
+  
+  private String declaredBinding(DeclaredType type, String keyLiteral) {
+    TypeElement element = (TypeElement)type.asElement();
+    String name = element.getQualifiedName().toString();
+    List<? extends TypeMirror> typeArguments = type.getTypeArguments();
+    if (name.equals(String.class.getName())) {
+      return CONFIG_VIEWS + ".string(source, " + keyLiteral + ")";
+    } else if (name.equals(List.class.getName())) {
+      String viewImplementation = typeArguments.size() == 1 ? viewImplementation(typeArguments.get(0)) : null;
+      return viewImplementation == null ? CONFIG_VIEWS + ".list(source, " + keyLiteral + ")"
+          : CONFIG_VIEWS + ".viewList(source, " + keyLiteral + ", " + viewImplementation + "::new)";
+    } else if (name.equals(Map.class.getName())) {
+      String viewImplementation = typeArguments.size() == 2 ? viewImplementation(typeArguments.get(1)) : null;
+      return viewImplementation == null ? CONFIG_VIEWS + ".map(source, " + keyLiteral + ")"
+          : CONFIG_VIEWS + ".viewMap(source, " + keyLiteral + ", " + viewImplementation + "::new)";
+    }
+    String viewImplementation = viewImplementation(type);
+    return viewImplementation == null ? null 
+        : "new " + viewImplementation + "(" + CONFIG_VIEWS + ".map(source, " + keyLiteral + "))";
+  }
+  
+  /**
+   * @return the name of the generated implementation if the type is a view, otherwise null
+   */
+  private String viewImplementation(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+    if (element.getKind() != ElementKind.INTERFACE || element.getAnnotation(ConfigView.class) == null) {
+      return null;
+    }
+    String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    return ConfigViews.implementationName(packageName, element.getQualifiedName().toString());
+  }
+  
+  /**
+   * @return the key given by ConfigKey, otherwise the method name in snake_case
+   */
+  private static String key(ExecutableElement method) {
+    ConfigKey configKey = method.getAnnotation(ConfigKey.class);
+    if (configKey != null) {
+      return configKey.value();
+    }
+    String name = method.getSimpleName().toString();
+    StringBuilder key = new StringBuilder();
+    for (int index = 0; index < name.length(); index++) {
+      char character = name.charAt(index);
+      if (Character.isUpperCase(character)) {
+        if (index > 0) {
+          key.append('_');
+        }
+        key.append(Character.toLowerCase(character));
+      } else {
+        key.append(character);
+      }
+    }
+    return key.toString();
+  }
+  
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
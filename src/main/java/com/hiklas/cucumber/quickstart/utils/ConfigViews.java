@@ -0,0 +1,165 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binds ConfigView interfaces to their generated implementations.
+ * 
+ * The public static methods are what the generated constructors call to read each 
+ * value, they aren't really meant for anything else.  Missing values come back empty, 
+ * as they do from YamlConfiguration, numbers that can't be parsed fail the bind so 
+ * it's found when the view is created rather than when it's used.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class ConfigViews {
+
+  public static final String IMPLEMENTATION_SUFFIX = "ConfigView";
+  
+  private static final ClassValue<Constructor> IMPLEMENTATIONS = new ClassValue<Constructor>() {
+    @Override
+    protected Constructor computeValue(Class<?> viewType) {
+      return findImplementation(viewType);
+    }
+  };
+  
+  private ConfigViews() {
+  }
+  
+  /**
+   * @return the generated implementation of the view holding the values in the map
+   */
+  public static <T> T bind(Class<T> viewType, Map source) {
+    try {
+      return (T)IMPLEMENTATIONS.get(viewType).newInstance(source);
+    } catch (InvocationTargetException ite) {
+      Throwable cause = ite.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      throw new IllegalStateException("Couldn't bind " + viewType.getName(), cause);
+    } catch (InstantiationException | IllegalAccessException e) {
+      throw new IllegalStateException("Couldn't bind " + viewType.getName(), e);
+    }
+  }
+  
+  /**
+   * @return the name of the class generated for the view, in the same package and 
+   *         with the names of any enclosing classes joined by _, e.g. Outer_InnerConfigView
+   */
+  public static String implementationName(String packageName, String viewName) {
+    String relativeName = packageName.isEmpty() ? viewName : viewName.substring(packageName.length() + 1);
+    String implementationName = relativeName.replace('.', '_').replace('$', '_') + IMPLEMENTATION_SUFFIX;
+    return packageName.isEmpty() ? implementationName : packageName + "." + implementationName;
+  }
+  
+  
+  public static String string(Map source, String key) {
+    Object value = source.get(key);
+    return value instanceof String ? (String)value : "";
+  }
+  
+  public static List list(Map source, String key) {
+    Object value = source.get(key);
+    return value instanceof List ? (List)value : Collections.emptyList();
+  }
+  
+  public static Map map(Map source, String key) {
+    Object value = source.get(key);
+    return value instanceof Map ? (Map)value : Collections.emptyMap();
+  }
+  
+  public static int intValue(Map source, String key) {
+    String value = string(source, key);
+    try {
+      return value.isEmpty() ? 0 : Integer.parseInt(value.trim());
+    } catch (NumberFormatException nfe) {
+      throw notA("an int", key, value);
+    }
+  }
+  
+  public static long longValue(Map source, String key) {
+    String value = string(source, key);
+    try {
+      return value.isEmpty() ? 0 : Long.parseLong(value.trim());
+    } catch (NumberFormatException nfe) {
+      throw notA("a long", key, value);
+    }
+  }
+  
+  public static double doubleValue(Map source, String key) {
+    String value = string(source, key);
+    try {
+      return value.isEmpty() ? 0 : Double.parseDouble(value.trim());
+    } catch (NumberFormatException nfe) {
+      throw notA("a double", key, value);
+    }
+  }
+  
+  public static boolean booleanValue(Map source, String key) {
+    String value = string(source, key).trim();
+    if (value.isEmpty() || value.equalsIgnoreCase("false")) {
+      return false;
+    } else if (value.equalsIgnoreCase("true")) {
+      return true;
+    }
+    throw notA("a boolean", key, value);
+  }
+  
+  /**
+   * @return each entry of the map at the key bound to a view, in the same order
+   */
+  public static <T> Map<String, T> viewMap(Map source, String key, Function<Map, T> binder) {
+    Map<String, T> views = new LinkedHashMap<String, T>();
+    for (Object entryObject : map(source, key).entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      Object value = entry.getValue();
+      views.put(String.valueOf(entry.getKey()), binder.apply(value instanceof Map ? (Map)value : Collections.emptyMap()));
+    }
+    return Collections.unmodifiableMap(views);
+  }
+  
+  /**
+   * @return each item of the list at the key bound to a view
+   */
+  public static <T> List<T> viewList(Map source, String key, Function<Map, T> binder) {
+    List items = list(source, key);
+    List<T> views = new ArrayList<T>(items.size());
+    for (Object item : items) {
+      views.add(binder.apply(item instanceof Map ? (Map)item : Collections.emptyMap()));
+    }
+    return Collections.unmodifiableList(views);
+  }
+  
+  
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+  
+  private static IllegalArgumentException notA(String type, String key, String value) {
+    return new IllegalArgumentException("Configuration key '" + key + "' is '" + value + "' which isn't " + type);
+  }
+  
+  private static Constructor findImplementation(Class<?> viewType) {
+    if (!viewType.isInterface() || !viewType.isAnnotationPresent(ConfigView.class)) {
+      throw new IllegalArgumentException(viewType.getName() + " isn't an interface annotated with @ConfigView");
+    }
+    Package viewPackage = viewType.getPackage();
+    String name = implementationName(viewPackage == null ? "" : viewPackage.getName(), viewType.getName());
+    try {
+      return Class.forName(name, true, viewType.getClassLoader()).getConstructor(Map.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      throw new IllegalStateException("No generated view " + name 
+          + ", is the ConfigViewProcessor running when " + viewType.getName() + " is compiled?", e);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed configuration files kept on disk, so a new JVM, e.g. each Surefire fork,
+ * doesn't have to parse files an earlier one has already parsed.
+ *
+ * Each parsed file is written to the cache directory named after the SHA-256 hash
+ * of the file's contents.  Any change to a file gives it a different name, so stale
+ * entries are never read, they're just left behind until the directory is cleaned.
+ *
+ * Entries are in a simple tagged binary format, a header then the tree written depth
+ * first.  Each distinct string is written once, later uses refer back to it by
+ * number, which makes entries small and means decoding gives back the same shared
+ * strings the ConfigurationFreezer would.  Trees are decoded straight into CompactMap
+ * and CompactList.  Entries are read into an array rather than memory mapped, as a
+ * mapping would stop the entry being replaced on Windows until it was collected.
+ *
+ * Entries are written to a temporary file and then moved into place, so another JVM
+ * never sees half an entry.  Anything that goes wrong reading or writing the cache is
+ * logged and the file is parsed as usual instead.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class ConfigurationDiskCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationDiskCache.class);
+
+  static final String FILE_EXTENSION = ".ycfg";
+
+  private static final int MAGIC = 0x59434647;
+  private static final int FORMAT_VERSION = 1;
+
+  private static final byte TAG_NULL = 0;
+  private static final byte TAG_STRING = 1;
+  private static final byte TAG_STRING_REFERENCE = 2;
+  private static final byte TAG_MAP = 3;
+  private static final byte TAG_LIST = 4;
+
+  private final Path directory;
+
+  ConfigurationDiskCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return what the parsed contents of the file are cached under
+   */
+  static String key(byte[] yaml) {
+    return ConfigurationResources.sha256(yaml);
+  }
+
+  /**
+   * @return the cached tree, or null if there isn't one or it couldn't be read
+   */
+  Map read(String key) {
+    Path entry = entryFile(key);
+    try {
+      Map tree = decode(ByteBuffer.wrap(Files.readAllBytes(entry)));
+      LOGGER.debug("Read parsed configuration from '{}'", entry);
+      return tree;
+    } catch (NoSuchFileException nsfe) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Ignoring unreadable configuration cache entry '{}': {}", entry, e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Cache the tree parsed from the file with the given key, trees holding anything
+   * other than maps, lists and strings aren't cached
+   */
+  void write(String key, Map tree) {
+    Path entry = entryFile(key);
+    try {
+      byte[] encoded = encode(tree);
+      if (encoded == null) {
+        LOGGER.debug("Not caching '{}', it holds values that can't be cached", entry);
+        return;
+      }
+      Files.createDirectories(directory);
+      Path temporary = Files.createTempFile(directory, key, ".tmp");
+      try {
+        Files.write(temporary, encoded);
+        moveIntoPlace(temporary, entry);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+      LOGGER.debug("Wrote parsed configuration to '{}'", entry);
+    } catch (IOException ie) {
+      LOGGER.warn("Couldn't write configuration cache entry '{}': {}", entry, ie.toString());
+    }
+  }
+
+  Path entryFile(String key) {
+    return directory.resolve(key + FILE_EXTENSION);
+  }
+
+  /**
+   * @return the encoded tree, or null if it can't be encoded
+   */
+  static byte[] encode(Map tree) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(MAGIC);
+    output.writeInt(FORMAT_VERSION);
+    if (!encodeValue(output, tree, new HashMap<String, Integer>())) {
+      return null;
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IOException if the bytes aren't a cached tree, including when a length 
+   *         is more than the rest of the entry could hold
+   */
+  static Map decode(ByteBuffer buffer) throws IOException {
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new IOException("Not a configuration cache entry, or from a different version");
+      }
+      Object tree = decodeValue(buffer, new ArrayList<String>());
+      if (!(tree instanceof Map) || buffer.hasRemaining()) {
+        throw new IOException("Configuration cache entry is corrupt");
+      }
+      return (Map)tree;
+    } catch (BufferUnderflowException bue) {
+      throw new IOException("Configuration cache entry is truncated", bue);
+    }
+  }
+
+  private static boolean encodeValue(DataOutputStream output, Object value, Map<String, Integer> strings)
+      throws IOException {
+    if (value == null) {
+      output.writeByte(TAG_NULL);
+    } else if (value instanceof String) {
+      Integer reference = strings.get(value);
+      if (reference != null) {
+        output.writeByte(TAG_STRING_REFERENCE);
+        output.writeInt(reference);
+      } else {
+        byte[] utf8 = ((String)value).getBytes(StandardCharsets.UTF_8);
+        output.writeByte(TAG_STRING);
+        output.writeInt(utf8.length);
+        output.write(utf8);
+        strings.put((String)value, strings.size());
+      }
+    } else if (value instanceof Map) {
+      Map map = (Map)value;
+      output.writeByte(TAG_MAP);
+      output.writeInt(map.size());
+      for (Object entryObject : map.entrySet()) {
+        Map.Entry entry = (Map.Entry)entryObject;
+        if (!(entry.getKey() instanceof String)
+            || !encodeValue(output, entry.getKey(), strings) || !encodeValue(output, entry.getValue(), strings)) {
+          return false;
+        }
+      }
+    } else if (value instanceof List) {
+      List list = (List)value;
+      output.writeByte(TAG_LIST);
+      output.writeInt(list.size());
+      for (Object item : list) {
+        if (!encodeValue(output, item, strings)) {
+          return false;
+        }
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static Object decodeValue(ByteBuffer buffer, List<String> strings) throws IOException {
+    byte tag = buffer.get();
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_STRING:
+        byte[] utf8 = new byte[readLength(buffer, 1)];
+        buffer.get(utf8);
+        String string = new String(utf8, StandardCharsets.UTF_8);
+        strings.add(string);
+        return string;
+      case TAG_STRING_REFERENCE:
+        int reference = buffer.getInt();
+        if (reference < 0 || reference >= strings.size()) {
+          throw new IOException("Configuration cache entry refers to string " + reference + " of " + strings.size());
+        }
+        return strings.get(reference);
+      case TAG_MAP:
+        int size = readLength(buffer, 2);
+        if (size == 0) {
+          return CompactMap.EMPTY;
+        }
+        Object[] keys = new Object[size];
+        Object[] values = new Object[size];
+        for (int index = 0; index < size; index++) {
+          keys[index] = ((String)decodeValue(buffer, strings)).intern();
+          values[index] = decodeValue(buffer, strings);
+        }
+        return new CompactMap(keys, values);
+      case TAG_LIST:
+        int length = readLength(buffer, 1);
+        if (length == 0) {
+          return CompactList.EMPTY;
+        }
+        Object[] items = new Object[length];
+        for (int index = 0; index < length; index++) {
+          items[index] = decodeValue(buffer, strings);
+        }
+        return new CompactList(items);
+      default:
+        throw new IOException("Unknown tag " + tag + " in configuration cache entry");
+    }
+  }
+
+  /**
+   * Check a length before anything is allocated for it, so a corrupt one can't ask 
+   * for more than the entry could possibly hold
+   * 
+   * @param minimumBytesEach the fewest bytes each element can be encoded in
+   */
+  private static int readLength(ByteBuffer buffer, int minimumBytesEach) throws IOException {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining() / minimumBytesEach) {
+      throw new IOException("Configuration cache entry has a length of " + length + " with only " 
+          + buffer.remaining() + " bytes left");
+    }
+    return length;
+  }
+
+  private static void moveIntoPlace(Path temporary, Path entry) throws IOException {
+    try {
+      Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException amnse) {
+      Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs configuration file I/O and parsing in the background.
+ *
+ * The cost of loading is mostly waiting on the files, often on slow network
+ * mounted workspaces, so every file is given its own task.  On a JVM with virtual
+ * threads each task gets one, otherwise a cached pool of daemon threads is used.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class ConfigurationExecutors {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationExecutors.class);
+
+  private static final ExecutorService LOADER_EXECUTOR = createLoaderExecutor();
+
+  private ConfigurationExecutors() {
+  }
+
+  static ExecutorService loaderExecutor() {
+    return LOADER_EXECUTOR;
+  }
+
+  /**
+   * Run all the tasks at the same time and wait for them all to finish.
+   *
+   * @return the results in the same order as the tasks
+   * @throws IOException the first failure, in task order, if any task failed
+   */
+  static <T> List<T> invokeAll(List<? extends IoTask<T>> tasks) throws IOException {
+    List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+    for (final IoTask<T> task : tasks) {
+      futures.add(LOADER_EXECUTOR.submit(task::call));
+    }
+    List<T> results = new ArrayList<T>(tasks.size());
+    for (Future<T> future : futures) {
+      results.add(await(future));
+    }
+    return results;
+  }
+
+  /**
+   * Run the task in the background, the future completes with whatever it returns 
+   * or threw
+   */
+  static <T> CompletableFuture<T> supplyAsync(IoTask<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<T>();
+    LOADER_EXECUTOR.execute(() -> {
+      try {
+        future.complete(task.call());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Wait for the result of a task submitted to the loader executor, unwrapping
+   * any IOException it threw
+   */
+  static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for configuration to load");
+    } catch (ExecutionException ee) {
+      throw rethrow(ee.getCause());
+    }
+  }
+
+  /**
+   * Throw unchecked exceptions and errors as they are, return IOExceptions so the
+   * caller can throw them and wrap anything else in one
+   */
+  static IOException rethrow(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException)cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException)cause;
+    } else if (cause instanceof Error) {
+      throw (Error)cause;
+    }
+    return new IOException(cause);
+  }
+
+  private static ExecutorService createLoaderExecutor() {
+    try {
+      Method virtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      LOGGER.debug("Loading configuration on virtual threads");
+      return (ExecutorService)virtualThreadExecutor.invoke(null);
+    } catch (ReflectiveOperationException roe) {
+      LOGGER.debug("No virtual threads, loading configuration on a cached thread pool");
+      final AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "yaml-loader-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+
+  /**
+   * A background task that can fail with an IOException
+   */
+  interface IoTask<T> {
+    T call() throws IOException;
+  }
+}
@@ -0,0 +1,77 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the mutable HashMap/ArrayList tree returned by the Yaml parser into
+ * CompactMap and CompactList instances.
+ *
+ * Keys are interned, they are repeated across screens and environments and are
+ * compared on every lookup.  Equal string values within one tree are collapsed to
+ * a single instance.  Anything that is already frozen is returned as it is, so
+ * freezing is cheap to repeat.
+ *
+ * A freezer keeps the strings it has seen, use one per tree being frozen.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class ConfigurationFreezer {
+
+  private final Map<String, String> canonicalValues = new HashMap<String, String>();
+
+  Object freeze(Object value) {
+    Object result = value;
+    if (value instanceof CompactMap || value instanceof CompactList || value instanceof LazyConfigurationMap) {
+      result = value;
+    } else if (value instanceof Map) {
+      result = freezeMap((Map)value);
+    } else if (value instanceof List) {
+      result = freezeList((List)value);
+    } else if (value instanceof String) {
+      result = canonicalValue((String)value);
+    }
+    return result;
+  }
+
+  CompactMap freezeMap(Map source) {
+    if (source.isEmpty()) {
+      return CompactMap.EMPTY;
+    }
+    Object[] keys = new Object[source.size()];
+    Object[] values = new Object[source.size()];
+    int index = 0;
+    for (Object entryObject : source.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      Object key = entry.getKey();
+      keys[index] = key instanceof String ? ((String)key).intern() : key;
+      values[index] = freeze(entry.getValue());
+      index++;
+    }
+    return new CompactMap(keys, values);
+  }
+
+  private CompactList freezeList(List source) {
+    if (source.isEmpty()) {
+      return CompactList.EMPTY;
+    }
+    Object[] items = new Object[source.size()];
+    int index = 0;
+    for (Object item : source) {
+      items[index++] = freeze(item);
+    }
+    return new CompactList(items);
+  }
+
+  private String canonicalValue(String value) {
+    String canonical = canonicalValues.get(value);
+    if (canonical == null) {
+      canonicalValues.put(value, value);
+      canonical = value;
+    }
+    return canonical;
+  }
+}
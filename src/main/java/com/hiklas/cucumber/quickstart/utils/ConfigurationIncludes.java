@@ -0,0 +1,263 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pulls other Yaml files into a configuration file that lists them under the
+ * top-level include key, e.g.
+ *
+ *   include:
+ *     - screens/search.yaml
+ *     - screens/accounts.yaml
+ *
+ * Names starting with / are found the same way as the common and environment files,
+ * anything else is relative to the file including it.  Included files can include
+ * others in turn, a file that ends up including itself is an error.
+ *
+ * The included files are merged in the order they're listed and then the including
+ * file on top.  Unlike the common and environment layers maps are merged all the
+ * way down, so several files can each add their own screens, and anything else in a
+ * later file replaces what was there before.
+ *
+ * All of a file's includes are loaded at the same time on the loader executor.  The
+ * parsed trees are kept for the life of the JVM, keyed by the file and a hash of its
+ * contents, so a file included from several places, or by every environment, is only
+ * parsed once until it changes.  A lazily loaded layer stays lazy, each of its
+ * sections is merged with the included files when it's first asked for.
+ *
+ * The files each file includes are remembered too, as of the last time it was
+ * loaded, so the YamlConfigurationReloader can watch them, see includedFiles().
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class ConfigurationIncludes {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationIncludes.class);
+
+  private static final String SEPARATOR = "/";
+
+  /**
+   * Parsed and frozen included files, the latest version of each file only
+   */
+  private static final ConcurrentMap<ParsedKey, Map> PARSED = new ConcurrentHashMap<ParsedKey, Map>();
+
+  /**
+   * The files each file includes directly, by the including file's configuration key
+   */
+  private static final ConcurrentMap<String, List<String>> INCLUDES = new ConcurrentHashMap<String, List<String>>();
+
+  private final YamlConfiguration loader;
+
+  ConfigurationIncludes(YamlConfiguration loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * @param filename the file the layer was loaded from, as passed to the loader
+   * @return the layer with everything it includes merged in, or the layer as it is
+   *         if it doesn't include anything
+   */
+  Map resolve(String filename, Map layer) throws IOException {
+    return resolve(filename, layer, Collections.singletonList(filename));
+  }
+
+  /**
+   * @param filename a file as passed to the loader
+   * @return every file it includes, directly or through other included files, as of 
+   *         the last time it was loaded
+   */
+  Set<String> includedFiles(String filename) {
+    Set<String> files = new LinkedHashSet<String>();
+    addIncludedFiles(filename, files);
+    return files;
+  }
+
+  /**
+   * Forget every parsed file, mostly useful for testing
+   */
+  static void clear() {
+    PARSED.clear();
+    INCLUDES.clear();
+  }
+
+  private Map resolve(String filename, Map layer, List<String> includedFrom) throws IOException {
+    String file = loader.getConfigurationKey(filename);
+    if (!layer.containsKey(YamlConfiguration.INCLUDE)) {
+      INCLUDES.remove(file);
+      return layer;
+    }
+    List<String> includes = includeNames(filename, layer.get(YamlConfiguration.INCLUDE));
+    INCLUDES.put(file, includes);
+    List<ConfigurationExecutors.IoTask<Map>> tasks = new ArrayList<ConfigurationExecutors.IoTask<Map>>();
+    for (String include : includes) {
+      List<String> chain = new ArrayList<String>(includedFrom);
+      chain.add(include);
+      if (includedFrom.contains(include)) {
+        throw new IOException("Configuration includes go round in a circle: " + String.join(" -> ", chain));
+      }
+      tasks.add(() -> loadIncluded(include, chain));
+    }
+    List<Map> included = tasks.size() == 1 ? Collections.singletonList(tasks.get(0).call())
+        : ConfigurationExecutors.invokeAll(tasks);
+    Map merged = new LinkedHashMap();
+    for (Map includedTree : included) {
+      mergeInto(merged, includedTree);
+    }
+    if (layer instanceof LazyConfigurationMap) {
+      return mergeLazily(merged, (LazyConfigurationMap)layer);
+    }
+    Map withoutInclude = new LinkedHashMap(layer);
+    withoutInclude.remove(YamlConfiguration.INCLUDE);
+    mergeInto(merged, withoutInclude);
+    return merged;
+  }
+
+  /**
+   * Copying a lazy layer would parse every section, so each of its sections is only 
+   * merged with the included files the first time it's asked for
+   */
+  private static Map mergeLazily(Map included, LazyConfigurationMap layer) {
+    LazyConfigurationMap own = LazyConfigurationMap.transform(
+        LazyConfigurationMap.without(layer, YamlConfiguration.INCLUDE), (key, value) -> {
+          Map section = new LinkedHashMap();
+          if (included.containsKey(key)) {
+            section.put(key, included.get(key));
+          }
+          mergeInto(section, Collections.singletonMap(key, value));
+          return section.get(key);
+        });
+    return LazyConfigurationMap.merge(LazyConfigurationMap.fromMap(included), own);
+  }
+
+  private void addIncludedFiles(String filename, Set<String> files) {
+    List<String> includes = INCLUDES.get(loader.getConfigurationKey(filename));
+    if (includes != null) {
+      for (String include : includes) {
+        if (files.add(include)) {
+          addIncludedFiles(include, files);
+        }
+      }
+    }
+  }
+
+  private Map loadIncluded(String filename, List<String> chain) throws IOException {
+    byte[] yaml = loader.readConfigurationFile(filename);
+    if (yaml == null) {
+      throw new FileNotFoundException("Included file '" + filename + "' not found, included from '"
+          + chain.get(chain.size() - 2) + "'");
+    }
+    ParsedKey key = new ParsedKey(loader.getConfigurationKey(filename), ConfigurationResources.sha256(yaml));
+    Map parsed = PARSED.get(key);
+    if (parsed == null) {
+      try {
+        parsed = PARSED.computeIfAbsent(key, newKey -> parse(filename, yaml));
+      } catch (UncheckedIOException uie) {
+        throw uie.getCause();
+      }
+      PARSED.keySet().removeIf(parsedKey -> parsedKey.file.equals(key.file) && !parsedKey.equals(key));
+    }
+    return resolve(filename, parsed, chain);
+  }
+
+  private Map parse(String filename, byte[] yaml) {
+    LOGGER.debug("Parsing included file '{}'", filename);
+    try {
+      return new ConfigurationFreezer().freezeMap(loader.parseConfigurationFile(filename, yaml));
+    } catch (IOException ie) {
+      throw new UncheckedIOException(ie);
+    }
+  }
+
+  private static List<String> includeNames(String filename, Object include) throws IOException {
+    List<String> names = new ArrayList<String>();
+    if (include instanceof String) {
+      names.add(resolveName(filename, (String)include));
+    } else if (include instanceof List) {
+      for (Object item : (List)include) {
+        names.add(resolveName(filename, String.valueOf(item)));
+      }
+    } else if (include != null) {
+      throw new IOException("The include in '" + filename + "' should be a filename or list of filenames");
+    }
+    return names;
+  }
+
+  /**
+   * @return the included name relative to the root, with any . and .. taken out
+   */
+  static String resolveName(String filename, String include) {
+    String path = include.startsWith(SEPARATOR) ? include
+        : filename.substring(0, filename.lastIndexOf(SEPARATOR) + 1) + include;
+    List<String> segments = new ArrayList<String>();
+    for (String segment : path.split(SEPARATOR)) {
+      if (segment.equals("..")) {
+        if (!segments.isEmpty()) {
+          segments.remove(segments.size() - 1);
+        }
+      } else if (!segment.isEmpty() && !segment.equals(".")) {
+        segments.add(segment);
+      }
+    }
+    return SEPARATOR + String.join(SEPARATOR, segments);
+  }
+
+  /**
+   * Merge the source into the target, copying rather than changing any maps found
+   * in the target as they may be shared
+   */
+  private static void mergeInto(Map target, Map source) {
+    for (Object entryObject : source.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      Object existing = target.get(entry.getKey());
+      Object value = entry.getValue();
+      if (existing instanceof Map && value instanceof Map) {
+        Map copy = new LinkedHashMap((Map)existing);
+        mergeInto(copy, (Map)value);
+        value = copy;
+      }
+      target.put(entry.getKey(), value);
+    }
+  }
+
+
+  private static final class ParsedKey {
+
+    private final String file;
+    private final String hash;
+
+    ParsedKey(String file, String hash) {
+      this.file = file;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ParsedKey)) {
+        return false;
+      }
+      ParsedKey otherKey = (ParsedKey)other;
+      return file.equals(otherKey.file) && hash.equals(otherKey.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * file.hashCode() + hash.hashCode();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces ${path/to/key} references in string values with the value found at that
+ * path in the merged configuration, e.g.
+ *
+ *   webpage_client:
+ *     base_url: ankhmorpork:8700
+ *   api_url: ${webpage_client/base_url}/api
+ *
+ * Keys in the path are separated by YamlConfiguration.PATH_SEPARATOR as they are
+ * everywhere else, so keys with dots in them, e.g. host names, can be referred to.
+ *
+ * This is done once when a snapshot is created so reading an interpolated value
+ * costs the same as reading any other.  A value that's nothing but a reference takes
+ * the referenced value as it is, which can be a Map or List.  Referenced values can
+ * hold references themselves, a chain that comes back round to where it started is
+ * a ConfigurationReferenceCycleException.  A reference to a key that isn't there is
+ * left as it is and logged.  $${ is an escaped ${ and isn't treated as a reference.
+ *
+ * Maps and lists are only copied if something in them changed, everything else is
+ * shared with the tree passed in.
+ *
+ * An interpolator remembers what each reference resolved to, use one per tree.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class ConfigurationInterpolator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationInterpolator.class);
+
+  static final String REFERENCE_START = "${";
+  static final char REFERENCE_END = '}';
+
+  private static final char ESCAPE = '$';
+
+  private static final Object NOT_FOUND = new Object();
+
+  private final Map tree;
+
+  private final Map<String, Object> resolvedReferences = new HashMap<String, Object>();
+
+  /**
+   * References being resolved right now, in the order they were followed
+   */
+  private final Set<String> resolving = new LinkedHashSet<String>();
+
+  private final ConfigurationFreezer freezer = new ConfigurationFreezer();
+
+  ConfigurationInterpolator(Map tree) {
+    this.tree = tree;
+  }
+
+  /**
+   * @return the tree with every reference replaced, the same tree if there weren't any
+   */
+  static Map interpolate(Map tree) throws ConfigurationReferenceCycleException {
+    return (Map)new ConfigurationInterpolator(tree).resolve(tree);
+  }
+
+  /**
+   * Sections of a lazy tree are interpolated when they're first used, parsing any
+   * other sections their references point into.  A cycle is only found then, so 
+   * it's thrown wrapped in an UncheckedIOException as a section that fails to parse is
+   */
+  static LazyConfigurationMap interpolateLazily(LazyConfigurationMap tree) {
+    return LazyConfigurationMap.transform(tree, (key, value) -> {
+      try {
+        return new ConfigurationInterpolator(tree).resolve(value);
+      } catch (ConfigurationReferenceCycleException cycle) {
+        throw new UncheckedIOException("Failed to interpolate configuration section '" + key + "'", cycle);
+      }
+    });
+  }
+
+  /**
+   * @return the value with every reference in it replaced
+   */
+  Object resolve(Object value) throws ConfigurationReferenceCycleException {
+    Object result = value;
+    if (value instanceof String) {
+      result = resolveString((String)value);
+    } else if (value instanceof Map) {
+      result = resolveMap((Map)value);
+    } else if (value instanceof List) {
+      result = resolveList((List)value);
+    }
+    return result;
+  }
+
+  private Object resolveMap(Map map) throws ConfigurationReferenceCycleException {
+    Object[] keys = new Object[map.size()];
+    Object[] values = new Object[map.size()];
+    boolean changed = false;
+    int index = 0;
+    for (Object entryObject : map.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      keys[index] = entry.getKey();
+      values[index] = resolve(entry.getValue());
+      changed |= values[index] != entry.getValue();
+      index++;
+    }
+    if (!changed) {
+      return map;
+    }
+    Map copy = new LinkedHashMap();
+    for (index = 0; index < keys.length; index++) {
+      copy.put(keys[index], values[index]);
+    }
+    return freezer.freezeMap(copy);
+  }
+
+  private Object resolveList(List list) throws ConfigurationReferenceCycleException {
+    List copy = new ArrayList(list.size());
+    boolean changed = false;
+    for (Object item : list) {
+      Object resolved = resolve(item);
+      changed |= resolved != item;
+      copy.add(resolved);
+    }
+    return changed ? freezer.freeze(copy) : list;
+  }
+
+  private Object resolveString(String value) throws ConfigurationReferenceCycleException {
+    int start = value.indexOf(REFERENCE_START);
+    if (start < 0) {
+      return value;
+    }
+    if (start == 0 && value.indexOf(REFERENCE_END) == value.length() - 1) {
+      Object referenced = reference(value.substring(REFERENCE_START.length(), value.length() - 1));
+      return referenced == NOT_FOUND ? value : referenced;
+    }
+    StringBuilder resolved = new StringBuilder(value.length() + 32);
+    int position = 0;
+    while (start >= 0) {
+      if (start > position && value.charAt(start - 1) == ESCAPE) {
+        resolved.append(value, position, start - 1).append(REFERENCE_START);
+        position = start + REFERENCE_START.length();
+      } else {
+        int end = value.indexOf(REFERENCE_END, start);
+        if (end < 0) {
+          break;
+        }
+        Object referenced = reference(value.substring(start + REFERENCE_START.length(), end));
+        resolved.append(value, position, start);
+        resolved.append(referenced == NOT_FOUND ? value.substring(start, end + 1) : String.valueOf(referenced));
+        position = end + 1;
+      }
+      start = value.indexOf(REFERENCE_START, position);
+    }
+    resolved.append(value, position, value.length());
+    return freezer.freeze(resolved.toString());
+  }
+
+  /**
+   * @return the fully resolved value at the path, or NOT_FOUND
+   */
+  private Object reference(String path) throws ConfigurationReferenceCycleException {
+    Object resolved = resolvedReferences.get(path);
+    if (resolved != null) {
+      return resolved;
+    }
+    if (!resolving.add(path)) {
+      throw new ConfigurationReferenceCycleException(cycleTo(path));
+    }
+    try {
+      Object value = find(path);
+      if (value == null) {
+        LOGGER.warn("Configuration reference '{}{}{}' doesn't match any key, leaving it as it is",
+            REFERENCE_START, path, REFERENCE_END);
+        resolved = NOT_FOUND;
+      } else {
+        resolved = resolve(value);
+      }
+    } finally {
+      resolving.remove(path);
+    }
+    resolvedReferences.put(path, resolved);
+    return resolved;
+  }
+
+  private Object find(String path) {
+    Object value = tree;
+    for (String key : path.split(YamlConfiguration.PATH_SEPARATOR, -1)) {
+      if (!(value instanceof Map)) {
+        return null;
+      }
+      value = ((Map)value).get(key);
+    }
+    return value;
+  }
+
+  private List<String> cycleTo(String path) {
+    List<String> followed = new ArrayList<String>(resolving);
+    List<String> cycle = new ArrayList<String>(followed.subList(followed.indexOf(path), followed.size()));
+    cycle.add(path);
+    return cycle;
+  }
+}
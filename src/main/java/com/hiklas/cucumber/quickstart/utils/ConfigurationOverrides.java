@@ -0,0 +1,235 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Single values overridden from outside the Yaml files, so a CI job can e.g. point
+ * at a different server without needing its own environment file.
+ *
+ * Overrides come from system properties starting cfg., with the rest of the name
+ * being the path to the key separated by dots, and from environment variables
+ * starting YAML_CFG_, with the path separated by double underscores.  Environment
+ * variable names are lower cased.  Both of these set webpage_client/base_url
+ *
+ *   -Dcfg.webpage_client.base_url=ankhmorpork:8700
+ *   YAML_CFG_WEBPAGE_CLIENT__BASE_URL=ankhmorpork:8700
+ *
+ * System properties win over environment variables, which win over the environment
+ * file, which wins over common.  Overrides are read once when the configuration is
+ * loaded and applied to the merged tree, reading a value never looks at the system
+ * properties or environment again.  Overridden values are always strings, any maps
+ * missing on the way to the key are created.
+ *
+ * Every load asks for the overrides, and copying and scanning every system property
+ * and environment variable each time would cost more than the cache lookup they're
+ * for.  So the last overrides read are kept along with the system properties they
+ * came from, how many there were, and the values of the cfg. ones.  If the same
+ * properties still have the same size and values they're used again.  The
+ * environment can't change once the JVM has started.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class ConfigurationOverrides {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationOverrides.class);
+
+  static final String PROPERTY_PREFIX = "cfg.";
+  static final String ENVIRONMENT_PREFIX = "YAML_CFG_";
+  static final String PROPERTY_SEPARATOR = ".";
+  static final String ENVIRONMENT_SEPARATOR = "__";
+
+  static final ConfigurationOverrides NONE = new ConfigurationOverrides(new TreeMap<String, String>());
+
+  /**
+   * The overrides fromSystem() last read, null before the first time
+   */
+  private static volatile SystemOverrides lastFromSystem;
+
+  /**
+   * Overridden values by dot separated path, sorted so the key is always the same
+   */
+  private final SortedMap<String, String> values;
+
+  private final String key;
+
+  private ConfigurationOverrides(SortedMap<String, String> values) {
+    this.values = values;
+    StringBuilder joined = new StringBuilder();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      joined.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+    }
+    this.key = joined.toString();
+  }
+
+  /**
+   * @return the overrides set for this JVM right now, the same ones as last time 
+   *         unless the system properties have changed
+   */
+  static ConfigurationOverrides fromSystem() {
+    Properties properties = System.getProperties();
+    SystemOverrides last = lastFromSystem;
+    if (last != null && last.isStillCurrent(properties)) {
+      return last.overrides;
+    }
+    ConfigurationOverrides overrides = from(properties, System.getenv());
+    lastFromSystem = new SystemOverrides(properties, overrides);
+    return overrides;
+  }
+
+  static ConfigurationOverrides from(Properties properties, Map<String, String> environment) {
+    SortedMap<String, String> values = new TreeMap<String, String>();
+    for (Map.Entry<String, String> variable : environment.entrySet()) {
+      String name = variable.getKey();
+      if (name.startsWith(ENVIRONMENT_PREFIX) && name.length() > ENVIRONMENT_PREFIX.length()) {
+        String path = name.substring(ENVIRONMENT_PREFIX.length()).toLowerCase(Locale.ROOT)
+            .replace(ENVIRONMENT_SEPARATOR, PROPERTY_SEPARATOR);
+        values.put(path, variable.getValue());
+      }
+    }
+    for (String name : properties.stringPropertyNames()) {
+      if (name.startsWith(PROPERTY_PREFIX) && name.length() > PROPERTY_PREFIX.length()) {
+        values.put(name.substring(PROPERTY_PREFIX.length()), properties.getProperty(name));
+      }
+    }
+    if (values.isEmpty()) {
+      return NONE;
+    }
+    LOGGER.debug("Configuration overridden for {}", values.keySet());
+    return new ConfigurationOverrides(values);
+  }
+
+  boolean isEmpty() {
+    return values.isEmpty();
+  }
+
+  /**
+   * @return the overridden values by dot separated path
+   */
+  Map<String, String> values() {
+    return Collections.unmodifiableMap(values);
+  }
+
+  /**
+   * @return identifies this set of overrides in the YamlConfigurationCache, empty if
+   *         there aren't any
+   */
+  String key() {
+    return key;
+  }
+
+  /**
+   * @return a copy of the tree with the overrides applied, the same tree if there
+   *         aren't any
+   */
+  Map apply(Map tree) {
+    Map result = tree;
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      result = (Map)applyTo(result, split(entry.getKey()), 0, entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Overrides of sections already in the lazy tree are applied when the section is
+   * first used.  Sections that are only in the overrides are added straight away.
+   */
+  LazyConfigurationMap applyLazily(LazyConfigurationMap tree) {
+    if (values.isEmpty()) {
+      return tree;
+    }
+    Map<String, Map<String, String>> bySection = new LinkedHashMap<String, Map<String, String>>();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      String section = split(entry.getKey())[0];
+      if (!bySection.containsKey(section)) {
+        bySection.put(section, new TreeMap<String, String>());
+      }
+      bySection.get(section).put(entry.getKey(), entry.getValue());
+    }
+    LazyConfigurationMap overridden = LazyConfigurationMap.transform(tree, (section, value) -> {
+      Map<String, String> sectionValues = bySection.get(section);
+      if (sectionValues == null) {
+        return value;
+      }
+      Map sectionTree = Collections.singletonMap(section, value);
+      return new ConfigurationOverrides(new TreeMap<String, String>(sectionValues)).apply(sectionTree).get(section);
+    });
+    SortedMap<String, String> newSections = new TreeMap<String, String>();
+    for (Map.Entry<String, Map<String, String>> section : bySection.entrySet()) {
+      if (!tree.containsKey(section.getKey())) {
+        newSections.putAll(section.getValue());
+      }
+    }
+    Map added = new ConfigurationOverrides(newSections).apply(Collections.emptyMap());
+    return added.isEmpty() ? overridden
+        : LazyConfigurationMap.merge(overridden, LazyConfigurationMap.fromMap(added));
+  }
+
+  private Object applyTo(Object value, String[] path, int depth, String overriddenValue) {
+    if (depth == path.length) {
+      return overriddenValue;
+    }
+    Map map = value instanceof Map ? (Map)value : Collections.emptyMap();
+    Map copy = new LinkedHashMap(map);
+    copy.put(path[depth], applyTo(map.get(path[depth]), path, depth + 1, overriddenValue));
+    return copy;
+  }
+
+  private static String[] split(String path) {
+    return path.split("\\" + PROPERTY_SEPARATOR, -1);
+  }
+
+
+  /**
+   * Overrides read from the system properties and what the properties were like then
+   */
+  private static final class SystemOverrides {
+
+    private final Properties properties;
+    private final int size;
+
+    /**
+     * Every cfg. property and its value
+     */
+    private final Map<String, String> propertyValues = new LinkedHashMap<String, String>();
+
+    private final ConfigurationOverrides overrides;
+
+    SystemOverrides(Properties properties, ConfigurationOverrides overrides) {
+      this.properties = properties;
+      this.size = properties.size();
+      this.overrides = overrides;
+      for (String path : overrides.values.keySet()) {
+        String name = PROPERTY_PREFIX + path;
+        propertyValues.put(name, properties.getProperty(name));
+      }
+    }
+
+    /**
+     * Adding or removing a property changes the size, so this only misses a property 
+     * being added and another removed in between
+     */
+    boolean isStillCurrent(Properties currentProperties) {
+      if (currentProperties != properties || currentProperties.size() != size) {
+        return false;
+      }
+      for (Map.Entry<String, String> property : propertyValues.entrySet()) {
+        String value = currentProperties.getProperty(property.getKey());
+        if (value == null ? property.getValue() != null : !value.equals(property.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when loading a configuration whose ${path/to/key} references come back 
+ * round to where they started, see ConfigurationInterpolator.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public class ConfigurationReferenceCycleException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final List<String> cycle;
+
+  public ConfigurationReferenceCycleException(List<String> cycle) {
+    super("Configuration references go round in a circle: " + String.join(" -> ", cycle));
+    this.cycle = Collections.unmodifiableList(cycle);
+  }
+
+  /**
+   * @return the references followed, starting and ending with the same one, e.g. 
+   *         a.b, c, a.b
+   */
+  public List<String> cycle() {
+    return cycle;
+  }
+}
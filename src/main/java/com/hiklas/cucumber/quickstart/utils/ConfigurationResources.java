@@ -0,0 +1,129 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds and reads configuration files.
+ *
+ * Looking a resource up on the classpath means asking every jar in turn, which
+ * on a big classpath is slow, so where each file was found is remembered.  Files
+ * that weren't found are remembered too.  The classpath doesn't change while the
+ * JVM is running so nothing is ever dropped.
+ *
+ * Files on the filesystem are read straight into an array, which is hashed and then
+ * decoded as UTF-8.  They're never memory mapped, a mapping would only be copied
+ * and would keep the file mapped, which on Windows stops it being edited, until the
+ * mapping is garbage collected.  Badly encoded files are reported rather than
+ * silently turned into replacement characters.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class ConfigurationResources {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationResources.class);
+
+  private static final URL NOT_FOUND = newNotFoundMarker();
+
+  private static final ConcurrentMap<ResourceKey, URL> RESOURCES = new ConcurrentHashMap<ResourceKey, URL>();
+
+  private ConfigurationResources() {
+  }
+
+  /**
+   * @return where the file is on the classpath as seen from the given class, or
+   *         null if it isn't there
+   */
+  static URL classpathResource(Class<?> owner, String filename) {
+    ResourceKey key = new ResourceKey(owner, filename);
+    URL resource = RESOURCES.get(key);
+    if (resource == null) {
+      resource = owner.getResource(filename);
+      LOGGER.debug("Resolved '{}' to '{}'", filename, resource);
+      RESOURCES.putIfAbsent(key, resource == null ? NOT_FOUND : resource);
+    }
+    return resource == NOT_FOUND ? null : resource;
+  }
+
+  /**
+   * @return the bytes decoded as UTF-8
+   */
+  static String decodeUtf8(byte[] bytes) throws IOException {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    return decoder.decode(ByteBuffer.wrap(bytes)).toString();
+  }
+
+  /**
+   * @return the raw bytes of the whole file
+   */
+  static byte[] readBytes(Path file) throws IOException {
+    return Files.readAllBytes(file);
+  }
+
+  /**
+   * @return the SHA-256 hash of the bytes as hex
+   */
+  static String sha256(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte digestByte : digest) {
+        hex.append(Character.forDigit((digestByte >> 4) & 0xF, 16)).append(Character.forDigit(digestByte & 0xF, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException("Every JVM should have SHA-256", nsae);
+    }
+  }
+
+  private static URL newNotFoundMarker() {
+    try {
+      return new URL("file:/not-found");
+    } catch (MalformedURLException mue) {
+      throw new IllegalStateException(mue);
+    }
+  }
+
+
+  private static final class ResourceKey {
+
+    private final Class<?> owner;
+    private final String filename;
+
+    ResourceKey(Class<?> owner, String filename) {
+      this.owner = owner;
+      this.filename = filename;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ResourceKey)) {
+        return false;
+      }
+      ResourceKey otherKey = (ResourceKey)other;
+      return owner == otherKey.owner && filename.equals(otherKey.filename);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * owner.hashCode() + filename.hashCode();
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks a loaded configuration has the shape the accessors expect, so a typo like a
+ * screen's url written as a list fails the load straight away rather than every
+ * scenario that reads it.
+ *
+ * Schemas are written in Yaml using a small part of JSON schema, see
+ * configuration-schema.yaml next to this class for the one used when loading.  Each
+ * level can give
+ *
+ *   type                  object, array or string
+ *   properties            the schema for each named key of an object
+ *   additionalProperties  the schema for every other key of an object
+ *   items                 the schema for every item of an array
+ *
+ * Yaml scalars are all read as strings, so string just means not a map or a list.
+ * An empty value, which yamlbeans gives as "", is allowed wherever anything is, and
+ * keys the schema doesn't mention can hold anything.
+ *
+ * A schema is compiled once into a tree of ConfigurationSchemas, the standard one the
+ * first time it's asked for.  Checking a tree walks it once and collects every
+ * problem rather than stopping at the first.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class ConfigurationSchema {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationSchema.class);
+
+  static final String STANDARD_SCHEMA = "configuration-schema.yaml";
+
+  static final String TYPE = "type";
+  static final String PROPERTIES = "properties";
+  static final String ADDITIONAL_PROPERTIES = "additionalProperties";
+  static final String ITEMS = "items";
+
+  static final String OBJECT = "object";
+  static final String ARRAY = "array";
+  static final String STRING = "string";
+
+  /**
+   * The type is null when the schema doesn't say
+   */
+  private final String type;
+  private final Map<String, ConfigurationSchema> properties;
+  private final ConfigurationSchema additionalProperties;
+  private final ConfigurationSchema items;
+
+  private ConfigurationSchema(String type, Map<String, ConfigurationSchema> properties,
+      ConfigurationSchema additionalProperties, ConfigurationSchema items) {
+    this.type = type;
+    this.properties = properties;
+    this.additionalProperties = additionalProperties;
+    this.items = items;
+  }
+
+  /**
+   * @return the schema YamlConfiguration checks against, compiled the first time
+   *         it's needed
+   */
+  static ConfigurationSchema standard() {
+    return Standard.SCHEMA;
+  }
+
+  /**
+   * @param schema the parsed schema document
+   * @throws IllegalArgumentException if the schema isn't one this understands
+   */
+  static ConfigurationSchema compile(Map schema) {
+    return compile(schema, "");
+  }
+
+  /**
+   * @param description which files the tree came from, for the exception message
+   * @throws ConfigurationValidationException listing everything wrong with the tree
+   */
+  void validate(Map tree, String description) throws ConfigurationValidationException {
+    List<String> violations = violations(tree);
+    if (!violations.isEmpty()) {
+      throw new ConfigurationValidationException(description, violations);
+    }
+  }
+
+  /**
+   * @return a description of everything in the tree that doesn't match the schema,
+   *         empty if it all does
+   */
+  List<String> violations(Map tree) {
+    List<String> violations = new ArrayList<String>();
+    check(tree, "", violations);
+    return violations;
+  }
+
+  private void check(Object value, String path, List<String> violations) {
+    if (isEmpty(value)) {
+      return;
+    }
+    if (type != null && !type.equals(typeOf(value))) {
+      violations.add((path.isEmpty() ? "The configuration" : path) + " should be " + describe(type)
+          + " but is " + describe(typeOf(value)));
+      return;
+    }
+    if (value instanceof Map) {
+      for (Object entryObject : ((Map)value).entrySet()) {
+        Map.Entry entry = (Map.Entry)entryObject;
+        String key = String.valueOf(entry.getKey());
+        ConfigurationSchema keySchema = properties.get(key);
+        if (keySchema == null) {
+          keySchema = additionalProperties;
+        }
+        if (keySchema != null) {
+          keySchema.check(entry.getValue(), child(path, key), violations);
+        }
+      }
+    } else if (value instanceof List && items != null) {
+      int index = 0;
+      for (Object item : (List)value) {
+        items.check(item, child(path, "[" + index + "]"), violations);
+        index++;
+      }
+    }
+  }
+
+  private static ConfigurationSchema compile(Map schema, String path) {
+    Object type = schema.get(TYPE);
+    if (type != null && !OBJECT.equals(type) && !ARRAY.equals(type) && !STRING.equals(type)) {
+      throw new IllegalArgumentException("Unknown type '" + type + "' in schema at '" + path + "'");
+    }
+    Map<String, ConfigurationSchema> properties = new LinkedHashMap<String, ConfigurationSchema>();
+    for (Object entryObject : asMap(schema.get(PROPERTIES), path, PROPERTIES).entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      String key = String.valueOf(entry.getKey());
+      properties.put(key, compile(asMap(entry.getValue(), path, key), child(path, key)));
+    }
+    Object additionalProperties = schema.get(ADDITIONAL_PROPERTIES);
+    Object items = schema.get(ITEMS);
+    return new ConfigurationSchema((String)type, Collections.unmodifiableMap(properties),
+        additionalProperties == null ? null : compile(asMap(additionalProperties, path, ADDITIONAL_PROPERTIES),
+            child(path, "*")),
+        items == null ? null : compile(asMap(items, path, ITEMS), child(path, "[]")));
+  }
+
+  private static Map asMap(Object value, String path, String key) {
+    if (isEmpty(value)) {
+      return Collections.emptyMap();
+    }
+    if (!(value instanceof Map)) {
+      throw new IllegalArgumentException("Expected a map for '" + key + "' in schema at '" + path + "'");
+    }
+    return (Map)value;
+  }
+
+  private static boolean isEmpty(Object value) {
+    return value == null || "".equals(value);
+  }
+
+  private static String typeOf(Object value) {
+    return value instanceof Map ? OBJECT : value instanceof List ? ARRAY : STRING;
+  }
+
+  private static String describe(String type) {
+    return OBJECT.equals(type) ? "a map" : ARRAY.equals(type) ? "a list" : "a single value";
+  }
+
+  private static String child(String path, String key) {
+    return path.isEmpty() ? key : path + YamlConfiguration.PATH_SEPARATOR + key;
+  }
+
+
+  /**
+   * Holds the standard schema so it's only compiled when first needed
+   */
+  private static final class Standard {
+
+    private static final ConfigurationSchema SCHEMA = load();
+
+    private static ConfigurationSchema load() {
+      try (InputStream stream = ConfigurationSchema.class.getResourceAsStream(STANDARD_SCHEMA)) {
+        if (stream == null) {
+          throw new IllegalStateException("The configuration schema '" + STANDARD_SCHEMA + "' is missing");
+        }
+        Object schema = YamlParserBackends.named(YamlParserBackends.DEFAULT_BACKEND)
+            .parse(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        LOGGER.debug("Compiling the configuration schema '{}'", STANDARD_SCHEMA);
+        return compile((Map)schema);
+      } catch (IOException ie) {
+        throw new UncheckedIOException("Failed to read the configuration schema '" + STANDARD_SCHEMA + "'", ie);
+      }
+    }
+  }
+}
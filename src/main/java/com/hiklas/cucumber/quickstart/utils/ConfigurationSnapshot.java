@@ -0,0 +1,483 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable, fully parsed view of the merged common and environment
+ * configuration.
+ *
+ * Snapshots are created once per set of resolved files and then shared between
+ * every YamlConfiguration that asks for the same files, see YamlConfigurationCache.
+ * Because they are shared the whole tree is frozen into compact immutable maps and
+ * lists when the snapshot is created, see ConfigurationFreezer, so nobody can change 
+ * it underneath anybody else.  The estimated size of the tree before and after 
+ * freezing is kept for reporting.
+ *
+ * Values overridden by system properties or environment variables are applied to the 
+ * merged tree, see ConfigurationOverrides, before anything else is done with it.
+ *
+ * References in values to other keys, e.g. ${webpage_client/base_url}, are replaced 
+ * in the merged tree when it's created, see ConfigurationInterpolator.  The layers are 
+ * kept as they were in the files, a reference in common can point at a value that's 
+ * only in the environment.
+ *
+ * Nested values are looked up one key at a time, the section and then each key in
+ * the map found before it.  The keys are passed separately rather than joined into a
+ * path so a read builds nothing, and any map big enough to matter is hashed, see
+ * CompactMap, so each level is a single lookup.  Keys can hold any character, a / in
+ * an element name doesn't get confused with a nested key.
+ *
+ * If either layer is a LazyConfigurationMap the snapshot is lazy too.  The merged tree
+ * is then also a LazyConfigurationMap, each top-level section is parsed the first time
+ * anything in it is looked up.  No footprint estimate is made for a lazy snapshot as
+ * that would parse everything.
+ *
+ * Element groups are resolved against element_ids when the snapshot is created, 
+ * see ElementGroupIndex, and each screen is read into a ScreenRecord.  For lazy 
+ * snapshots both happen the first time they're used instead.
+ *
+ * An overlay snapshot shares a base snapshot holding just the common layer.  Its tree
+ * shares every section the environment layer doesn't change, and it only builds its
+ * own element group index and screen records if their sections are in its own
+ * environment layer, or resolve differently in this environment.  Lots of environments
+ * over the same common file then only cost what their own files add, see
+ * YamlConfigurationMatrix.
+ *
+ * Once a snapshot's tree has been checked against the ConfigurationSchema validated() 
+ * gives a copy that says so, sharing everything else.  The copy is made once and kept, 
+ * so the tree is only checked once however many configurations share it, and whether 
+ * a snapshot has been checked never changes after it's created.
+ *
+ * ConfigViews bound to a snapshot are kept with it, so each view of each path is only 
+ * bound once.  Messages are likewise only compiled into a MessageTemplate once.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+final class ConfigurationSnapshot {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationSnapshot.class);
+
+  private final Map commonLayer;
+  private final Map environmentLayer;
+
+  private final Map tree;
+
+  private final ConfigurationOverrides overrides;
+
+  /**
+   * For an overlay, the snapshot of just the common layer that every section not in 
+   * the environment layer is looked up in, otherwise null
+   */
+  private final ConfigurationSnapshot base;
+
+  /**
+   * For an overlay, the top-level keys that differ from the base
+   */
+  private final Set<String> localSections;
+
+  private final long parsedFootprint;
+  private final long frozenFootprint;
+
+  /**
+   * Set when the snapshot is created, or when first used if it's lazy
+   */
+  private volatile ElementGroupIndex elementGroupIndex;
+
+  /**
+   * Set when the snapshot is created, or when first used if it's lazy
+   */
+  private volatile Map<String, ScreenRecord> screenRecords;
+
+  /**
+   * True if the tree has been checked against the ConfigurationSchema, the accessors 
+   * can then trust the types of the values the schema covers
+   */
+  private final boolean validated;
+
+  /**
+   * For a snapshot that hasn't been checked, the checked copy once there is one
+   */
+  private volatile ConfigurationSnapshot validatedCopy;
+
+  /**
+   * Messages compiled for formatting, by message key, compiled the first time each 
+   * is formatted
+   */
+  private final ConcurrentMap<String, MessageTemplate> messageTemplates;
+
+  /**
+   * ConfigView implementations bound to this snapshot, by view type and then path
+   */
+  private final ConcurrentMap<Class<?>, ConcurrentMap<List<String>, Object>> views;
+
+  private ConfigurationSnapshot(Map commonLayer, Map environmentLayer, Map tree, 
+      ConfigurationOverrides overrides, long parsedFootprint, long frozenFootprint) {
+    this(commonLayer, environmentLayer, tree, overrides, null, Collections.<String>emptySet(), 
+        parsedFootprint, frozenFootprint);
+  }
+
+  private ConfigurationSnapshot(Map commonLayer, Map environmentLayer, Map tree, ConfigurationOverrides overrides,
+      ConfigurationSnapshot base, Set<String> localSections, long parsedFootprint, long frozenFootprint) {
+    this.commonLayer = commonLayer;
+    this.environmentLayer = environmentLayer;
+    this.tree = tree;
+    this.overrides = overrides;
+    this.base = base;
+    this.localSections = localSections;
+    boolean lazy = tree instanceof LazyConfigurationMap;
+    this.parsedFootprint = parsedFootprint;
+    this.frozenFootprint = frozenFootprint;
+    this.validated = false;
+    this.messageTemplates = new ConcurrentHashMap<String, MessageTemplate>();
+    this.views = new ConcurrentHashMap<Class<?>, ConcurrentMap<List<String>, Object>>();
+    if (!lazy) {
+      elementGroupIndex();
+      screenRecords();
+    }
+  }
+
+  /**
+   * A validated copy of the snapshot, sharing everything with it
+   */
+  private ConfigurationSnapshot(ConfigurationSnapshot unvalidated) {
+    this.commonLayer = unvalidated.commonLayer;
+    this.environmentLayer = unvalidated.environmentLayer;
+    this.tree = unvalidated.tree;
+    this.overrides = unvalidated.overrides;
+    this.base = unvalidated.base;
+    this.localSections = unvalidated.localSections;
+    this.parsedFootprint = unvalidated.parsedFootprint;
+    this.frozenFootprint = unvalidated.frozenFootprint;
+    this.validated = true;
+    this.elementGroupIndex = unvalidated.elementGroupIndex();
+    this.screenRecords = unvalidated.screenRecords();
+    this.messageTemplates = unvalidated.messageTemplates;
+    this.views = unvalidated.views;
+    this.validatedCopy = this;
+  }
+
+  /**
+   * Create a snapshot from the common and environment trees returned by the Yaml 
+   * parser.  Top-level keys in the environment replace those in common.  Neither 
+   * of the trees passed in is kept, frozen copies are taken.  Layers that are 
+   * already frozen, e.g. taken from another snapshot, are shared rather than copied.
+   */
+  static ConfigurationSnapshot of(Map commonLayer, Map environmentLayer)
+      throws ConfigurationReferenceCycleException {
+    return of(commonLayer, environmentLayer, ConfigurationOverrides.NONE);
+  }
+
+  /**
+   * As above with the overrides applied on top of both layers
+   */
+  static ConfigurationSnapshot of(Map commonLayer, Map environmentLayer, ConfigurationOverrides overrides)
+      throws ConfigurationReferenceCycleException {
+    if (commonLayer instanceof LazyConfigurationMap || environmentLayer instanceof LazyConfigurationMap) {
+      return ofLazy(LazyConfigurationMap.fromMap(commonLayer), LazyConfigurationMap.fromMap(environmentLayer), 
+          overrides);
+    }
+    long parsedFootprint = FootprintEstimator.estimate(merge(commonLayer, environmentLayer));
+    ConfigurationFreezer freezer = new ConfigurationFreezer();
+    Map frozenCommon = freezer.freezeMap(commonLayer);
+    Map frozenEnvironment = freezer.freezeMap(environmentLayer);
+    Map frozenTree = ConfigurationInterpolator.interpolate(
+        freezer.freezeMap(overrides.apply(merge(frozenCommon, frozenEnvironment))));
+    long frozenFootprint = FootprintEstimator.estimate(frozenTree);
+    LOGGER.debug("Configuration footprint is ~{} bytes parsed, ~{} bytes frozen", 
+        parsedFootprint, frozenFootprint);
+    return new ConfigurationSnapshot(frozenCommon, frozenEnvironment, frozenTree, overrides,
+        parsedFootprint, frozenFootprint);
+  }
+
+  /**
+   * Create a snapshot of the environment layer on top of a snapshot of the common 
+   * layer, sharing the base's sections rather than copying them.  The base's 
+   * overrides are applied to the overlay too.  A lazy base 
+   * is already shared section by section so that just gives a normal lazy snapshot.
+   * 
+   * @param base a snapshot with the common layer and an empty environment layer
+   */
+  static ConfigurationSnapshot overlay(ConfigurationSnapshot base, Map environmentLayer)
+      throws ConfigurationReferenceCycleException {
+    if (base.tree instanceof LazyConfigurationMap || environmentLayer instanceof LazyConfigurationMap) {
+      return of(base.commonLayer, environmentLayer, base.overrides);
+    }
+    ConfigurationFreezer freezer = new ConfigurationFreezer();
+    Map frozenEnvironment = freezer.freezeMap(environmentLayer);
+    Map tree = ConfigurationInterpolator.interpolate(
+        freezer.freezeMap(base.overrides.apply(merge(base.commonLayer, frozenEnvironment))));
+    Set<String> localSections = new HashSet<String>();
+    for (Object key : tree.keySet()) {
+      Object value = tree.get(key);
+      Object baseValue = base.tree.get(key);
+      if (frozenEnvironment.containsKey(key) || (value != baseValue && (value == null || !value.equals(baseValue)))) {
+        localSections.add(String.valueOf(key));
+      }
+    }
+    return new ConfigurationSnapshot(base.commonLayer, frozenEnvironment, tree, base.overrides, base, localSections,
+        FootprintEstimator.estimate(environmentLayer), FootprintEstimator.estimate(frozenEnvironment));
+  }
+
+  /**
+   * Create a snapshot from trees compiled by the YamlConfigurationCompiler, which 
+   * are already frozen and interpolated so they're used as they are.  There are no 
+   * overrides, withOverrides() gives a snapshot with them.
+   */
+  static ConfigurationSnapshot ofCompiled(Map commonLayer, Map environmentLayer, Map tree) {
+    return new ConfigurationSnapshot(commonLayer, environmentLayer, tree, ConfigurationOverrides.NONE, 0, 0);
+  }
+
+  private static ConfigurationSnapshot ofLazy(LazyConfigurationMap commonLayer, 
+      LazyConfigurationMap environmentLayer, ConfigurationOverrides overrides) {
+    LOGGER.debug("Configuration is lazy, sections are parsed when they're first used");
+    LazyConfigurationMap merged = overrides.applyLazily(LazyConfigurationMap.merge(commonLayer, environmentLayer));
+    return new ConfigurationSnapshot(commonLayer, environmentLayer, 
+        ConfigurationInterpolator.interpolateLazily(merged), overrides, 0, 0);
+  }
+
+  /**
+   * @return a new snapshot with the common layer replaced and this snapshot's 
+   *         environment layer
+   */
+  ConfigurationSnapshot withCommonLayer(Map newCommonLayer) throws ConfigurationReferenceCycleException {
+    return of(newCommonLayer, environmentLayer, overrides);
+  }
+
+  /**
+   * @return a new snapshot with the environment layer replaced and this snapshot's 
+   *         common layer
+   */
+  ConfigurationSnapshot withEnvironmentLayer(Map newEnvironmentLayer)
+      throws ConfigurationReferenceCycleException {
+    return base == null ? of(commonLayer, newEnvironmentLayer, overrides) : overlay(base, newEnvironmentLayer);
+  }
+
+  /**
+   * @return a new snapshot of the same layers with different overrides, or this 
+   *         snapshot if they're the same
+   */
+  ConfigurationSnapshot withOverrides(ConfigurationOverrides newOverrides)
+      throws ConfigurationReferenceCycleException {
+    return newOverrides.key().equals(overrides.key()) ? this : of(commonLayer, environmentLayer, newOverrides);
+  }
+
+  ConfigurationOverrides overrides() {
+    return overrides;
+  }
+
+  Map tree() {
+    return tree;
+  }
+
+  Map commonLayer() {
+    return commonLayer;
+  }
+
+  Map environmentLayer() {
+    return environmentLayer;
+  }
+
+  boolean isValidated() {
+    return validated;
+  }
+
+  /**
+   * Call once the tree has been checked against the ConfigurationSchema
+   * 
+   * @return a copy of this snapshot that's marked as validated, the same copy every 
+   *         time, or this snapshot if it already is
+   */
+  ConfigurationSnapshot validated() {
+    ConfigurationSnapshot copy = validatedCopy;
+    if (copy == null) {
+      synchronized (this) {
+        copy = validatedCopy;
+        if (copy == null) {
+          copy = new ConfigurationSnapshot(this);
+          validatedCopy = copy;
+        }
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * @return the validated copy if the snapshot has been checked, otherwise null
+   */
+  ConfigurationSnapshot validatedCopy() {
+    return validatedCopy;
+  }
+
+  /**
+   * @return true if this is an overlay sharing its common layer with other snapshots
+   */
+  boolean isOverlay() {
+    return base != null;
+  }
+
+  /**
+   * @return estimated bytes used by the tree as returned by the Yaml parser, just 
+   *         the environment layer for an overlay
+   */
+  long parsedFootprint() {
+    return parsedFootprint;
+  }
+
+  /**
+   * @return estimated bytes used by the frozen tree held by this snapshot, just 
+   *         the environment layer for an overlay
+   */
+  long frozenFootprint() {
+    return frozenFootprint;
+  }
+
+  /**
+   * @return the top-level section, or null if there isn't one
+   */
+  Object lookup(String section) {
+    return tree.get(section);
+  }
+
+  /**
+   * @return the value of the key in the section, or null if there isn't one
+   */
+  Object lookup(String section, String key) {
+    return child(tree.get(section), key);
+  }
+
+  /**
+   * @return the value of the subkey in the key's map in the section, or null if 
+   *         there isn't one
+   */
+  Object lookup(String section, String key, String subkey) {
+    return child(child(tree.get(section), key), subkey);
+  }
+
+  /**
+   * @return the value found by looking each key up in the map the one before it 
+   *         found, starting with the tree, or null if there isn't one
+   */
+  Object lookupPath(String[] path) {
+    Object value = tree;
+    for (int index = 0; index < path.length && value != null; index++) {
+      value = child(value, path[index]);
+    }
+    return value;
+  }
+
+  /**
+   * @return the element groups resolved to ids, shared with the base if this is an 
+   *         overlay that doesn't change either section
+   */
+  ElementGroupIndex elementGroupIndex() {
+    ElementGroupIndex index = elementGroupIndex;
+    if (index == null) {
+      if (base != null && !localSections.contains(YamlConfiguration.ELEMENT_GROUPS)
+          && !localSections.contains(YamlConfiguration.ELEMENT_IDS)) {
+        index = base.elementGroupIndex();
+      } else {
+        index = ElementGroupIndex.build(section(YamlConfiguration.ELEMENT_GROUPS), 
+            section(YamlConfiguration.ELEMENT_IDS));
+      }
+      elementGroupIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * @return the record for the screen, or null if there's no such screen
+   */
+  ScreenRecord screenRecord(String screenName) {
+    return screenRecords().get(screenName);
+  }
+
+  /**
+   * @return a record for every screen, shared with the base if this is an overlay 
+   *         that doesn't change the screens
+   */
+  private Map<String, ScreenRecord> screenRecords() {
+    Map<String, ScreenRecord> records = screenRecords;
+    if (records == null) {
+      if (base != null && !localSections.contains(YamlConfiguration.SCREENS)
+          && !localSections.contains(YamlConfiguration.WEBPAGE_CLIENT)) {
+        records = base.screenRecords();
+      } else {
+        Object baseUrl = lookup(YamlConfiguration.WEBPAGE_CLIENT, YamlConfiguration.BASE_URL);
+        records = ScreenRecord.buildAll(section(YamlConfiguration.SCREENS), 
+            baseUrl instanceof String ? (String)baseUrl : "");
+      }
+      screenRecords = records;
+    }
+    return records;
+  }
+
+  /**
+   * @return the message compiled for formatting, or null if there's no such message
+   */
+  MessageTemplate messageTemplate(String messageKey) {
+    MessageTemplate template = messageTemplates.get(messageKey);
+    if (template == null) {
+      Object pattern = lookup(YamlConfiguration.MESSAGES, messageKey);
+      if (!(pattern instanceof String)) {
+        return null;
+      }
+      template = MessageTemplate.compile(messageKey, (String)pattern);
+      MessageTemplate existing = messageTemplates.putIfAbsent(messageKey, template);
+      if (existing != null) {
+        template = existing;
+      }
+    }
+    return template;
+  }
+
+  /**
+   * @param path the keys down to the map, none for a view of the whole tree
+   * @return the view bound to the map at the path, bound the first time it's asked for
+   */
+  <T> T view(Class<T> viewType, String[] path) {
+    ConcurrentMap<List<String>, Object> viewsOfType = views.get(viewType);
+    if (viewsOfType == null) {
+      views.putIfAbsent(viewType, new ConcurrentHashMap<List<String>, Object>());
+      viewsOfType = views.get(viewType);
+    }
+    List<String> viewPath = Arrays.asList(path);
+    Object view = viewsOfType.get(viewPath);
+    if (view == null) {
+      Object source = lookupPath(path);
+      view = ConfigViews.bind(viewType, source instanceof Map ? (Map)source : CompactMap.EMPTY);
+      Object existing = viewsOfType.putIfAbsent(viewPath, view);
+      if (existing != null) {
+        view = existing;
+      }
+    }
+    return viewType.cast(view);
+  }
+
+  private Map section(String section) {
+    Object value = lookup(section);
+    return value instanceof Map ? (Map)value : CompactMap.EMPTY;
+  }
+
+  private static Object child(Object parent, String key) {
+    return parent instanceof Map ? ((Map)parent).get(key) : null;
+  }
+
+  private static Map merge(Map commonLayer, Map environmentLayer) {
+    Map merged = new LinkedHashMap(commonLayer);
+    merged.putAll(environmentLayer);
+    return merged;
+  }
+}
@@ -0,0 +1,42 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when loading a configuration that doesn't have the shape YamlConfiguration
+ * expects, listing everything that's wrong with it at once.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public class ConfigurationValidationException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final List<String> violations;
+
+  public ConfigurationValidationException(String description, List<String> violations) {
+    super(message(description, violations));
+    this.violations = Collections.unmodifiableList(violations);
+  }
+
+  /**
+   * @return a description of each problem, e.g. 'screens/Search/url should be a
+   *         single value but is a list'
+   */
+  public List<String> violations() {
+    return violations;
+  }
+
+  private static String message(String description, List<String> violations) {
+    StringBuilder message = new StringBuilder("Configuration ").append(description)
+        .append(" doesn't match the schema, ").append(violations.size())
+        .append(violations.size() == 1 ? " problem" : " problems");
+    for (String violation : violations) {
+      message.append("\n  ").append(violation);
+    }
+    return message.toString();
+  }
+}
@@ -0,0 +1,131 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every element group with its element keys already looked up in element_ids.
+ * 
+ * Groups hold element keys, e.g. 'Search Form', and checking a page needs the ids 
+ * they map to, e.g. 'search-form'.  Rather than looking each key up every time a 
+ * page is checked the ids for every group are worked out once, when the snapshot is 
+ * created, and kept as an array.  Keys that aren't in element_ids are left out and 
+ * logged as a warning there and then, they can also be listed with unresolvedKeys().
+ * The groups' lists of keys are kept too, so element_group() doesn't need to check 
+ * the type of what it finds each time.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class ElementGroupIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElementGroupIndex.class);
+  
+  static final ElementGroupIndex EMPTY = new ElementGroupIndex(Collections.<String, CompactList>emptyMap(), 
+      Collections.<String, List>emptyMap(), Collections.<String>emptyList());
+  
+  /**
+   * The resolved ids of each group, the list wraps the array without copying it
+   */
+  private final Map<String, CompactList> groups;
+  
+  /**
+   * The element keys of each group that's a list, as they are in the configuration
+   */
+  private final Map<String, List> keys;
+  
+  private final List<String> unresolvedKeys;
+  
+  private ElementGroupIndex(Map<String, CompactList> groups, Map<String, List> keys, List<String> unresolvedKeys) {
+    this.groups = groups;
+    this.keys = keys;
+    this.unresolvedKeys = unresolvedKeys;
+  }
+  
+  /**
+   * Look up every key in every group
+   * 
+   * @param elementGroups the element_groups section
+   * @param elementIds the element_ids section
+   */
+  static ElementGroupIndex build(Map elementGroups, Map elementIds) {
+    if (elementGroups.isEmpty()) {
+      return EMPTY;
+    }
+    Map<String, CompactList> groups = new HashMap<String, CompactList>();
+    Map<String, List> keysByGroup = new HashMap<String, List>();
+    List<String> unresolvedKeys = new ArrayList<String>();
+    for (Object entryObject : elementGroups.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      String group = String.valueOf(entry.getKey());
+      List keys = entry.getValue() instanceof List ? (List)entry.getValue() : Collections.emptyList();
+      if (entry.getValue() instanceof List) {
+        keysByGroup.put(group, keys);
+      }
+      List<String> ids = new ArrayList<String>(keys.size());
+      for (Object key : keys) {
+        Object id = elementIds.get(key);
+        if (id instanceof String) {
+          ids.add((String)id);
+        } else {
+          unresolvedKeys.add(group + YamlConfiguration.PATH_SEPARATOR + key);
+          LOGGER.warn("Element group '{}' refers to '{}' which isn't in {}", group, key, 
+              YamlConfiguration.ELEMENT_IDS);
+        }
+      }
+      groups.put(group, new CompactList(ids.toArray(new String[ids.size()])));
+    }
+    return new ElementGroupIndex(groups, keysByGroup, Collections.unmodifiableList(unresolvedKeys));
+  }
+  
+  /**
+   * @return the ids for the group, empty if there's no such group
+   */
+  List ids(String group) {
+    CompactList ids = groups.get(group);
+    return ids == null ? CompactList.EMPTY : ids;
+  }
+  
+  /**
+   * @return the element keys in the group, or null if there's no such group or it 
+   *         isn't a list
+   */
+  List keys(String group) {
+    return keys.get(group);
+  }
+  
+  /**
+   * @return the ids for all the groups one after the other
+   */
+  List ids(String... groupNames) {
+    if (groupNames.length == 1) {
+      return ids(groupNames[0]);
+    }
+    int size = 0;
+    for (String group : groupNames) {
+      size += ids(group).size();
+    }
+    Object[] ids = new Object[size];
+    int index = 0;
+    for (String group : groupNames) {
+      for (Object id : ids(group)) {
+        ids[index++] = id;
+      }
+    }
+    return new CompactList(ids);
+  }
+  
+  /**
+   * @return 'group/key' for each key in a group that isn't in element_ids
+   */
+  List<String> unresolvedKeys() {
+    return unresolvedKeys;
+  }
+}
@@ -0,0 +1,86 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+/**
+ * Binds an environment to the current thread, so scenarios running in parallel 
+ * can each test against a different environment without touching the 
+ * test.environment.config.file system property.
+ * 
+ * Bind it for as long as the scenario runs, usually in a Before hook, and close 
+ * it when the scenario finishes, e.g.
+ * 
+ *   try (EnvironmentContext context = EnvironmentContext.bind("test-discworld")) {
+ *     ...
+ *   }
+ * 
+ * While it's bound YamlConfiguration loads that environment's file on this thread 
+ * rather than the one named in the system property.  A YamlConfiguration shared 
+ * between threads reads from the environment bound on whichever thread is calling 
+ * it, each environment's snapshot is loaded once and then shared by every thread 
+ * using it.
+ * 
+ * Contexts can be nested, closing one puts back whatever was bound before it.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+public final class EnvironmentContext implements AutoCloseable {
+
+  private static final ThreadLocal<EnvironmentContext> CURRENT = new ThreadLocal<EnvironmentContext>();
+  
+  private final String environment;
+  private final EnvironmentContext previous;
+  private final Thread boundThread;
+  
+  private EnvironmentContext(String environment, EnvironmentContext previous) {
+    this.environment = environment;
+    this.previous = previous;
+    this.boundThread = Thread.currentThread();
+  }
+  
+  /**
+   * Use the given environment on this thread until the context is closed
+   * 
+   * @param environment the environment's filename without the .yaml, 
+   *        e.g. 'test-discworld'
+   */
+  public static EnvironmentContext bind(String environment) {
+    if (environment == null || environment.isEmpty()) {
+      throw new IllegalArgumentException("An environment is needed");
+    }
+    EnvironmentContext context = new EnvironmentContext(environment, CURRENT.get());
+    CURRENT.set(context);
+    return context;
+  }
+  
+  /**
+   * @return the environment bound to this thread, or null if there isn't one
+   */
+  public static String currentEnvironment() {
+    EnvironmentContext context = CURRENT.get();
+    return context == null ? null : context.environment;
+  }
+  
+  public String environment() {
+    return environment;
+  }
+  
+  /**
+   * Unbind this environment, putting back whatever was bound before it.  This has 
+   * to happen on the thread that bound it and innermost context first.
+   */
+  @Override
+  public void close() {
+    if (Thread.currentThread() != boundThread) {
+      throw new IllegalStateException("Environment '" + environment + "' was bound on thread '" 
+          + boundThread.getName() + "' and has to be closed there");
+    }
+    if (CURRENT.get() != this) {
+      throw new IllegalStateException("Environment '" + environment + "' isn't the innermost context");
+    }
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rough estimate of the heap used by a configuration tree.
+ *
+ * This is a model, not a measurement.  It assumes a 64 bit JVM with compressed
+ * oops (12 byte headers, 4 byte references, 8 byte alignment) and compact Latin-1
+ * strings, and guesses the capacity of HashMap and ArrayList from their size as
+ * the Yaml parser never presizes them.  It's good enough to compare the parsed
+ * tree with the frozen one, which is what it's for.  Objects reachable more than
+ * once, e.g. interned keys, are only counted once.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class FootprintEstimator {
+
+  private static final int HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+
+  private static final int STRING = align(HEADER + 4 + 1 + 1 + REFERENCE);
+  private static final int HASH_MAP = align(HEADER + 4 * 4 + 3 * REFERENCE);
+  private static final int LINKED_HASH_MAP = align(HASH_MAP + 2 * REFERENCE + 1);
+  private static final int HASH_MAP_NODE = align(HEADER + 4 + 3 * REFERENCE);
+  private static final int LINKED_HASH_MAP_NODE = align(HASH_MAP_NODE + 2 * REFERENCE);
+  private static final int ARRAY_LIST = align(HEADER + 4 + 4 + REFERENCE);
+  private static final int UNMODIFIABLE_WRAPPER = align(HEADER + 4 * REFERENCE);
+  private static final int COMPACT_MAP = align(HEADER + 4 * REFERENCE + 4);
+  private static final int COMPACT_LIST = align(HEADER + 4 + REFERENCE);
+
+  private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+  private FootprintEstimator() {
+  }
+
+  /**
+   * @return estimated bytes retained by the tree rooted at value
+   */
+  static long estimate(Object value) {
+    return new FootprintEstimator().sizeOf(value);
+  }
+
+  private long sizeOf(Object value) {
+    if (value == null || !seen.add(value)) {
+      return 0;
+    }
+    long size;
+    if (value instanceof String) {
+      size = STRING + align(ARRAY_HEADER + ((String)value).length());
+    } else if (value instanceof CompactMap) {
+      size = sizeOfCompactMap((CompactMap)value);
+    } else if (value instanceof CompactList) {
+      size = COMPACT_LIST + referenceArray(((List)value).size()) + sizeOfItems((List)value);
+    } else if (value instanceof Map) {
+      size = sizeOfMap((Map)value);
+    } else if (value instanceof List) {
+      size = sizeOfList((List)value);
+    } else {
+      size = align(HEADER + 8);
+    }
+    return size;
+  }
+
+  private long sizeOfCompactMap(CompactMap map) {
+    long size = COMPACT_MAP + 2 * referenceArray(map.size());
+    if (map.slotCount() > 0) {
+      size += align(ARRAY_HEADER + 4L * map.slotCount());
+    }
+    for (int index = 0; index < map.size(); index++) {
+      size += sizeOf(map.keyAt(index)) + sizeOf(map.valueAt(index));
+    }
+    return size;
+  }
+
+  private long sizeOfMap(Map map) {
+    boolean linked = map instanceof LinkedHashMap;
+    long size = linked ? LINKED_HASH_MAP : HASH_MAP;
+    if (!(map instanceof HashMap)) {
+      // most likely an unmodifiable wrapper around a HashMap
+      size += UNMODIFIABLE_WRAPPER + HASH_MAP;
+    }
+    size += referenceArray(hashMapCapacity(map.size()));
+    size += (long)map.size() * (linked ? LINKED_HASH_MAP_NODE : HASH_MAP_NODE);
+    for (Object entryObject : map.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+    }
+    return size;
+  }
+
+  private long sizeOfList(List list) {
+    long size = ARRAY_LIST + referenceArray(Math.max(10, list.size()));
+    if (!(list instanceof ArrayList)) {
+      size += UNMODIFIABLE_WRAPPER;
+    }
+    return size + sizeOfItems(list);
+  }
+
+  private long sizeOfItems(List list) {
+    long size = 0;
+    for (Object item : list) {
+      size += sizeOf(item);
+    }
+    return size;
+  }
+
+  private static int hashMapCapacity(int size) {
+    int needed = Math.max(16, (int)(size / 0.75f) + 1);
+    return Integer.highestOneBit(needed - 1) << 1;
+  }
+
+  private static long referenceArray(int length) {
+    return align(ARRAY_HEADER + (long)REFERENCE * length);
+  }
+
+  private static int align(int size) {
+    return (size + 7) & ~7;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+}
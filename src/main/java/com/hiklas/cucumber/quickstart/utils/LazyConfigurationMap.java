@@ -0,0 +1,274 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map of top-level keys whose values are only parsed when first asked for.
+ *
+ * Each value is a Section holding the raw bytes for that key, as found by the
+ * YamlSectionScanner.  The first get() for a key parses and freezes just that
+ * section, holding the section's lock so it's only ever parsed once.  After that
+ * the value is read without locking.
+ *
+ * Anything that walks the whole map, e.g. iterating over it or comparing it with
+ * another map, will parse every section.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+final class LazyConfigurationMap extends AbstractMap<Object, Object> {
+
+  private final String[] keys;
+  private final Section[] sections;
+
+  private Set<Map.Entry<Object, Object>> entrySet;
+
+
+  private LazyConfigurationMap(String[] keys, Section[] sections) {
+    this.keys = keys;
+    this.sections = sections;
+  }
+
+  /**
+   * Split the file into sections without parsing any of them
+   *
+   * @return the lazy map, or null if the file couldn't be split
+   */
+  static LazyConfigurationMap scan(byte[] yaml, SectionParser parser) {
+    List<YamlSectionScanner.Section> found = YamlSectionScanner.scan(yaml);
+    if (found == null) {
+      return null;
+    }
+    Map<String, Section> byKey = new LinkedHashMap<String, Section>();
+    for (YamlSectionScanner.Section section : found) {
+      byKey.put(section.key, new Section(yaml, section.start, section.end, parser));
+    }
+    return fromSections(byKey);
+  }
+
+  /**
+   * @return a lazy map holding the values of an already parsed map
+   */
+  static LazyConfigurationMap fromMap(Map map) {
+    if (map instanceof LazyConfigurationMap) {
+      return (LazyConfigurationMap)map;
+    }
+    Map<String, Section> byKey = new LinkedHashMap<String, Section>();
+    ConfigurationFreezer freezer = new ConfigurationFreezer();
+    for (Object entryObject : map.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      byKey.put(String.valueOf(entry.getKey()), new Section(freezer.freeze(entry.getValue())));
+    }
+    return fromSections(byKey);
+  }
+
+  /**
+   * Top-level keys in the environment replace those in common, the sections are
+   * shared with the layers rather than copied so each is still only parsed once
+   */
+  static LazyConfigurationMap merge(LazyConfigurationMap commonLayer, LazyConfigurationMap environmentLayer) {
+    Map<String, Section> byKey = new LinkedHashMap<String, Section>();
+    commonLayer.addSectionsTo(byKey);
+    environmentLayer.addSectionsTo(byKey);
+    return fromSections(byKey);
+  }
+
+  /**
+   * @return a lazy map whose values are the source's values passed through the 
+   *         transform, which like parsing only happens the first time each is asked for
+   */
+  static LazyConfigurationMap transform(LazyConfigurationMap source, SectionTransform transform) {
+    Map<String, Section> byKey = new LinkedHashMap<String, Section>();
+    for (String key : source.keys) {
+      byKey.put(key, new Section(null, 0, 0, 
+          (yaml, start, end) -> Collections.singletonMap(key, transform.apply(key, source.get(key)))));
+    }
+    return fromSections(byKey);
+  }
+
+  /**
+   * @return a lazy map with every section of the source but the one for the key, 
+   *         the sections are shared rather than copied
+   */
+  static LazyConfigurationMap without(LazyConfigurationMap source, String key) {
+    Map<String, Section> byKey = new LinkedHashMap<String, Section>();
+    source.addSectionsTo(byKey);
+    byKey.remove(key);
+    return fromSections(byKey);
+  }
+
+  /**
+   * @return how many sections have been parsed so far
+   */
+  int parsedSectionCount() {
+    int parsed = 0;
+    for (Section section : sections) {
+      if (section.isParsed()) {
+        parsed++;
+      }
+    }
+    return parsed;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : sections[index].value(keys[index]);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public Set<Map.Entry<Object, Object>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private void addSectionsTo(Map<String, Section> byKey) {
+    for (int index = 0; index < keys.length; index++) {
+      byKey.put(keys[index], sections[index]);
+    }
+  }
+
+  private int indexOf(Object key) {
+    for (int index = 0; index < keys.length; index++) {
+      if (keys[index].equals(key)) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static LazyConfigurationMap fromSections(Map<String, Section> byKey) {
+    List<String> keys = new ArrayList<String>(byKey.keySet());
+    String[] keyArray = new String[keys.size()];
+    for (int index = 0; index < keyArray.length; index++) {
+      keyArray[index] = keys.get(index).intern();
+    }
+    return new LazyConfigurationMap(keyArray, byKey.values().toArray(new Section[keyArray.length]));
+  }
+
+
+  /**
+   * Parses the bytes of one section, returning a map holding just that key
+   */
+  interface SectionParser {
+    Object parse(byte[] yaml, int start, int end) throws IOException;
+  }
+
+
+  /**
+   * Changes the value of one section, see transform()
+   */
+  interface SectionTransform {
+    Object apply(String key, Object value);
+  }
+
+
+  /**
+   * The bytes for one top-level key and, once it's been asked for, its value
+   */
+  private static final class Section {
+
+    private static final Object NOT_PARSED = new Object();
+
+    private byte[] yaml;
+    private final int start;
+    private final int end;
+    private final SectionParser parser;
+
+    private volatile Object value = NOT_PARSED;
+
+    Section(byte[] yaml, int start, int end, SectionParser parser) {
+      this.yaml = yaml;
+      this.start = start;
+      this.end = end;
+      this.parser = parser;
+    }
+
+    Section(Object parsedValue) {
+      this(null, 0, 0, null);
+      this.value = parsedValue;
+    }
+
+    boolean isParsed() {
+      return value != NOT_PARSED;
+    }
+
+    Object value(String key) {
+      Object result = value;
+      if (result == NOT_PARSED) {
+        result = parse(key);
+      }
+      return result;
+    }
+
+    private synchronized Object parse(String key) {
+      if (value == NOT_PARSED) {
+        try {
+          Object parsed = parser.parse(yaml, start, end);
+          Object sectionValue = parsed instanceof Map ? ((Map)parsed).get(key) : null;
+          value = new ConfigurationFreezer().freeze(sectionValue);
+          yaml = null;
+        } catch (IOException ie) {
+          throw new UncheckedIOException("Failed to parse configuration section '" + key + "'", ie);
+        }
+      }
+      return value;
+    }
+  }
+
+
+  private final class EntrySet extends AbstractSet<Map.Entry<Object, Object>> {
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Object, Object>> iterator() {
+      return new Iterator<Map.Entry<Object, Object>>() {
+
+        private int nextIndex = 0;
+
+        @Override
+        public boolean hasNext() {
+          return nextIndex < keys.length;
+        }
+
+        @Override
+        public Map.Entry<Object, Object> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int index = nextIndex++;
+          return new AbstractMap.SimpleImmutableEntry<Object, Object>(keys[index],
+              sections[index].value(keys[index]));
+        }
+      };
+    }
+  }
+}
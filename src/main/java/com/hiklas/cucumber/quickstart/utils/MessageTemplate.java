@@ -0,0 +1,134 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A message from the messages section compiled into a MessageFormat, e.g.
+ *
+ *   not_registered: 'Customer {0} is not yet registered'
+ *
+ * Parsing the pattern is the slow part of MessageFormat so each message is only 
+ * compiled once.  MessageFormat isn't thread safe though, so the compiled one is 
+ * never used directly.  One clone of it is kept spare, a format takes it and puts it 
+ * back after, and a format that finds it already taken makes a clone of its own.  
+ * Nothing is kept per thread, which with virtual threads would mean a clone for 
+ * almost every format.  Messages without a { can't have any arguments and are 
+ * returned as they are without going near MessageFormat.
+ *
+ * MessageFormat treats ' as a quote, which would make an apostrophe disappear only 
+ * from messages that have a placeholder.  So apostrophes in a word, e.g. it's, and 
+ * any without a closing one are escaped before compiling and kept as they are.  A 
+ * pair of them still quotes, e.g. '{0}' is kept as {0} rather than replaced.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class MessageTemplate {
+
+  private static final char QUOTE = '\'';
+  private static final String ESCAPED_QUOTE = "''";
+
+  private final String pattern;
+
+  /**
+   * Null if the message has no placeholders, never formatted with
+   */
+  private final MessageFormat compiled;
+
+  /**
+   * A clone of compiled that isn't being used, or null if it's been taken
+   */
+  private final AtomicReference<MessageFormat> spare;
+
+  private MessageTemplate(String pattern, MessageFormat compiled) {
+    this.pattern = pattern;
+    this.compiled = compiled;
+    this.spare = compiled == null ? null : new AtomicReference<MessageFormat>((MessageFormat)compiled.clone());
+  }
+
+  /**
+   * @throws IllegalArgumentException if the pattern isn't a valid MessageFormat pattern
+   */
+  static MessageTemplate compile(String messageKey, String pattern) {
+    if (pattern.indexOf('{') < 0) {
+      return new MessageTemplate(pattern, null);
+    }
+    try {
+      return new MessageTemplate(pattern, new MessageFormat(escapeApostrophes(pattern)));
+    } catch (IllegalArgumentException iae) {
+      throw new IllegalArgumentException("Message '" + messageKey + "' isn't a valid pattern: " + pattern, iae);
+    }
+  }
+
+  String format(Object... arguments) {
+    if (compiled == null) {
+      return pattern;
+    }
+    MessageFormat format = spare.getAndSet(null);
+    if (format == null) {
+      format = (MessageFormat)compiled.clone();
+    }
+    String formatted = format.format(arguments);
+    spare.set(format);
+    return formatted;
+  }
+
+  boolean hasPlaceholders() {
+    return compiled != null;
+  }
+
+  /**
+   * Double every apostrophe that's in a word or hasn't got a closing one, leaving 
+   * quoted text and apostrophes that are already doubled as they are
+   */
+  private static String escapeApostrophes(String pattern) {
+    StringBuilder escaped = new StringBuilder(pattern.length() + 8);
+    int index = 0;
+    while (index < pattern.length()) {
+      char next = pattern.charAt(index);
+      if (next != QUOTE) {
+        escaped.append(next);
+        index++;
+      } else if (index + 1 < pattern.length() && pattern.charAt(index + 1) == QUOTE) {
+        escaped.append(ESCAPED_QUOTE);
+        index += 2;
+      } else {
+        int closing = inWord(pattern, index) ? -1 : closingQuote(pattern, index + 1);
+        if (closing < 0) {
+          escaped.append(ESCAPED_QUOTE);
+          index++;
+        } else {
+          escaped.append(pattern, index, closing + 1);
+          index = closing + 1;
+        }
+      }
+    }
+    return escaped.toString();
+  }
+
+  private static boolean inWord(String pattern, int index) {
+    return index > 0 && index + 1 < pattern.length() 
+        && Character.isLetterOrDigit(pattern.charAt(index - 1)) 
+        && Character.isLetterOrDigit(pattern.charAt(index + 1));
+  }
+
+  /**
+   * @return where the quoted text starting at from ends, skipping doubled apostrophes 
+   *         within it, or -1 if it doesn't
+   */
+  private static int closingQuote(String pattern, int from) {
+    int index = from;
+    while (index < pattern.length()) {
+      if (pattern.charAt(index) == QUOTE) {
+        if (index + 1 < pattern.length() && pattern.charAt(index + 1) == QUOTE) {
+          index += 2;
+          continue;
+        }
+        return index;
+      }
+      index++;
+    }
+    return -1;
+  }
+}
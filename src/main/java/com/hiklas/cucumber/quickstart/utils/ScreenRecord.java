@@ -0,0 +1,140 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything about one screen, read out of the screens section once when the 
+ * configuration is loaded.
+ * 
+ * A step moving to a new page usually wants the url, title, ids to check and how 
+ * to get there all at once.  Rather than four or five lookups through the screen's 
+ * map they're all fields here.  Values that are missing from the screen come back 
+ * empty, as they do from YamlConfiguration.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+public final class ScreenRecord {
+
+  //
+  // Null if the screen doesn't have the value, or it's the wrong type, so 
+  // YamlConfiguration can fall back to its usual lookup and record the miss
+  //
+  final String url;
+  final String absoluteUrl;
+  final String title;
+  final String getHereBy;
+  final List checkForIds;
+  final List formData;
+  
+  /**
+   * The screen's map as it is in the configuration, for screen_info()
+   */
+  final Map screen;
+  
+  private final String name;
+  
+  private ScreenRecord(String name, Object screenValue, String baseUrl) {
+    Map screen = screenValue instanceof Map ? (Map)screenValue : CompactMap.EMPTY;
+    this.name = name;
+    this.screen = screenValue instanceof Map ? screen : null;
+    this.url = stringOrNull(screen.get(YamlConfiguration.URL));
+    this.absoluteUrl = url == null ? null : absoluteUrl(baseUrl, url);
+    this.title = stringOrNull(screen.get(YamlConfiguration.TITLE));
+    this.getHereBy = stringOrNull(screen.get(YamlConfiguration.GET_HERE_BY));
+    this.checkForIds = listOrNull(screen.get(YamlConfiguration.CHECK_FOR_IDS));
+    this.formData = listOrNull(screen.get(YamlConfiguration.FORM_DATA));
+  }
+  
+  /**
+   * @return a record for every screen, by name
+   */
+  static Map<String, ScreenRecord> buildAll(Map screens, String baseUrl) {
+    if (screens.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, ScreenRecord> records = new HashMap<String, ScreenRecord>();
+    for (Object entryObject : screens.entrySet()) {
+      Map.Entry entry = (Map.Entry)entryObject;
+      String name = String.valueOf(entry.getKey());
+      records.put(name, new ScreenRecord(name, entry.getValue(), baseUrl));
+    }
+    return records;
+  }
+  
+  /**
+   * @return a record for a screen that isn't in the configuration, everything is empty
+   */
+  static ScreenRecord missing(String name) {
+    return new ScreenRecord(name, null, "");
+  }
+  
+  public String name() {
+    return name;
+  }
+  
+  public String url() {
+    return url == null ? "" : url;
+  }
+  
+  /**
+   * @return the base url with the url on the end, or just the url if it already has 
+   *         a scheme, e.g. http://
+   */
+  public String absoluteUrl() {
+    return absoluteUrl == null ? "" : absoluteUrl;
+  }
+  
+  public String title() {
+    return title == null ? "" : title;
+  }
+  
+  /**
+   * @return the HTTP method used to get to the screen, e.g. GET or POST
+   */
+  public String getHereBy() {
+    return getHereBy == null ? "" : getHereBy;
+  }
+  
+  public List checkForIds() {
+    return checkForIds == null ? CompactList.EMPTY : checkForIds;
+  }
+  
+  public List formData() {
+    return formData == null ? CompactList.EMPTY : formData;
+  }
+  
+  @Override
+  public String toString() {
+    return "ScreenRecord{name=" + name + ", url=" + url() + ", absoluteUrl=" + absoluteUrl() + ", title=" + title() + ", getHereBy=" + getHereBy() 
+        + ", checkForIds=" + checkForIds() + ", formData=" + formData() + "}";
+  }
+  
+  
+  private static String absoluteUrl(String baseUrl, String url) {
+    if (url.contains("://")) {
+      return url;
+    }
+    boolean baseEndsWithSlash = baseUrl.endsWith("/");
+    boolean urlStartsWithSlash = url.startsWith("/");
+    if (baseEndsWithSlash && urlStartsWithSlash) {
+      return baseUrl + url.substring(1);
+    }
+    if (!baseEndsWithSlash && !urlStartsWithSlash && !baseUrl.isEmpty() && !url.isEmpty()) {
+      return baseUrl + "/" + url;
+    }
+    return baseUrl + url;
+  }
+  
+  private static String stringOrNull(Object value) {
+    return value instanceof String ? (String)value : null;
+  }
+  
+  private static List listOrNull(Object value) {
+    return value instanceof List ? (List)value : null;
+  }
+}
@@ -0,0 +1,252 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The default parser, which builds the tree straight from SnakeYAML's parser events.
+ *
+ * Going from events skips SnakeYAML's node graph and type resolution, and yamlbeans'
+ * reflection, so it's quite a bit quicker and makes a lot less garbage.  Nothing is
+ * resolved, scalars stay as the strings they were written as, to give the same tree
+ * yamlbeans does.
+ *
+ * The one place the two parsers disagree is block scalars, yamlbeans drops the last
+ * line break of a | or > value where SnakeYAML keeps it.  Which chomping indicator
+ * was used isn't in the events so it's read from the text after the | or >, which
+ * comes after any anchor or tag on the value.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class SnakeYamlParserBackend implements YamlParserBackend {
+
+  public static final String NAME = "snakeyaml";
+
+  private static final char KEEP = '+';
+  private static final char LITERAL = '|';
+  private static final char FOLDED = '>';
+  private static final char ANCHOR = '&';
+  private static final char TAG = '!';
+  private static final char COMMENT = '#';
+  private static final String LINE_BREAK = "\n";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Object parse(Reader yaml) throws IOException {
+    String text = readAll(yaml);
+    try {
+      return new TreeBuilder(text).build(new ParserImpl(new StreamReader(text), loaderOptions()));
+    } catch (YAMLException ye) {
+      throw new IOException("Failed to parse Yaml: " + ye.getMessage(), ye);
+    }
+  }
+
+  /**
+   * Configuration files can be big, SnakeYAML's default limit is 3MB
+   */
+  private static LoaderOptions loaderOptions() {
+    LoaderOptions options = new LoaderOptions();
+    options.setCodePointLimit(Integer.MAX_VALUE);
+    return options;
+  }
+
+  private static String readAll(Reader yaml) throws IOException {
+    StringBuilder text = new StringBuilder(8192);
+    char[] buffer = new char[8192];
+    int read;
+    while ((read = yaml.read(buffer)) != -1) {
+      text.append(buffer, 0, read);
+    }
+    return text.toString();
+  }
+
+
+  /**
+   * Builds one document's tree, a new one is needed for each parse
+   */
+  private static final class TreeBuilder {
+
+    private final String text;
+
+    /**
+     * Event positions count code points, which only differ from chars if there are
+     * characters outside the BMP, e.g. emoji
+     */
+    private final boolean hasSurrogates;
+
+    private final Map<String, Object> anchors = new HashMap<String, Object>();
+
+    /**
+     * Maps and lists still being filled in, innermost first
+     */
+    private final Deque<Container> open = new ArrayDeque<Container>();
+
+    private Object root;
+
+    TreeBuilder(String text) {
+      this.text = text;
+      this.hasSurrogates = text.codePointCount(0, text.length()) != text.length();
+    }
+
+    Object build(Parser parser) throws IOException {
+      while (true) {
+        Event event = parser.getEvent();
+        switch (event.getEventId()) {
+          case Scalar:
+            add(anchor(event, scalarValue((ScalarEvent)event)));
+            break;
+          case Alias:
+            add(alias((AliasEvent)event));
+            break;
+          case MappingStart:
+            open.push(new Container(anchor(event, new HashMap())));
+            break;
+          case SequenceStart:
+            open.push(new Container(anchor(event, new ArrayList())));
+            break;
+          case MappingEnd:
+          case SequenceEnd:
+            add(open.pop().value);
+            break;
+          case DocumentEnd:
+          case StreamEnd:
+            return root;
+          default:
+            break;
+        }
+      }
+    }
+
+    private void add(Object value) {
+      Container parent = open.peek();
+      if (parent == null) {
+        root = value;
+      } else {
+        parent.add(value);
+      }
+    }
+
+    private Object anchor(Event event, Object value) {
+      String anchor = ((NodeEvent)event).getAnchor();
+      if (anchor != null) {
+        anchors.put(anchor, value);
+      }
+      return value;
+    }
+
+    private Object alias(AliasEvent event) throws IOException {
+      if (!anchors.containsKey(event.getAnchor())) {
+        throw new IOException("Unknown anchor '" + event.getAnchor() + "' " + event.getStartMark());
+      }
+      return anchors.get(event.getAnchor());
+    }
+
+    private String scalarValue(ScalarEvent event) {
+      String value = event.getValue();
+      DumperOptions.ScalarStyle style = event.getScalarStyle();
+      boolean block = style == DumperOptions.ScalarStyle.LITERAL || style == DumperOptions.ScalarStyle.FOLDED;
+      if (block && value.endsWith(LINE_BREAK) && !isKept(indicator(event.getStartMark().getIndex()))) {
+        value = value.substring(0, value.length() - LINE_BREAK.length());
+      }
+      return value;
+    }
+
+    /**
+     * @param start where the scalar's event starts, in code points, this is at its
+     *        anchor or tag if it has one
+     * @return where the | or > is, in chars
+     */
+    private int indicator(int start) {
+      int position = hasSurrogates ? text.offsetByCodePoints(0, start) : start;
+      while (position < text.length()) {
+        char character = text.charAt(position);
+        if (character == LITERAL || character == FOLDED) {
+          break;
+        }
+        if (character == ANCHOR || character == TAG) {
+          while (position < text.length() && !Character.isWhitespace(text.charAt(position))) {
+            position++;
+          }
+        } else if (character == COMMENT) {
+          while (position < text.length() && text.charAt(position) != '\n') {
+            position++;
+          }
+        } else {
+          position++;
+        }
+      }
+      return position;
+    }
+
+    /**
+     * @param indicator where the | or > is, in chars
+     * @return whether the block scalar's header says to keep its line breaks, the
+     *         chomping and indentation indicators can come in either order
+     */
+    private boolean isKept(int indicator) {
+      int position = indicator + 1;
+      for (int header = 0; header < 2 && position < text.length(); header++, position++) {
+        char character = text.charAt(position);
+        if (character == KEEP) {
+          return true;
+        }
+        if (!Character.isDigit(character)) {
+          break;
+        }
+      }
+      return false;
+    }
+  }
+
+
+  /**
+   * A map or list being filled in, maps take a key and then its value
+   */
+  private static final class Container {
+
+    private final Object value;
+
+    private Object key;
+    private boolean hasKey;
+
+    Container(Object value) {
+      this.value = value;
+    }
+
+    void add(Object item) {
+      if (value instanceof List) {
+        ((List)value).add(item);
+      } else if (hasKey) {
+        ((Map)value).put(key, item);
+        hasKey = false;
+        key = null;
+      } else {
+        key = item;
+        hasKey = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import com.esotericsoftware.yamlbeans.YamlReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The original yamlbeans parser, which builds the tree from the object model rather
+ * than events.  Slower than the default but kept so the two can be compared, and as
+ * something to fall back to.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public final class YamlBeansParserBackend implements YamlParserBackend {
+
+  public static final String NAME = "yamlbeans";
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public Object parse(Reader yaml) throws IOException {
+    return new YamlReader(yaml).read();
+  }
+}
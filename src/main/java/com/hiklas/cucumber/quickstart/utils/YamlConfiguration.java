@@ -1,18 +1,32 @@
 package com.hiklas.cucumber.quickstart.utils;
 
 
-import com.esotericsoftware.yamlbeans.YamlException;
-import com.esotericsoftware.yamlbeans.YamlReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * Load the configuration from Yaml files.
@@ -32,6 +46,72 @@ import java.util.Map;
  *   
  * The suffix .yaml is appended to the above filenames.
  * 
+ * Parsed files are kept in the JVM-wide YamlConfigurationCache, so only the first 
+ * instance to load a given pair of files actually parses them.  Every instance after 
+ * that shares the same immutable snapshot.
+ * 
+ * Nested values are looked up a key at a time without building a path, so reading 
+ * one allocates nothing, see get(String...).  Missing values come back as shared empty 
+ * values rather than newly allocated ones.
+ * 
+ * loadConfigurationAsync() loads in the background instead, so other setup can carry on 
+ * at the same time.  Anything read before it's finished waits for it.
+ * 
+ * Setting yaml.config.parallel.load to true, or calling enableParallelLoading(), loads the 
+ * two files at the same time on background threads, which helps when they're on slow storage.
+ * 
+ * Setting yaml.config.lazy.load to true, or calling enableLazyLoading(), only finds where 
+ * each top-level section is when loading.  Each section is then parsed the first time it's 
+ * used, so suites only pay for the parts of a big common.yaml they actually read.
+ * 
+ * Setting yaml.config.directory, or calling setConfigurationDirectory(), reads the files 
+ * from that directory on the filesystem instead of the classpath.  Either way the files 
+ * are decoded as UTF-8.
+ * 
+ * Setting yaml.config.disk.cache.directory, or calling setDiskCacheDirectory(), keeps 
+ * parsed files in that directory so other JVMs, e.g. forked test runs, don't have to 
+ * parse them again, see ConfigurationDiskCache.
+ * 
+ * Files are parsed by a YamlParserBackend, SnakeYAML's event parser unless 
+ * yaml.config.parser, or setParserBackend(), names another such as yamlbeans.  Every 
+ * backend gives the same tree.
+ * 
+ * If the files were compiled into Java at build time by the YamlConfigurationCompiler the 
+ * compiled class is used and nothing is parsed, unless they're read from a directory 
+ * set with yaml.config.directory or setConfigurationDirectory(). 
+ * 
+ * Setting yaml.config.hot.reload to true, or calling enableHotReload() before loading, 
+ * watches the files and picks up changes without restarting, see YamlConfigurationReloader.
+ * Environments read through an EnvironmentContext are watched too, from the first time 
+ * each is read.  stopHotReload() stops this configuration watching them.
+ * 
+ * Single values can be overridden without changing the files, e.g. for one CI job, with 
+ * system properties like cfg.webpage_client.base_url or environment variables like 
+ * YAML_CFG_WEBPAGE_CLIENT__BASE_URL.  They're read once when loading, see 
+ * ConfigurationOverrides.
+ * 
+ * Either file can pull in others listed under a top-level include key, so big 
+ * configurations can be split up, see ConfigurationIncludes.
+ * 
+ * The loaded configuration is checked against a schema of what the accessors expect, 
+ * see ConfigurationSchema, and a ConfigurationValidationException listing every problem 
+ * is thrown if it doesn't match.  Setting yaml.config.validate to false, or calling 
+ * disableValidation(), turns this off.  Lazily loaded configurations aren't checked 
+ * as that would mean parsing all of them.
+ * 
+ * Values can refer to other values with ${path/to/key}, e.g. ${webpage_client/base_url}, 
+ * these are replaced when the configuration is loaded, see ConfigurationInterpolator.
+ * 
+ * Parts of the configuration can also be read as typed interfaces, see ConfigView 
+ * and view(Class, String...).
+ * 
+ * Binding an EnvironmentContext to a thread overrides test.environment.config.file 
+ * for that thread only, so parallel scenarios can each use a different environment.
+ * 
+ * Loading and reading are counted in YamlConfigurationMetrics, which can also be 
+ * looked at over JMX.  Reads that find nothing are summarised by YamlConfigurationDiagnostics 
+ * rather than logged one at a time.
+ * 
  * NOTE: Rather annoyingly the Yaml parser returns an object which can be Map, ArrayList
  * or String.  We only really care about Map but we can't use generics here as Java forgets 
  * about types at runtime.  Marking the whole class to suppress warnings for ease.  It's still 
@@ -47,6 +127,13 @@ public class YamlConfiguration {
   
   public static final String COMMON_FILE_PROPERTY = "common.yaml.config.file";
   public static final String TEST_ENVIRONMENT_PROPERTY = "test.environment.config.file";
+  public static final String HOT_RELOAD_PROPERTY = "yaml.config.hot.reload";
+  public static final String PARALLEL_LOAD_PROPERTY = "yaml.config.parallel.load";
+  public static final String LAZY_LOAD_PROPERTY = "yaml.config.lazy.load";
+  public static final String CONFIG_DIRECTORY_PROPERTY = "yaml.config.directory";
+  public static final String DISK_CACHE_DIRECTORY_PROPERTY = "yaml.config.disk.cache.directory";
+  public static final String PARSER_PROPERTY = "yaml.config.parser";
+  public static final String VALIDATE_PROPERTY = "yaml.config.validate";
   
   public static final String DEFAULT_COMMON_FILE = "common";
   public static final String DEFAULT_ENVIRONMENT_FILE = "localhost";
@@ -61,6 +148,7 @@ public class YamlConfiguration {
   public static final String MESSAGES = "messages";
   public static final String ELEMENT_IDS = "element_ids";
   public static final String ELEMENT_GROUPS = "element_groups";
+  public static final String INCLUDE = "include";
   
   //
   // Second-level keys
@@ -79,107 +167,586 @@ public class YamlConfiguration {
   public static final String FORM_DATA = "form_data";
   
   
+  //
+  // Separates the keys when a path is written out, e.g. in diagnostics
+  //
+  public static final String PATH_SEPARATOR = "/";
+  
+  //
+  // Returned when a value is missing or of the wrong type, these are shared so 
+  // a miss doesn't allocate anything
+  //
+  private static final Map EMPTY_MAP = Collections.emptyMap();
+  private static final List EMPTY_LIST = Collections.emptyList();
+  private static final String EMPTY_STRING = "";
+  
+  
   /**
    * Holds all the configuration values read from the Yaml configuration files
    */
-  private Map yamlObjects; 
+  private volatile ConfigurationSnapshot snapshot; 
+  
+  private YamlConfigurationCache cache = YamlConfigurationCache.shared();
+  
+  private YamlConfigurationMetrics metrics = YamlConfigurationMetrics.shared();
+  
+  private YamlConfigurationDiagnostics diagnostics = YamlConfigurationDiagnostics.shared();
+  
+  private boolean hotReload = Boolean.getBoolean(HOT_RELOAD_PROPERTY);
+  
+  private boolean parallelLoad = Boolean.getBoolean(PARALLEL_LOAD_PROPERTY);
+  
+  private boolean lazyLoad = Boolean.getBoolean(LAZY_LOAD_PROPERTY);
+  
+  private boolean validate = !"false".equalsIgnoreCase(System.getProperty(VALIDATE_PROPERTY));
+  
+  /**
+   * When set the files are read from here rather than from the classpath
+   */
+  private Path configurationDirectory = getDirectoryFromSystemProperties(CONFIG_DIRECTORY_PROPERTY);
+  
+  /**
+   * When set parsed files are kept here for other JVMs, see ConfigurationDiskCache
+   */
+  private Path diskCacheDirectory = getDirectoryFromSystemProperties(DISK_CACHE_DIRECTORY_PROPERTY);
+  
+  private YamlParserBackend parser = YamlParserBackends.fromSystemProperties();
+  
+  /**
+   * The environment loaded by loadConfiguration(), null until then.  When a different 
+   * environment is bound to the calling thread its snapshot is read instead, from 
+   * environmentSnapshots.
+   */
+  private volatile String loadedEnvironment;
+  
+  /**
+   * Set by loadConfigurationAsync(), reads wait on it until the configuration is loaded
+   */
+  private volatile CompletableFuture<Map> pendingLoad;
+  
+  private final ConcurrentMap<String, ConfigurationSnapshot> environmentSnapshots = 
+      new ConcurrentHashMap<String, ConfigurationSnapshot>();
+  
+  /**
+   * When hot reload is on, the reloaders for the environments in environmentSnapshots, 
+   * these are read rather than the snapshots
+   */
+  private final ConcurrentMap<String, YamlConfigurationReloader> environmentReloaders = 
+      new ConcurrentHashMap<String, YamlConfigurationReloader>();
+  
+  /**
+   * Set when hot reload is on, the current snapshot is then read from here
+   */
+  private volatile YamlConfigurationReloader reloader;
   
   public YamlConfiguration() {
     LOGGER.debug("Constructor called");
   }
   
   public Map webpage_client() {
-    return readMapFromMap(yamlObjects, WEBPAGE_CLIENT);
+    return asMap(countedSnapshot(WEBPAGE_CLIENT).lookup(WEBPAGE_CLIENT), WEBPAGE_CLIENT, null, null);
   }
     
   public Map messages() {
-    return readMapFromMap(yamlObjects, MESSAGES);
+    return asMap(countedSnapshot(MESSAGES).lookup(MESSAGES), MESSAGES, null, null);
   }
   
   public Map screens() {
-    return readMapFromMap(yamlObjects, SCREENS);
+    return asMap(countedSnapshot(SCREENS).lookup(SCREENS), SCREENS, null, null);
   }
   
+  //
+  // The screen accessors read from the screen's record, only falling back to the 
+  // usual lookup when the value's missing so the miss is counted the same way
+  //
+  
   public Map screen_info(String screen_name) {
-    return readMapFromMap(screens(), screen_name);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.screen != null ? record.screen 
+        : asMap(currentSnapshot().lookup(SCREENS, screen_name), SCREENS, screen_name, null);
   }
   
   public String url_for(String screen_name) {
-    return readStringFromMap(screen_info(screen_name), URL);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.url != null ? record.url : lookupString(screen_name, URL);
   }
 
   public String title_for(String screen_name) {
-    return readStringFromMap(screen_info(screen_name), TITLE);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.title != null ? record.title : lookupString(screen_name, TITLE);
   }
 
   public List check_for_ids_for(String screen_name) {
-    return readListFromMap(screen_info(screen_name), CHECK_FOR_IDS);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.checkForIds != null ? record.checkForIds 
+        : lookupList(screen_name, CHECK_FOR_IDS);
   }
   
   public String get_here_by_for(String screen_name) {
-    return readStringFromMap(screen_info(screen_name), GET_HERE_BY);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.getHereBy != null ? record.getHereBy 
+        : lookupString(screen_name, GET_HERE_BY);
   }
   
   public List form_data_for(String screen_name) {
-    return readListFromMap(screen_info(screen_name), FORM_DATA);
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.formData != null ? record.formData 
+        : lookupList(screen_name, FORM_DATA);
+  }
+  
+  /**
+   * @return the base url and the screen's url joined together, worked out when the 
+   *         configuration was loaded
+   */
+  public String absolute_url_for(String screen_name) {
+    ScreenRecord record = readScreenRecord(screen_name);
+    return record != null && record.url != null ? record.absoluteUrl : lookupString(screen_name, URL);
+  }
+  
+  /**
+   * @return everything about the screen in one go, every value is empty if there's 
+   *         no such screen
+   */
+  public ScreenRecord screen_record(String screen_name) {
+    ScreenRecord record = readScreenRecord(screen_name);
+    if (record == null) {
+      metrics.recordMiss();
+      diagnostics.recordMiss(joinPath(SCREENS, screen_name), Map.class);
+      record = ScreenRecord.missing(screen_name);
+    }
+    return record;
+  }
+  
+  /**
+   * @return the records for all the screens, in the same order
+   */
+  public List<ScreenRecord> screen_records(String... screen_names) {
+    ScreenRecord[] records = new ScreenRecord[screen_names.length];
+    for (int index = 0; index < screen_names.length; index++) {
+      records[index] = screen_record(screen_names[index]);
+    }
+    return Collections.unmodifiableList(Arrays.asList(records));
   }
 
   public Map element_ids() {
-    return readMapFromMap(yamlObjects, ELEMENT_IDS);
+    return asMap(countedSnapshot(ELEMENT_IDS).lookup(ELEMENT_IDS), ELEMENT_IDS, null, null);
   }
 
   public String element_id(String element_key) {
-    return readStringFromMap(element_ids(), element_key);
+    ConfigurationSnapshot current = countedSnapshot(ELEMENT_IDS);
+    return readValidatedString(current, current.lookup(ELEMENT_IDS, element_key), ELEMENT_IDS, element_key, null);
   }
 
   public Map element_groups() {
-    return readMapFromMap(yamlObjects, ELEMENT_GROUPS);
+    return asMap(countedSnapshot(ELEMENT_GROUPS).lookup(ELEMENT_GROUPS), ELEMENT_GROUPS, null, null);
   }
   
+  /**
+   * @return the element keys in the group, read from the ElementGroupIndex
+   */
   public List element_group(String group_name) {
-    return readListFromMap(element_groups(), group_name);
+    ConfigurationSnapshot current = countedSnapshot(ELEMENT_GROUPS);
+    List keys = current.elementGroupIndex().keys(group_name);
+    return keys != null ? keys : asList(current.lookup(ELEMENT_GROUPS, group_name), ELEMENT_GROUPS, group_name, null);
+  }
+  
+  /**
+   * @return the element ids for every element key in the group, in the same order, 
+   *         worked out when the configuration was loaded
+   */
+  public List element_ids_for(String group_name) {
+    metrics.recordAccess(ELEMENT_GROUPS);
+    return currentSnapshot().elementGroupIndex().ids(group_name);
+  }
+  
+  /**
+   * @return the element ids for all the groups, one group after another
+   */
+  public List element_ids_for_groups(String... group_names) {
+    metrics.recordAccess(ELEMENT_GROUPS);
+    return currentSnapshot().elementGroupIndex().ids(group_names);
+  }
+  
+  /**
+   * @return 'group/key' for every key in an element group that isn't in element_ids, 
+   *         these are left out of element_ids_for()
+   */
+  public List<String> unresolved_element_keys() {
+    return currentSnapshot().elementGroupIndex().unresolvedKeys();
   }
   
   public String message(String message_key) {
-    return readStringFromMap(messages(), message_key);
+    ConfigurationSnapshot current = countedSnapshot(MESSAGES);
+    return readValidatedString(current, current.lookup(MESSAGES, message_key), MESSAGES, message_key, null);
+  }
+  
+  /**
+   * Format the message with MessageFormat, e.g. with
+   * 
+   *   not_registered: 'Customer {0} is not yet registered'
+   *   
+   * message("not_registered", "Rincewind") gives 'Customer Rincewind is not yet registered'. 
+   * Each message is only compiled once.  Apostrophes in words, e.g. it's, are kept as 
+   * they are, a pair of them quotes, e.g. '{0}', see MessageTemplate.
+   * 
+   * @return the formatted message, or empty if there's no such message
+   */
+  public String message(String message_key, Object... arguments) {
+    metrics.recordAccess(MESSAGES);
+    ConfigurationSnapshot current = currentSnapshot();
+    MessageTemplate template = current.messageTemplate(message_key);
+    return template == null ? asString(current.lookup(MESSAGES, message_key), MESSAGES, message_key, null) 
+        : template.format(arguments);
   }
     
   public String base_url() {
-    return readStringFromMap(webpage_client(), BASE_URL);
+    ConfigurationSnapshot current = countedSnapshot(WEBPAGE_CLIENT);
+    return readValidatedString(current, current.lookup(WEBPAGE_CLIENT, BASE_URL), WEBPAGE_CLIENT, BASE_URL, null);
   }
   
   public Map selenium() {
-    return readMapFromMap(webpage_client(), SELENIUM);
+    return asMap(countedSnapshot(WEBPAGE_CLIENT).lookup(WEBPAGE_CLIENT, SELENIUM), WEBPAGE_CLIENT, SELENIUM, null);
   }
   
   public String browser() {
-    return readStringFromMap(selenium(), BROWSER);
+    ConfigurationSnapshot current = countedSnapshot(WEBPAGE_CLIENT);
+    return readValidatedString(current, current.lookup(WEBPAGE_CLIENT, SELENIUM, BROWSER), 
+        WEBPAGE_CLIENT, SELENIUM, BROWSER);
   }
   
+  /**
+   * Read any value from the loaded configuration, each element of the path is 
+   * a key in the next nested map down.  For example
+   * 
+   *   get("screens", "User Details", "url")
+   * 
+   * @return the value, which may be a Map, List or String, or null if there's 
+   *         nothing at that path
+   */
+  public Object get(String... path) {
+    if (path.length == 0) {
+      return null;
+    }
+    ConfigurationSnapshot current = currentSnapshot();
+    recordPathAccess(current, path[0]);
+    return current.lookupPath(path);
+  }
+  
+  /**
+   * Read part of the configuration as a typed ConfigView, e.g.
+   * 
+   *   ScreenInfo userDetails = view(ScreenInfo.class, "screens", "User Details");
+   * 
+   * With no path the view is of the whole configuration.  Views are bound once per 
+   * loaded configuration and then shared, reading from them is just reading fields.
+   * 
+   * @return the view, reading from an empty map if there's no map at the path
+   */
+  public <T> T view(Class<T> viewType, String... path) {
+    ConfigurationSnapshot current = currentSnapshot();
+    if (path.length > 0) {
+      recordPathAccess(current, path[0]);
+    }
+    return current.view(viewType, path);
+  }
   
+  /**
+   * Join the keys into a single path, as shown in diagnostics
+   */
+  public static String joinPath(String... path) {
+    StringBuilder joined = new StringBuilder();
+    for (int index = 0; index < path.length; index++) {
+      if (index > 0) {
+        joined.append(PATH_SEPARATOR);
+      }
+      joined.append(path[index]);
+    }
+    return joined.toString();
+  }
   
   
   /**
    * Load the configuration in from the common.yaml and environment specific 
-   * files.  
+   * files.  If another instance has already loaded the same files the cached 
+   * snapshot is used instead.
    * 
-   * @return Map containing all of the loaded keys
+   * @return Map containing all of the loaded keys, this can't be modified
    * @throws IOException 
    */
   public Map loadConfiguration() throws IOException {
+    String commonFilename = getConfigurationKey(getCommonYamlFilename());
+    String environmentFilename = getConfigurationKey(getEnvironmentYamlFilename());
+    ConfigurationOverrides overrides = ConfigurationOverrides.fromSystem();
+    ConfigurationSnapshot loadedSnapshot = validate(
+        cache.get(commonFilename, environmentFilename, overrides.key(), lazyLoad, () -> loadSnapshot(overrides)));
+    if (hotReload) {
+      reloader = YamlConfigurationReloader.watch(this, cache, getCommonYamlFilename(), 
+          getEnvironmentYamlFilename(), loadedSnapshot);
+      if (reloader != null) {
+        loadedSnapshot = reloader.current();
+      }
+    }
+    snapshot = loadedSnapshot;
+    loadedEnvironment = getEnvironmentName();
+    return loadedSnapshot.tree();
+  }
+  
+  /**
+   * Load the configuration as loadConfiguration() does but in the background, on a 
+   * virtual thread if the JVM has them.  The files are the ones this thread would 
+   * load, including any EnvironmentContext bound to it.
+   * 
+   * Anything read from this configuration before the load finishes waits for it, 
+   * and throws an UncheckedIOException if it failed.
+   * 
+   * @return completes with the loaded keys, or with the IOException 
+   *         loadConfiguration() would have thrown, see awaitConfiguration()
+   */
+  public CompletableFuture<Map> loadConfigurationAsync() {
+    String environment = EnvironmentContext.currentEnvironment();
+    CompletableFuture<Map> load = ConfigurationExecutors.supplyAsync(() -> {
+      if (environment == null) {
+        return loadConfiguration();
+      }
+      try (EnvironmentContext context = EnvironmentContext.bind(environment)) {
+        return loadConfiguration();
+      }
+    });
+    pendingLoad = load;
+    return load;
+  }
+  
+  /**
+   * Wait for loadConfigurationAsync() to finish
+   * 
+   * @return the loaded keys, or null if there's no load in progress or done
+   * @throws IOException the same as loadConfiguration() would have
+   */
+  public Map awaitConfiguration() throws IOException {
+    CompletableFuture<Map> load = pendingLoad;
+    return load == null ? null : ConfigurationExecutors.await(load);
+  }
+  
+  /**
+   * Watch the configuration files for changes once they're loaded, this needs to 
+   * be called before loadConfiguration()
+   */
+  public void enableHotReload() {
+    hotReload = true;
+  }
+  
+  /**
+   * Stop watching the files, this configuration keeps reading the last configuration 
+   * loaded.  Other configurations reading the same files carry on watching them, the 
+   * reloader itself only stops when none are left.
+   */
+  public void stopHotReload() {
+    hotReload = false;
+    YamlConfigurationReloader currentReloader = reloader;
+    if (currentReloader != null) {
+      snapshot = currentReloader.current();
+      reloader = null;
+      YamlConfigurationReloader.release(currentReloader, this);
+    }
+    for (Map.Entry<String, YamlConfigurationReloader> entry : environmentReloaders.entrySet()) {
+      environmentSnapshots.put(entry.getKey(), entry.getValue().current());
+      environmentReloaders.remove(entry.getKey());
+      YamlConfigurationReloader.release(entry.getValue(), this);
+    }
+  }
+  
+  /**
+   * @return the reloader watching this configuration's files, or null if hot 
+   *         reload isn't on or neither file can be watched
+   */
+  public YamlConfigurationReloader reloader() {
+    return reloader;
+  }
+  
+  
+  /**
+   * @return a configuration that's already loaded with the given snapshot
+   */
+  static YamlConfiguration fromSnapshot(ConfigurationSnapshot snapshot) {
+    YamlConfiguration configuration = new YamlConfiguration();
+    configuration.snapshot = snapshot;
+    return configuration;
+  }
+  
+  
+  ConfigurationSnapshot loadSnapshot() throws IOException {
+    return loadSnapshot(ConfigurationOverrides.fromSystem());
+  }
+  
+  private ConfigurationSnapshot loadSnapshot(ConfigurationOverrides overrides) throws IOException {
+    ConfigurationSnapshot compiledSnapshot = compiledSnapshot(overrides);
+    if (compiledSnapshot != null) {
+      return compiledSnapshot;
+    }
     LOGGER.debug("Loading Yaml configuration files ...");
-    yamlObjects = loadYaml(getCommonYamlFileResourceStream());
-    yamlObjects.putAll(loadYaml(getEnvironmentYamlFileResourceStream()));
+    Map commonYaml;
+    Map environmentYaml;
+    if (parallelLoad) {
+      List<Map> layers = ConfigurationExecutors.invokeAll(Arrays.<ConfigurationExecutors.IoTask<Map>>asList(
+          this::loadCommonLayer, this::loadEnvironmentLayer));
+      commonYaml = layers.get(0);
+      environmentYaml = layers.get(1);
+    } else {
+      commonYaml = loadCommonLayer();
+      environmentYaml = loadEnvironmentLayer();
+    }
     LOGGER.debug("... loaded");
-    return yamlObjects;
+    ConfigurationSnapshot loadedSnapshot = ConfigurationSnapshot.of(commonYaml, environmentYaml, overrides);
+    metrics.recordFootprint(loadedSnapshot.parsedFootprint(), loadedSnapshot.frozenFootprint());
+    return loadedSnapshot;
+  }
+  
+  /**
+   * @return the snapshot for the files this configuration would load if they were 
+   *         compiled by the YamlConfigurationCompiler, otherwise null.  Files read 
+   *         from a directory are never taken from a compiled class, they may have 
+   *         changed since it was compiled.
+   */
+  ConfigurationSnapshot compiledSnapshot(ConfigurationOverrides overrides) throws IOException {
+    if (configurationDirectory != null) {
+      return null;
+    }
+    CompiledConfiguration compiled = 
+        CompiledConfiguration.find(getCommonYamlFilename(), getEnvironmentYamlFilename());
+    if (compiled == null) {
+      return null;
+    }
+    LOGGER.debug("Using configuration compiled into {}", compiled.getClass().getName());
+    return compiled.toSnapshot().withOverrides(overrides);
+  }
+  
+  /**
+   * Only parse each top-level section, e.g. screens, the first time something in it 
+   * is read rather than everything up front.  This needs to be called before 
+   * loadConfiguration()
+   */
+  public void enableLazyLoading() {
+    lazyLoad = true;
+  }
+  
+  /**
+   * @return whether sections are only parsed when first read, see enableLazyLoading()
+   */
+  boolean isLazyLoading() {
+    return lazyLoad;
+  }
+  
+  /**
+   * @return everything other than the files and overrides that changes what loading 
+   *         gives, configurations with the same settings load the same way
+   */
+  String loadingSettings() {
+    return getClass().getName() + "|" + parser.name() + "|" + validate + "|" + lazyLoad;
+  }
+  
+  /**
+   * Don't check the configuration against the ConfigurationSchema when loading it, 
+   * this needs to be called before loadConfiguration()
+   */
+  public void disableValidation() {
+    validate = false;
+  }
+  
+  /**
+   * Check the snapshot against the ConfigurationSchema unless that's turned off, 
+   * it's lazy or it's already been checked
+   * 
+   * @return the validated copy of the snapshot if it's been checked, now or before, 
+   *         otherwise the snapshot
+   * @throws ConfigurationValidationException if it doesn't match
+   */
+  ConfigurationSnapshot validate(ConfigurationSnapshot loadedSnapshot) throws ConfigurationValidationException {
+    ConfigurationSnapshot validatedSnapshot = loadedSnapshot.validatedCopy();
+    if (validatedSnapshot != null) {
+      return validatedSnapshot;
+    }
+    if (validate && !(loadedSnapshot.tree() instanceof LazyConfigurationMap)) {
+      ConfigurationSchema.standard().validate(loadedSnapshot.tree(), 
+          "from '" + getCommonYamlFilename() + "' and '" + getEnvironmentYamlFilename() + "'");
+      return loadedSnapshot.validated();
+    }
+    return loadedSnapshot;
+  }
+  
+  /**
+   * Open and parse the common and environment files at the same time rather than 
+   * one after the other, this needs to be called before loadConfiguration()
+   */
+  public void enableParallelLoading() {
+    parallelLoad = true;
+  }
+  
+  /**
+   * Read the files from the given directory rather than the classpath, or any class 
+   * they were compiled into.  This needs to be called before loadConfiguration()
+   */
+  public void setConfigurationDirectory(Path directory) {
+    configurationDirectory = directory;
+  }
+  
+  /**
+   * Keep parsed files in the given directory, e.g. under target/, so later JVMs 
+   * read them from there rather than parsing the files again.  This needs to be 
+   * called before loadConfiguration()
+   */
+  public void setDiskCacheDirectory(Path directory) {
+    diskCacheDirectory = directory;
+  }
+  
+  /**
+   * Parse the files with the named YamlParserBackend rather than the default, this 
+   * needs to be called before loadConfiguration().  Parsed files are cached whichever 
+   * backend parsed them, they all give the same tree.
+   * 
+   * @throws IllegalArgumentException if there's no backend with that name
+   */
+  public void setParserBackend(String name) {
+    parser = YamlParserBackends.named(name);
+  }
+  
+  /**
+   * Use a different cache to the shared one, mostly useful for testing.
+   */
+  void setCache(YamlConfigurationCache cache) {
+    this.cache = cache;
+  }
+  
+  /**
+   * Put the snapshot in the cache for the files this configuration would load, so 
+   * loadConfiguration() finds it there
+   */
+  void cacheSnapshot(ConfigurationSnapshot loadedSnapshot) {
+    cache.put(getConfigurationKey(getCommonYamlFilename()), getConfigurationKey(getEnvironmentYamlFilename()), 
+        lazyLoad, loadedSnapshot);
+  }
+  
+  /**
+   * Record to different metrics than the shared ones, mostly useful for testing.
+   */
+  void setMetrics(YamlConfigurationMetrics metrics) {
+    this.metrics = metrics;
+  }
+  
+  /**
+   * Record to different diagnostics than the shared ones, mostly useful for testing.
+   */
+  void setDiagnostics(YamlConfigurationDiagnostics diagnostics) {
+    this.diagnostics = diagnostics;
   }
   
   
   protected Map loadYaml(InputStream yamlInputStream) throws IOException {
+    return toYamlMap(load(yamlInputStream));
+  }
+  
+  private Map toYamlMap(Object loadResult) {
     Map result = new HashMap<String, Object>();
-    Object loadResult = null;
     try {
-      loadResult = load(yamlInputStream);
       if (loadResult != null) { 
         result = (Map)loadResult;
       } else {
@@ -192,6 +759,117 @@ public class YamlConfiguration {
   }
   
   
+  Map loadCommonLayer() throws IOException {
+    return loadLayer(getCommonYamlFilename(), this::getCommonYamlFileResourceStream);
+  }
+  
+  Map loadEnvironmentLayer() throws IOException {
+    return loadLayer(getEnvironmentYamlFilename(), this::getEnvironmentYamlFileResourceStream);
+  }
+
+  /**
+   * Load any one file the same way as the common and environment files, including
+   * everything it includes, e.g. when it's reloaded
+   */
+  Map loadLayer(String filename) throws IOException {
+    return loadLayer(filename, () -> openYamlFileResource(filename));
+  }
+
+  /**
+   * Read the whole file and then parse it, timing each, from the configuration 
+   * directory if there is one otherwise from the given classpath stream
+   */
+  private Map loadLayer(String filename, Supplier<InputStream> classpathStream) throws IOException {
+    String file = getConfigurationKey(filename);
+    long started = System.nanoTime();
+    Path yamlFile = getConfigurationFile(filename);
+    byte[] yaml = yamlFile == null ? readClasspathFile(classpathStream.get()) : readFile(yamlFile);
+    if (yaml == null) {
+      return loadYaml(null);
+    }
+    long read = System.nanoTime();
+    Map layer;
+    if (lazyLoad) {
+      layer = loadLazyLayer(file, yaml);
+    } else {
+      layer = parseYaml(filename, yaml);
+    }
+    long parsed = System.nanoTime();
+    metrics.recordLoad(file, yaml.length, parsed - started, parsed - read);
+    return new ConfigurationIncludes(this).resolve(filename, layer);
+  }
+  
+  /**
+   * @return the whole of the file, from the configuration directory if there is one 
+   *         otherwise the classpath, or null if it isn't there
+   */
+  byte[] readConfigurationFile(String filename) throws IOException {
+    Path yamlFile = getConfigurationFile(filename);
+    return yamlFile == null ? readClasspathFile(openYamlFileResource(filename)) : readFile(yamlFile);
+  }
+  
+  /**
+   * Parse the whole of a file read with readConfigurationFile()
+   */
+  Map parseConfigurationFile(String filename, byte[] yaml) throws IOException {
+    long started = System.nanoTime();
+    Map parsed = parseYaml(filename, yaml);
+    long elapsed = System.nanoTime() - started;
+    metrics.recordLoad(getConfigurationKey(filename), yaml.length, elapsed, elapsed);
+    return parsed;
+  }
+  
+  /**
+   * Parse the whole file, or read it from the disk cache if it's on and the file 
+   * has been parsed before
+   */
+  private Map parseYaml(String filename, byte[] yaml) throws IOException {
+    Path cacheDirectory = diskCacheDirectory;
+    ConfigurationDiskCache diskCache = cacheDirectory == null ? null : new ConfigurationDiskCache(cacheDirectory);
+    String cacheKey = diskCache == null ? null : ConfigurationDiskCache.key(yaml);
+    if (diskCache != null) {
+      Map cached = diskCache.read(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    Map parsed = getConfigurationFile(filename) == null ? loadYaml(new ByteArrayInputStream(yaml)) 
+        : toYamlMap(readYamlFromString(ConfigurationResources.decodeUtf8(yaml)));
+    if (diskCache != null) {
+      diskCache.write(cacheKey, parsed);
+    }
+    return parsed;
+  }
+  
+  private byte[] readClasspathFile(InputStream yamlInputStream) throws IOException {
+    return yamlInputStream == null ? null : readAllBytesAndCloseStream(yamlInputStream);
+  }
+  
+  private byte[] readFile(Path yamlFile) throws IOException {
+    if (!Files.isRegularFile(yamlFile)) {
+      LOGGER.debug("No file '{}'", yamlFile);
+      return null;
+    }
+    return ConfigurationResources.readBytes(yamlFile);
+  }
+  
+  private Map loadLazyLayer(String file, byte[] yaml) throws IOException {
+    Map lazyYaml = LazyConfigurationMap.scan(yaml, 
+        (sectionYaml, start, end) -> loadSection(file, sectionYaml, start, end));
+    if (lazyYaml == null) {
+      LOGGER.debug("Couldn't split the file into sections, parsing all of it");
+      lazyYaml = loadYaml(new ByteArrayInputStream(yaml));
+    }
+    return lazyYaml;
+  }
+  
+  private Object loadSection(String file, byte[] yaml, int start, int end) throws IOException {
+    long started = System.nanoTime();
+    Object section = load(new ByteArrayInputStream(yaml, start, end - start));
+    metrics.recordParse(file, System.nanoTime() - started);
+    return section;
+  }
+  
   protected Object load(InputStream yamlInputStream) throws IOException {
     Object yamlResult = null;
     if (yamlInputStream != null) {
@@ -201,20 +879,77 @@ public class YamlConfiguration {
   }
     
   
+  /**
+   * @return where the given file is, in the configuration directory if there is 
+   *         one otherwise on the classpath, or null if it doesn't exist
+   */
+  protected URL getYamlFileResource(String filename) {
+    Path file = getConfigurationFile(filename);
+    if (file == null) {
+      return ConfigurationResources.classpathResource(this.getClass(), filename);
+    }
+    try {
+      return Files.isRegularFile(file) ? file.toUri().toURL() : null;
+    } catch (MalformedURLException mue) {
+      LOGGER.debug("Couldn't convert '{}' to a URL", file);
+      return null;
+    }
+  }
+  
   protected InputStream getCommonYamlFileResourceStream() {
     String filename = getCommonYamlFilename();
     LOGGER.debug("Getting common input stream for file '{}'", filename);
-    return this.getClass().getResourceAsStream(filename); 
+    return openYamlFileResource(filename); 
   }
   
   protected InputStream getEnvironmentYamlFileResourceStream() {
     String filename = getEnvironmentYamlFilename();
     LOGGER.debug("Getting environment input stream for file '{} '", filename);
-    return this.getClass().getResourceAsStream(filename); 
+    return openYamlFileResource(filename); 
+  }
+  
+  private InputStream openYamlFileResource(String filename) {
+    URL resource = getYamlFileResource(filename);
+    InputStream stream = null;
+    if (resource != null) {
+      try {
+        stream = resource.openStream();
+      } catch (IOException ie) {
+        LOGGER.debug("Failed to open '{}', exception: {}", resource, ie);
+      }
+    }
+    return stream;
+  }
+  
+  /**
+   * @return the file in the configuration directory, or null if the files are 
+   *         on the classpath
+   */
+  private Path getConfigurationFile(String filename) {
+    Path directory = configurationDirectory;
+    return directory == null ? null : directory.resolve(filename.substring(1));
+  }
+  
+  /**
+   * @return what the file is cached under, the filename for the classpath or the 
+   *         full path when there's a configuration directory
+   */
+  String getConfigurationKey(String filename) {
+    Path file = getConfigurationFile(filename);
+    return file == null ? filename : file.toAbsolutePath().toString();
   }
   
   protected String getEnvironmentYamlFilename() {
-    return getYamlFilenameFromSystemProperties(TEST_ENVIRONMENT_PROPERTY, DEFAULT_ENVIRONMENT_FILE);
+    return "/" + getEnvironmentName() + FILE_EXTENSION;
+  }
+  
+  /**
+   * @return the environment bound to this thread, otherwise the one in the system property
+   */
+  private String getEnvironmentName() {
+    String environment = EnvironmentContext.currentEnvironment();
+    return environment != null ? environment 
+        : String.valueOf(System.getProperties().getOrDefault(TEST_ENVIRONMENT_PROPERTY, DEFAULT_ENVIRONMENT_FILE));
   }
   
   protected String getCommonYamlFilename() {
@@ -223,43 +958,178 @@ public class YamlConfiguration {
 
   
   protected Map readMapFromMap(Map mapToReadFrom, String keyToRead) {
-    Map resultMap = new HashMap();
-    Object resultObject = mapToReadFrom.get(keyToRead);
+    return asMap(mapToReadFrom.get(keyToRead), keyToRead);
+  }
+  
+  protected String readStringFromMap(Map mapToReadFrom, String keyToRead) {
+    return asString(mapToReadFrom.get(keyToRead), keyToRead);
+  }
+  
+  protected List readListFromMap(Map mapToReadFrom, String keyToRead) {
+    return asList(mapToReadFrom.get(keyToRead), keyToRead);
+  }
+  
+  /**
+   * @return the snapshot to read from, having counted a read of the section
+   */
+  private ConfigurationSnapshot countedSnapshot(String section) {
+    metrics.recordAccess(section);
+    return currentSnapshot();
+  }
+  
+  //
+  // Read a value from a screen without counting the access, for when the screen 
+  // record has already counted it
+  //
+  
+  private String lookupString(String screen_name, String key) {
+    return asString(currentSnapshot().lookup(SCREENS, screen_name, key), SCREENS, screen_name, key);
+  }
+  
+  private List lookupList(String screen_name, String key) {
+    return asList(currentSnapshot().lookup(SCREENS, screen_name, key), SCREENS, screen_name, key);
+  }
+  
+  /**
+   * For paths the ConfigurationSchema says hold a single value, once the snapshot has 
+   * been validated anything found there is known to be a string
+   */
+  private String readValidatedString(ConfigurationSnapshot current, Object value, 
+      String section, String key, String subkey) {
+    return value != null && current.isValidated() ? (String)value : asString(value, section, key, subkey);
+  }
+  
+  /**
+   * The section comes from the caller, only the configuration's own top-level keys 
+   * get a counter of their own
+   */
+  private void recordPathAccess(ConfigurationSnapshot current, String section) {
+    metrics.recordAccess(current.tree().containsKey(section) ? section : YamlConfigurationMetrics.OTHER_SECTION);
+  }
+  
+  private ScreenRecord readScreenRecord(String screen_name) {
+    metrics.recordAccess(SCREENS);
+    return currentSnapshot().screenRecord(screen_name);
+  }
+  
+  private ConfigurationSnapshot currentSnapshot() {
+    String environment = EnvironmentContext.currentEnvironment();
+    String loaded = loadedEnvironment;
+    if (loaded == null && pendingLoad != null) {
+      awaitPendingLoad();
+      loaded = loadedEnvironment;
+    }
+    if (environment != null && loaded != null && !environment.equals(loaded)) {
+      return environmentSnapshot(environment);
+    }
+    YamlConfigurationReloader currentReloader = reloader;
+    return currentReloader == null ? snapshot : currentReloader.current();
+  }
+  
+  private void awaitPendingLoad() {
+    try {
+      awaitConfiguration();
+    } catch (IOException ie) {
+      throw new UncheckedIOException("Failed to load configuration", ie);
+    }
+  }
+  
+  /**
+   * @return the snapshot for an environment bound to this thread that isn't the one 
+   *         this instance loaded, loading it the first time it's asked for
+   */
+  private ConfigurationSnapshot environmentSnapshot(String environment) {
+    YamlConfigurationReloader environmentReloader = environmentReloaders.get(environment);
+    if (environmentReloader != null) {
+      return environmentReloader.current();
+    }
+    ConfigurationSnapshot environmentSnapshot = environmentSnapshots.get(environment);
+    if (environmentSnapshot == null) {
+      try {
+        ConfigurationOverrides overrides = ConfigurationOverrides.fromSystem();
+        environmentSnapshot = validate(cache.get(getConfigurationKey(getCommonYamlFilename()), 
+            getConfigurationKey(getEnvironmentYamlFilename()), overrides.key(), lazyLoad, 
+            () -> loadSnapshot(overrides)));
+        if (hotReload) {
+          environmentReloader = YamlConfigurationReloader.watch(this, cache, getCommonYamlFilename(), 
+              getEnvironmentYamlFilename(), environmentSnapshot);
+        }
+      } catch (IOException ie) {
+        throw new UncheckedIOException("Failed to load configuration for environment '" + environment + "'", ie);
+      }
+      if (environmentReloader != null) {
+        YamlConfigurationReloader existing = environmentReloaders.putIfAbsent(environment, environmentReloader);
+        return existing != null ? existing.current() : environmentReloader.current();
+      }
+      ConfigurationSnapshot existing = environmentSnapshots.putIfAbsent(environment, environmentSnapshot);
+      if (existing != null) {
+        environmentSnapshot = existing;
+      }
+    }
+    return environmentSnapshot;
+  }
+  
+  private Map asMap(Object resultObject, String keyRead) {
+    Map resultMap = EMPTY_MAP;
     if (resultObject instanceof Map) {
       resultMap = (Map)resultObject;
     } else if (resultObject !=null ){
-      LOGGER.debug("Couldn't convert to map for key '{}', type was '{}'", 
-          keyToRead, resultObject.getClass().getName());
+      metrics.recordTypeMismatch();
+      diagnostics.recordTypeMismatch(keyRead, Map.class, resultObject.getClass());
     } else {
-      LOGGER.debug("No value found for key '{}'", keyToRead);
+      metrics.recordMiss();
+      diagnostics.recordMiss(keyRead, Map.class);
     }
     return resultMap;
   }
   
-  protected String readStringFromMap(Map mapToReadFrom, String keyToRead) {
-    String resultString = "";
-    Object resultObject = mapToReadFrom.get(keyToRead);
+  private String asString(Object resultObject, String keyRead) {
+    String resultString = EMPTY_STRING;
     if (resultObject instanceof String) {
       resultString = (String)resultObject;
     } else if (resultObject !=null ){
-      LOGGER.debug("Couldn't convert to string for key '{}', type was '{}'", 
-          keyToRead, resultObject.getClass().getName());
+      metrics.recordTypeMismatch();
+      diagnostics.recordTypeMismatch(keyRead, String.class, resultObject.getClass());
     } else {
-      LOGGER.debug("No value found for key '{}'", keyToRead);
+      metrics.recordMiss();
+      diagnostics.recordMiss(keyRead, String.class);
     }
     return resultString;
   }
   
-  protected List readListFromMap(Map mapToReadFrom, String keyToRead) {
-    List resultList = new ArrayList();
-    Object resultObject = mapToReadFrom.get(keyToRead);
+  //
+  // As below for values looked up key by key, the keys are only joined into a path 
+  // for the diagnostics when the value is missing or of the wrong type, a subkey 
+  // or key of null means the path stops before it
+  //
+  
+  private Map asMap(Object resultObject, String section, String key, String subkey) {
+    return resultObject instanceof Map ? (Map)resultObject : asMap(resultObject, pathOf(section, key, subkey));
+  }
+  
+  private String asString(Object resultObject, String section, String key, String subkey) {
+    return resultObject instanceof String ? (String)resultObject 
+        : asString(resultObject, pathOf(section, key, subkey));
+  }
+  
+  private List asList(Object resultObject, String section, String key, String subkey) {
+    return resultObject instanceof List ? (List)resultObject : asList(resultObject, pathOf(section, key, subkey));
+  }
+  
+  private static String pathOf(String section, String key, String subkey) {
+    return key == null ? section : subkey == null ? joinPath(section, key) : joinPath(section, key, subkey);
+  }
+  
+  private List asList(Object resultObject, String keyRead) {
+    List resultList = EMPTY_LIST;
     if (resultObject instanceof List) {
       resultList = (List)resultObject;
     } else if (resultObject !=null ){
-      LOGGER.debug("Couldn't convert to string for key '{}', type was '{}'", 
-          keyToRead, resultObject.getClass().getName());
+      metrics.recordTypeMismatch();
+      diagnostics.recordTypeMismatch(keyRead, List.class, resultObject.getClass());
     } else {
-      LOGGER.debug("No value found for key '{}'", keyToRead);
+      metrics.recordMiss();
+      diagnostics.recordMiss(keyRead, List.class);
     }
     return resultList;
   }
@@ -275,9 +1145,26 @@ public class YamlConfiguration {
     }
   }
   
-  private Object readYamlFromInputStream(InputStream yamlInputStream) throws YamlException {
-    YamlReader yamlReader = new YamlReader(new InputStreamReader(yamlInputStream));
-    return yamlReader.read();
+  private Object readYamlFromInputStream(InputStream yamlInputStream) throws IOException {
+    return parser.parse(new BufferedReader(new InputStreamReader(yamlInputStream, StandardCharsets.UTF_8)));
+  }
+  
+  private Object readYamlFromString(String yaml) throws IOException {
+    return parser.parse(new StringReader(yaml));
+  }
+  
+  private byte[] readAllBytesAndCloseStream(InputStream yamlInputStream) throws IOException {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = yamlInputStream.read(buffer)) != -1) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    } finally {
+      closeStream(yamlInputStream);
+    }
   }
   
   private void closeStream(InputStream inputStream) {
@@ -288,6 +1175,11 @@ public class YamlConfiguration {
     } 
   }
 
+  private Path getDirectoryFromSystemProperties(String key) {
+    String directory = System.getProperty(key);
+    return directory == null ? null : Paths.get(directory);
+  }
+  
   private String getYamlFilenameFromSystemProperties(String key, String defaultValue) {
     return "/" + System.getProperties().getOrDefault(key, defaultValue) + FILE_EXTENSION;
   }
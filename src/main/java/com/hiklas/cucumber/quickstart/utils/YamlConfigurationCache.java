@@ -0,0 +1,175 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JVM-wide cache of parsed configuration snapshots.
+ *
+ * Cucumber creates a fresh set of step definitions, and so usually a fresh
+ * YamlConfiguration, for every scenario.  Without this cache each of those
+ * instances would open and parse the same two files again.  Snapshots are keyed
+ * by the resolved common and environment filenames, i.e. the values returned by
+ * getCommonYamlFilename() and getEnvironmentYamlFilename(), by any overridden 
+ * values, see ConfigurationOverrides, and by whether they were loaded lazily, so 
+ * eager instances never get a lazy snapshot or the other way round.
+ *
+ * The cache never expires anything on its own.  If the files change while the JVM
+ * is running call invalidate() or invalidateAll() and the next loadConfiguration()
+ * will parse them again.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public final class YamlConfigurationCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationCache.class);
+
+  private static final YamlConfigurationCache SHARED = new YamlConfigurationCache();
+
+  private final ConcurrentMap<CacheKey, ConfigurationSnapshot> snapshots =
+      new ConcurrentHashMap<CacheKey, ConfigurationSnapshot>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+
+  YamlConfigurationCache() {
+  }
+
+  /**
+   * @return the cache shared by every YamlConfiguration in this JVM
+   */
+  public static YamlConfigurationCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Drop the snapshots for the given pair of files, whatever they were overridden with.
+   *
+   * @param commonFilename as returned by getCommonYamlFilename()
+   * @param environmentFilename as returned by getEnvironmentYamlFilename()
+   */
+  public void invalidate(String commonFilename, String environmentFilename) {
+    LOGGER.debug("Invalidating snapshot for '{}' and '{}'", commonFilename, environmentFilename);
+    snapshots.keySet().removeIf(key -> key.isFor(commonFilename, environmentFilename));
+  }
+
+  /**
+   * Drop every cached snapshot
+   */
+  public void invalidateAll() {
+    LOGGER.debug("Invalidating all snapshots");
+    snapshots.clear();
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public int size() {
+    return snapshots.size();
+  }
+
+  /**
+   * Return the snapshot for the given files, loading it if it isn't cached yet.
+   * Two threads missing at the same time may both load, only the first one to
+   * finish is kept.
+   */
+  ConfigurationSnapshot get(String commonFilename, String environmentFilename, boolean lazy,
+      SnapshotLoader loader) throws IOException {
+    return get(commonFilename, environmentFilename, ConfigurationOverrides.NONE.key(), lazy, loader);
+  }
+
+  /**
+   * As above for the files with the given overrides applied
+   * 
+   * @param overridesKey as returned by ConfigurationOverrides.key()
+   */
+  ConfigurationSnapshot get(String commonFilename, String environmentFilename, String overridesKey,
+      boolean lazy, SnapshotLoader loader) throws IOException {
+    CacheKey key = new CacheKey(commonFilename, environmentFilename, overridesKey, lazy);
+    ConfigurationSnapshot snapshot = snapshots.get(key);
+    if (snapshot != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+      LOGGER.debug("No cached snapshot for '{}' and '{}'", commonFilename, environmentFilename);
+      ConfigurationSnapshot loaded = loader.load();
+      snapshot = snapshots.putIfAbsent(key, loaded);
+      if (snapshot == null) {
+        snapshot = loaded;
+      }
+    }
+    return snapshot;
+  }
+
+
+  /**
+   * Replace the snapshot for the given files and the snapshot's overrides, used when 
+   * they are reloaded
+   * 
+   * @param lazy whether the snapshot was loaded lazily
+   */
+  void put(String commonFilename, String environmentFilename, boolean lazy, ConfigurationSnapshot snapshot) {
+    snapshots.put(new CacheKey(commonFilename, environmentFilename, snapshot.overrides().key(), lazy), snapshot);
+  }
+
+
+  /**
+   * Loads a snapshot when there isn't one in the cache
+   */
+  interface SnapshotLoader {
+    ConfigurationSnapshot load() throws IOException;
+  }
+
+
+  private static final class CacheKey {
+
+    private final String commonFilename;
+    private final String environmentFilename;
+    private final String overridesKey;
+    private final boolean lazy;
+
+    CacheKey(String commonFilename, String environmentFilename, String overridesKey, boolean lazy) {
+      this.commonFilename = commonFilename;
+      this.environmentFilename = environmentFilename;
+      this.overridesKey = overridesKey;
+      this.lazy = lazy;
+    }
+
+    boolean isFor(String otherCommonFilename, String otherEnvironmentFilename) {
+      return commonFilename.equals(otherCommonFilename) && environmentFilename.equals(otherEnvironmentFilename);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey otherKey = (CacheKey)other;
+      return commonFilename.equals(otherKey.commonFilename)
+          && environmentFilename.equals(otherKey.environmentFilename)
+          && overridesKey.equals(otherKey.overridesKey)
+          && lazy == otherKey.lazy;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 31 * (31 * commonFilename.hashCode() + environmentFilename.hashCode()) + overridesKey.hashCode();
+      return 31 * hash + (lazy ? 1 : 0);
+    }
+  }
+}
@@ -0,0 +1,363 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles Yaml configuration files into Java source at build time.
+ *
+ * For each environment a subclass of CompiledConfiguration is written holding the
+ * common and environment trees, and the merged tree with its references resolved,
+ * as constants.  They're built straight into CompactMap and CompactList so the
+ * snapshot made from them at runtime has nothing left to freeze or interpolate.  A
+ * META-INF/services entry is written too so YamlConfiguration finds the class at
+ * runtime.  Each generated class also has
+ *
+ *   BASE_URL and BROWSER - the merged values as String constants
+ *   configuration() - a YamlConfiguration with every accessor, e.g. url_for,
+ *                     element_id, message, backed by the compiled trees
+ *
+ * This is run from Maven with the exec plugin, see the compile-yaml profile in the
+ * pom.  The arguments are
+ *
+ *   sourceDirectory resourceDirectory packageName yamlDirectory common environment...
+ *
+ * where common and environment are names without the .yaml suffix, as they'd be
+ * given in the common.yaml.config.file and test.environment.config.file properties.
+ *
+ * Big parts of the trees are split across several methods, by how many nodes each
+ * builds rather than how big any one map is, so the generated code stays inside the
+ * JVM's 64KB limit on method size however the trees are shaped.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+public class YamlConfigurationCompiler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationCompiler.class);
+
+  public static final String SERVICES_FILE = "META-INF/services/" + CompiledConfiguration.class.getName();
+
+  /**
+   * Maps and lists that would build more of the tree than this in line are built by
+   * helper methods instead, each adding about this many nodes.  A node is a map
+   * entry, a list item or a single value and compiles to a few dozen bytes at most.
+   */
+  static final int NODES_PER_METHOD = 500;
+
+  private final String packageName;
+  private final Path yamlDirectory;
+
+
+  public YamlConfigurationCompiler(String packageName, Path yamlDirectory) {
+    this.packageName = packageName;
+    this.yamlDirectory = yamlDirectory;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 6) {
+      throw new IllegalArgumentException("Usage: YamlConfigurationCompiler sourceDirectory " +
+          "resourceDirectory packageName yamlDirectory common environment...");
+    }
+    Path sourceDirectory = Paths.get(args[0]);
+    Path resourceDirectory = Paths.get(args[1]);
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(args[2], Paths.get(args[3]));
+    List<String> classNames = new ArrayList<String>();
+    for (int index = 5; index < args.length; index++) {
+      classNames.add(compiler.compileTo(sourceDirectory, args[4], args[index]));
+    }
+    compiler.writeServicesFile(resourceDirectory, classNames);
+  }
+
+  /**
+   * Write the source for one environment under the source directory
+   *
+   * @return the fully qualified name of the generated class
+   */
+  public String compileTo(Path sourceDirectory, String common, String environment) throws IOException {
+    String className = className(common, environment);
+    Path packageDirectory = sourceDirectory.resolve(packageName.replace('.', '/'));
+    Files.createDirectories(packageDirectory);
+    Path sourceFile = packageDirectory.resolve(className + ".java");
+    LOGGER.debug("Compiling '{}' and '{}' into '{}'", common, environment, sourceFile);
+    Files.write(sourceFile, compile(common, environment).getBytes(StandardCharsets.UTF_8));
+    return packageName + "." + className;
+  }
+
+  /**
+   * @return the Java source for the given common and environment files
+   */
+  public String compile(String common, String environment) throws IOException {
+    ConfigurationSnapshot snapshot = ConfigurationSnapshot.of(loadLayer(common), loadLayer(environment));
+    return new SourceWriter(className(common, environment)).write(
+        "/" + common + YamlConfiguration.FILE_EXTENSION,
+        "/" + environment + YamlConfiguration.FILE_EXTENSION,
+        snapshot);
+  }
+
+  void writeServicesFile(Path resourceDirectory, List<String> classNames) throws IOException {
+    Path servicesFile = resourceDirectory.resolve(SERVICES_FILE);
+    Files.createDirectories(servicesFile.getParent());
+    StringBuilder content = new StringBuilder();
+    for (String className : classNames) {
+      content.append(className).append('\n');
+    }
+    Files.write(servicesFile, content.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  static String className(String common, String environment) {
+    return javaName(common) + javaName(environment) + "Configuration";
+  }
+
+  /**
+   * Load the file the same way YamlConfiguration would, so anything it includes is
+   * compiled in with it
+   */
+  private Map loadLayer(String name) throws IOException {
+    YamlConfiguration loader = new YamlConfiguration();
+    loader.setConfigurationDirectory(yamlDirectory);
+    return loader.loadLayer("/" + name + YamlConfiguration.FILE_EXTENSION);
+  }
+
+  private static String javaName(String name) {
+    StringBuilder javaName = new StringBuilder();
+    boolean upperNext = true;
+    for (char character : name.toCharArray()) {
+      if (Character.isLetterOrDigit(character)) {
+        javaName.append(upperNext ? Character.toUpperCase(character) : character);
+        upperNext = false;
+      } else {
+        upperNext = true;
+      }
+    }
+    return javaName.toString();
+  }
+
+
+  /**
+   * Builds the source of one generated class
+   */
+  private class SourceWriter {
+
+    private final String className;
+    private final StringBuilder helperMethods = new StringBuilder();
+    private int helperCount = 0;
+
+    SourceWriter(String className) {
+      this.className = className;
+    }
+
+    String write(String commonFilename, String environmentFilename, ConfigurationSnapshot snapshot) {
+      YamlConfiguration merged = YamlConfiguration.fromSnapshot(snapshot);
+      String commonExpression = valueExpression(snapshot.commonLayer()).code;
+      String environmentExpression = valueExpression(snapshot.environmentLayer()).code;
+      String treeExpression = treeExpression(snapshot).code;
+      StringBuilder source = new StringBuilder();
+      source.append("package ").append(packageName).append(";\n\n")
+          .append("import com.hiklas.cucumber.quickstart.utils.CompiledConfiguration;\n")
+          .append("import com.hiklas.cucumber.quickstart.utils.YamlConfiguration;\n\n")
+          .append("import java.util.Map;\n\n")
+          .append("/**\n")
+          .append(" * Generated by YamlConfigurationCompiler from ")
+          .append(commonFilename).append(" and ").append(environmentFilename).append(".\n")
+          .append(" * Don't edit, change the Yaml and rebuild.\n")
+          .append(" */\n")
+          .append("@SuppressWarnings({\"rawtypes\"})\n")
+          .append("public final class ").append(className).append(" extends CompiledConfiguration {\n\n")
+          .append("  public static final String COMMON_YAML_FILENAME = ").append(literal(commonFilename)).append(";\n")
+          .append("  public static final String ENVIRONMENT_YAML_FILENAME = ").append(literal(environmentFilename)).append(";\n\n")
+          .append("  public static final String BASE_URL = ").append(literal(merged.base_url())).append(";\n")
+          .append("  public static final String BROWSER = ").append(literal(merged.browser())).append(";\n\n")
+          .append("  /**\n   * Only built when the snapshot is first asked for, not when the class is found\n   */\n")
+          .append("  private static final class Trees {\n\n")
+          .append("    static final Map COMMON_LAYER = ").append(commonExpression).append(";\n")
+          .append("    static final Map ENVIRONMENT_LAYER = ").append(environmentExpression).append(";\n")
+          .append("    static final Map TREE = ").append(treeExpression).append(";\n")
+          .append("  }\n\n")
+          .append("  private static final ").append(className).append(" INSTANCE = new ").append(className).append("();\n\n")
+          .append("  /**\n   * @return the compiled configuration with all the usual accessors\n   */\n")
+          .append("  public static YamlConfiguration configuration() {\n")
+          .append("    return INSTANCE.toYamlConfiguration();\n  }\n\n")
+          .append("  @Override\n  public String commonYamlFilename() {\n    return COMMON_YAML_FILENAME;\n  }\n\n")
+          .append("  @Override\n  public String environmentYamlFilename() {\n    return ENVIRONMENT_YAML_FILENAME;\n  }\n\n")
+          .append("  @Override\n  protected Map commonLayer() {\n    return Trees.COMMON_LAYER;\n  }\n\n")
+          .append("  @Override\n  protected Map environmentLayer() {\n    return Trees.ENVIRONMENT_LAYER;\n  }\n\n")
+          .append("  @Override\n  protected Map tree() {\n    return Trees.TREE;\n  }\n")
+          .append(helperMethods)
+          .append("}\n");
+      return source.toString();
+    }
+
+    /**
+     * Sections of the merged tree that are the same as a layer's, i.e. nothing in 
+     * them was interpolated, refer to the layer's rather than being built again
+     */
+    private Expression treeExpression(ConfigurationSnapshot snapshot) {
+      Map commonLayer = snapshot.commonLayer();
+      Map environmentLayer = snapshot.environmentLayer();
+      List<String> keysAndValues = new ArrayList<String>();
+      List<Integer> entryNodes = new ArrayList<Integer>();
+      int nodes = 1;
+      for (Object entryObject : snapshot.tree().entrySet()) {
+        Map.Entry entry = (Map.Entry)entryObject;
+        String key = literal(String.valueOf(entry.getKey()));
+        Expression value;
+        if (environmentLayer.containsKey(entry.getKey()) && environmentLayer.get(entry.getKey()) == entry.getValue()) {
+          value = new Expression("Trees.ENVIRONMENT_LAYER.get(" + key + ")", 1);
+        } else if (commonLayer.containsKey(entry.getKey()) && commonLayer.get(entry.getKey()) == entry.getValue()) {
+          value = new Expression("Trees.COMMON_LAYER.get(" + key + ")", 1);
+        } else {
+          value = valueExpression(entry.getValue());
+        }
+        keysAndValues.add(key);
+        keysAndValues.add(value.code);
+        entryNodes.add(1 + value.nodes);
+        nodes += 1 + value.nodes;
+      }
+      return mapExpression(keysAndValues, entryNodes, nodes);
+    }
+
+    private Expression valueExpression(Object value) {
+      Expression expression;
+      if (value instanceof Map) {
+        expression = mapExpression((Map)value);
+      } else if (value instanceof List) {
+        expression = listExpression((List)value);
+      } else if (value == null) {
+        expression = new Expression("null", 1);
+      } else {
+        expression = new Expression(literal(String.valueOf(value)), 1);
+      }
+      return expression;
+    }
+
+    private Expression mapExpression(Map map) {
+      List<String> keysAndValues = new ArrayList<String>(map.size() * 2);
+      List<Integer> entryNodes = new ArrayList<Integer>(map.size());
+      int nodes = 1;
+      for (Object entryObject : map.entrySet()) {
+        Map.Entry entry = (Map.Entry)entryObject;
+        Expression value = valueExpression(entry.getValue());
+        keysAndValues.add(literal(String.valueOf(entry.getKey())));
+        keysAndValues.add(value.code);
+        entryNodes.add(1 + value.nodes);
+        nodes += 1 + value.nodes;
+      }
+      return mapExpression(keysAndValues, entryNodes, nodes);
+    }
+
+    private Expression mapExpression(List<String> keysAndValues, List<Integer> entryNodes, int nodes) {
+      if (nodes > NODES_PER_METHOD) {
+        return helperExpression("map", keysAndValues, 2, entryNodes);
+      }
+      return new Expression("map(" + String.join(", ", keysAndValues) + ")", nodes);
+    }
+
+    private Expression listExpression(List list) {
+      if (list.size() == 1 && list.get(0) == null) {
+        return new Expression("list((Object)null)", 2);
+      }
+      List<String> items = new ArrayList<String>(list.size());
+      List<Integer> itemNodes = new ArrayList<Integer>(list.size());
+      int nodes = 1;
+      for (Object item : list) {
+        Expression value = valueExpression(item);
+        items.add(value.code);
+        itemNodes.add(value.nodes);
+        nodes += value.nodes;
+      }
+      if (nodes > NODES_PER_METHOD) {
+        return helperExpression("list", items, 1, itemNodes);
+      }
+      return new Expression("list(" + String.join(", ", items) + ")", nodes);
+    }
+
+    /**
+     * Move a map or list that's too big to build in line into a helper method, which
+     * calls others to fill in the array of its entries at most NODES_PER_METHOD nodes
+     * at a time and hands that to map() or list()
+     *
+     * @param arguments the arguments map() or list() would be called with
+     * @param argumentsPerEntry how many arguments make up each entry, 2 for a map
+     * @return a call to the helper method
+     */
+    private Expression helperExpression(String factory, List<String> arguments, int argumentsPerEntry,
+        List<Integer> entryNodes) {
+      String methodName = factory + helperCount++;
+      List<String> chunkNames = new ArrayList<String>();
+      StringBuilder chunk = null;
+      int chunkNodes = 0;
+      for (int entry = 0; entry < entryNodes.size(); entry++) {
+        if (chunk == null || chunkNodes + entryNodes.get(entry) > NODES_PER_METHOD) {
+          if (chunk != null) {
+            helperMethods.append(chunk).append("  }\n");
+          }
+          String chunkName = methodName + "_" + chunkNames.size();
+          chunkNames.add(chunkName);
+          chunk = new StringBuilder("\n  private static void ").append(chunkName).append("(Object[] result) {\n");
+          chunkNodes = 0;
+        }
+        for (int index = entry * argumentsPerEntry; index < (entry + 1) * argumentsPerEntry; index++) {
+          chunk.append("    result[").append(index).append("] = ").append(arguments.get(index)).append(";\n");
+        }
+        chunkNodes += entryNodes.get(entry);
+      }
+      if (chunk != null) {
+        helperMethods.append(chunk).append("  }\n");
+      }
+      helperMethods.append("\n  private static Object[] ").append(methodName).append("() {\n")
+          .append("    Object[] result = new Object[").append(arguments.size()).append("];\n");
+      for (String chunkName : chunkNames) {
+        helperMethods.append("    ").append(chunkName).append("(result);\n");
+      }
+      helperMethods.append("    return result;\n  }\n");
+      return new Expression(factory + "(" + methodName + "())", 1);
+    }
+  }
+
+
+  /**
+   * The Java code building part of a tree, with how many nodes of the tree it builds
+   * in line.  A map or list moved out to a helper method counts as just one.
+   */
+  private static final class Expression {
+
+    private final String code;
+    private final int nodes;
+
+    Expression(String code, int nodes) {
+      this.code = code;
+      this.nodes = nodes;
+    }
+  }
+
+  static String literal(String value) {
+    StringBuilder literal = new StringBuilder("\"");
+    for (char character : value.toCharArray()) {
+      switch (character) {
+        case '"': literal.append("\\\""); break;
+        case '\\': literal.append("\\\\"); break;
+        case '\n': literal.append("\\n"); break;
+        case '\r': literal.append("\\r"); break;
+        case '\t': literal.append("\\t"); break;
+        default:
+          if (character < 0x20 || character > 0x7e) {
+            literal.append(String.format("\\u%04x", (int)character));
+          } else {
+            literal.append(character);
+          }
+      }
+    }
+    return literal.append('"').toString();
+  }
+}
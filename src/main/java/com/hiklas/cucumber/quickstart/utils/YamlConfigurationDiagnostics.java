@@ -0,0 +1,308 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the reads that came back empty, for each key path, and logs a summary 
+ * of them rather than a line for every read.
+ * 
+ * A suite that asks for a missing key on every step used to log the same debug 
+ * line thousands of times.  Now each path and expected type just has a counter 
+ * and the summary says e.g.
+ * 
+ *   key 'screens/Login/url' missed 1200 times, expected String
+ *   key 'screens/Login' missed 3 times, expected Map got String
+ * 
+ * The summary is logged when the JVM shuts down and, if yaml.config.diagnostics.summary.seconds 
+ * is set, every that many seconds as well.  It can also be asked for with summary().
+ * 
+ * Diagnostics are on when yaml.config.diagnostics is true or debug logging is on 
+ * for this class.  Setting yaml.config.diagnostics.sample.rate to less than 1 only 
+ * counts that fraction of the reads, e.g. 0.01 counts about one in a hundred, so they 
+ * can be left on in long runs.  Counts in the summary are then sampled counts.
+ * 
+ * The paths come from whoever is reading, e.g. a screen name built up by a step, so 
+ * only the first MAX_TRACKED_PATHS paths get counters of their own.  Misses on any 
+ * path after that are all counted under OTHER_PATHS, as YamlConfigurationMetrics 
+ * does with sections.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+@SuppressWarnings({"rawtypes"})
+public final class YamlConfigurationDiagnostics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationDiagnostics.class);
+  
+  public static final String DIAGNOSTICS_PROPERTY = "yaml.config.diagnostics";
+  public static final String SAMPLE_RATE_PROPERTY = "yaml.config.diagnostics.sample.rate";
+  public static final String SUMMARY_INTERVAL_PROPERTY = "yaml.config.diagnostics.summary.seconds";
+  
+  public static final double DEFAULT_SAMPLE_RATE = 1.0;
+  
+  /**
+   * How many paths, counting each type they were read as, have counters of their own
+   */
+  public static final int MAX_TRACKED_PATHS = 1000;
+  
+  /**
+   * Misses on paths beyond MAX_TRACKED_PATHS are counted under this
+   */
+  public static final String OTHER_PATHS = "(other)";
+  
+  private static final YamlConfigurationDiagnostics SHARED = newSharedDiagnostics();
+  
+  private final boolean enabled;
+  private final double sampleRate;
+  private final int maxTrackedPaths;
+  
+  private final ConcurrentMap<PathKey, PathCounters> paths = new ConcurrentHashMap<PathKey, PathCounters>();
+  
+  
+  YamlConfigurationDiagnostics(boolean enabled, double sampleRate) {
+    this(enabled, sampleRate, MAX_TRACKED_PATHS);
+  }
+  
+  YamlConfigurationDiagnostics(boolean enabled, double sampleRate, int maxTrackedPaths) {
+    this.enabled = enabled;
+    this.sampleRate = sampleRate;
+    this.maxTrackedPaths = maxTrackedPaths;
+  }
+  
+  /**
+   * @return the diagnostics shared by every YamlConfiguration in this JVM
+   */
+  public static YamlConfigurationDiagnostics shared() {
+    return SHARED;
+  }
+  
+  public boolean isEnabled() {
+    return enabled;
+  }
+  
+  public double sampleRate() {
+    return sampleRate;
+  }
+  
+  /**
+   * @return how many times the path was read as the given type and nothing was there
+   */
+  public long missCount(String path, Class expectedType) {
+    PathCounters counters = paths.get(new PathKey(path, expectedType));
+    return counters == null ? 0 : counters.misses.sum();
+  }
+  
+  /**
+   * @return how many times the path was read as the given type and something of a 
+   *         different type was there
+   */
+  public long typeMismatchCount(String path, Class expectedType) {
+    PathCounters counters = paths.get(new PathKey(path, expectedType));
+    return counters == null ? 0 : counters.mismatchCount();
+  }
+  
+  /**
+   * @return one line per path and type read, most missed first
+   */
+  public List<String> summary() {
+    List<SummaryLine> lines = new ArrayList<SummaryLine>();
+    for (Map.Entry<PathKey, PathCounters> entry : paths.entrySet()) {
+      entry.getValue().addSummaryLines(entry.getKey(), lines);
+    }
+    Collections.sort(lines, Comparator.comparingLong((SummaryLine line) -> line.count).reversed());
+    List<String> summary = new ArrayList<String>(lines.size());
+    for (SummaryLine line : lines) {
+      summary.add(line.text);
+    }
+    return summary;
+  }
+  
+  /**
+   * Log the summary, if anything has been missed
+   */
+  public void logSummary() {
+    List<String> summary = summary();
+    if (summary.isEmpty()) {
+      return;
+    }
+    StringBuilder message = new StringBuilder("Configuration reads that found nothing");
+    if (sampleRate < 1.0) {
+      message.append(", sampling ").append(sampleRate).append(" of reads");
+    }
+    for (String line : summary) {
+      message.append(System.lineSeparator()).append("  ").append(line);
+    }
+    LOGGER.info(message.toString());
+  }
+  
+  public void reset() {
+    paths.clear();
+  }
+  
+  
+  void recordMiss(String path, Class expectedType) {
+    if (enabled && sampled()) {
+      counters(path, expectedType).misses.increment();
+    }
+  }
+  
+  void recordTypeMismatch(String path, Class expectedType, Class actualType) {
+    if (enabled && sampled()) {
+      counters(path, expectedType).mismatchCounter(actualType).increment();
+    }
+  }
+  
+  
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+  
+  private boolean sampled() {
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+  
+  private PathCounters counters(String path, Class expectedType) {
+    PathKey key = new PathKey(path, expectedType);
+    PathCounters counters = paths.get(key);
+    if (counters == null) {
+      if (paths.size() >= maxTrackedPaths) {
+        key = new PathKey(OTHER_PATHS, expectedType);
+      }
+      counters = paths.computeIfAbsent(key, newKey -> new PathCounters());
+    }
+    return counters;
+  }
+  
+  /**
+   * The frozen maps and lists are internal classes, call them what they are in Yaml
+   */
+  private static String typeName(Class type) {
+    if (Map.class.isAssignableFrom(type)) {
+      return "Map";
+    } else if (List.class.isAssignableFrom(type)) {
+      return "List";
+    }
+    return type.getSimpleName();
+  }
+  
+  private static YamlConfigurationDiagnostics newSharedDiagnostics() {
+    boolean enabled = Boolean.getBoolean(DIAGNOSTICS_PROPERTY) || LOGGER.isDebugEnabled();
+    double sampleRate = DEFAULT_SAMPLE_RATE;
+    String rate = System.getProperty(SAMPLE_RATE_PROPERTY);
+    if (rate != null) {
+      try {
+        sampleRate = Double.parseDouble(rate);
+      } catch (NumberFormatException nfe) {
+        LOGGER.warn("Ignoring {} '{}', it isn't a number", SAMPLE_RATE_PROPERTY, rate);
+      }
+    }
+    YamlConfigurationDiagnostics diagnostics = new YamlConfigurationDiagnostics(enabled, sampleRate);
+    if (enabled) {
+      Runtime.getRuntime().addShutdownHook(new Thread(diagnostics::logSummary, "yaml-diagnostics-shutdown"));
+      long intervalSeconds = Long.getLong(SUMMARY_INTERVAL_PROPERTY, 0);
+      if (intervalSeconds > 0) {
+        ScheduledExecutorService summaryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "yaml-diagnostics");
+          thread.setDaemon(true);
+          return thread;
+        });
+        summaryExecutor.scheduleAtFixedRate(diagnostics::logSummary, intervalSeconds, intervalSeconds, 
+            TimeUnit.SECONDS);
+      }
+    }
+    return diagnostics;
+  }
+  
+  
+  private static final class PathKey {
+    
+    private final String path;
+    private final Class expectedType;
+    
+    PathKey(String path, Class expectedType) {
+      this.path = path;
+      this.expectedType = expectedType;
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof PathKey)) {
+        return false;
+      }
+      PathKey otherKey = (PathKey)other;
+      return expectedType == otherKey.expectedType && path.equals(otherKey.path);
+    }
+    
+    @Override
+    public int hashCode() {
+      return 31 * path.hashCode() + expectedType.hashCode();
+    }
+  }
+  
+  
+  private static final class PathCounters {
+    
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * Keyed by the type that was actually there
+     */
+    private final ConcurrentMap<Class, LongAdder> mismatches = new ConcurrentHashMap<Class, LongAdder>();
+    
+    LongAdder mismatchCounter(Class actualType) {
+      LongAdder counter = mismatches.get(actualType);
+      if (counter == null) {
+        counter = mismatches.computeIfAbsent(actualType, type -> new LongAdder());
+      }
+      return counter;
+    }
+    
+    long mismatchCount() {
+      long count = 0;
+      for (LongAdder counter : mismatches.values()) {
+        count += counter.sum();
+      }
+      return count;
+    }
+    
+    void addSummaryLines(PathKey key, List<SummaryLine> lines) {
+      String expected = typeName(key.expectedType);
+      long missCount = misses.sum();
+      if (missCount > 0) {
+        lines.add(new SummaryLine(missCount, 
+            "key '" + key.path + "' missed " + missCount + " times, expected " + expected));
+      }
+      for (Map.Entry<Class, LongAdder> entry : mismatches.entrySet()) {
+        long mismatchCount = entry.getValue().sum();
+        lines.add(new SummaryLine(mismatchCount, "key '" + key.path + "' missed " + mismatchCount 
+            + " times, expected " + expected + " got " + typeName(entry.getKey())));
+      }
+    }
+  }
+  
+  
+  private static final class SummaryLine {
+    
+    private final long count;
+    private final String text;
+    
+    SummaryLine(long count, String text) {
+      this.count = count;
+      this.text = text;
+    }
+  }
+}
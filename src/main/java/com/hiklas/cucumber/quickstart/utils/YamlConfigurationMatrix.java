@@ -0,0 +1,144 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the configuration for lots of environments at once, e.g. to run the same 
+ * suite against every environment.
+ * 
+ * The common file is parsed once.  The environment files are then parsed at the 
+ * same time on background threads and each becomes an overlay on top of the common 
+ * layer, see ConfigurationSnapshot.overlay().  The overlays share the common 
+ * sections, screen records and element groups rather than each having a copy, so 
+ * memory grows with what the environment files add rather than with the number of 
+ * environments.
+ * 
+ * Environments compiled by the YamlConfigurationCompiler use the compiled class 
+ * instead.  Each environment's snapshot is checked against the ConfigurationSchema 
+ * and then goes in the cache, so a YamlConfiguration loaded later for one of the 
+ * environments, e.g. with an EnvironmentContext bound, gets the same overlay.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+public final class YamlConfigurationMatrix {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationMatrix.class);
+  
+  private final ConfigurationSnapshot base;
+  private final Map<String, ConfigurationSnapshot> snapshots;
+  private final Map<String, YamlConfiguration> configurations;
+  
+  private YamlConfigurationMatrix(ConfigurationSnapshot base, Map<String, ConfigurationSnapshot> snapshots) {
+    this.base = base;
+    this.snapshots = snapshots;
+    Map<String, YamlConfiguration> loaded = new LinkedHashMap<String, YamlConfiguration>();
+    for (Map.Entry<String, ConfigurationSnapshot> entry : snapshots.entrySet()) {
+      loaded.put(entry.getKey(), YamlConfiguration.fromSnapshot(entry.getValue()));
+    }
+    this.configurations = Collections.unmodifiableMap(loaded);
+  }
+  
+  /**
+   * Load the given environments with the common file named in the usual system property
+   * 
+   * @param environments the environment filenames without the .yaml, e.g. 'test-discworld'
+   */
+  public static YamlConfigurationMatrix load(Collection<String> environments) throws IOException {
+    return load(new YamlConfiguration(), environments);
+  }
+  
+  /**
+   * Load the given environments, finding and parsing the files with the given 
+   * configuration.  Any options set on it, e.g. setConfigurationDirectory(), apply.
+   */
+  public static YamlConfigurationMatrix load(YamlConfiguration loader, Collection<String> environments) 
+      throws IOException {
+    LOGGER.debug("Loading {} environments ...", environments.size());
+    ConfigurationSnapshot base = ConfigurationSnapshot.of(loader.loadCommonLayer(), CompactMap.EMPTY, 
+        ConfigurationOverrides.fromSystem());
+    List<String> names = new ArrayList<String>(environments);
+    List<ConfigurationExecutors.IoTask<ConfigurationSnapshot>> tasks = 
+        new ArrayList<ConfigurationExecutors.IoTask<ConfigurationSnapshot>>(names.size());
+    for (String environment : names) {
+      tasks.add(() -> loadEnvironment(loader, base, environment));
+    }
+    List<ConfigurationSnapshot> loaded = ConfigurationExecutors.invokeAll(tasks);
+    Map<String, ConfigurationSnapshot> snapshots = new LinkedHashMap<String, ConfigurationSnapshot>();
+    for (int index = 0; index < names.size(); index++) {
+      snapshots.put(names.get(index), loaded.get(index));
+    }
+    LOGGER.debug("... loaded");
+    return new YamlConfigurationMatrix(base, Collections.unmodifiableMap(snapshots));
+  }
+  
+  /**
+   * @return the environments in the order they were given
+   */
+  public Set<String> environments() {
+    return configurations.keySet();
+  }
+  
+  /**
+   * @return the loaded configuration for the environment
+   * @throws IllegalArgumentException if the environment isn't in the matrix
+   */
+  public YamlConfiguration configuration(String environment) {
+    YamlConfiguration configuration = configurations.get(environment);
+    if (configuration == null) {
+      throw new IllegalArgumentException("Environment '" + environment + "' isn't in the matrix");
+    }
+    return configuration;
+  }
+  
+  /**
+   * @return every environment's loaded configuration, by environment
+   */
+  public Map<String, YamlConfiguration> configurations() {
+    return configurations;
+  }
+  
+  /**
+   * @return estimated bytes held by the whole matrix, the common layer once plus 
+   *         each environment layer
+   */
+  public long frozenFootprint() {
+    long footprint = base.frozenFootprint();
+    for (ConfigurationSnapshot snapshot : snapshots.values()) {
+      footprint += snapshot.frozenFootprint();
+    }
+    return footprint;
+  }
+  
+  ConfigurationSnapshot snapshot(String environment) {
+    return snapshots.get(environment);
+  }
+  
+  
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+  
+  private static ConfigurationSnapshot loadEnvironment(YamlConfiguration loader, ConfigurationSnapshot base, 
+      String environment) throws IOException {
+    try (EnvironmentContext context = EnvironmentContext.bind(environment)) {
+      ConfigurationSnapshot snapshot = loader.compiledSnapshot(base.overrides());
+      if (snapshot == null) {
+        snapshot = ConfigurationSnapshot.overlay(base, loader.loadEnvironmentLayer());
+      }
+      snapshot = loader.validate(snapshot);
+      loader.cacheSnapshot(snapshot);
+      return snapshot;
+    }
+  }
+}
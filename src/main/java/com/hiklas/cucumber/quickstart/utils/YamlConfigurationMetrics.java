@@ -0,0 +1,362 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counts what the configuration is doing, so a slow suite can be checked for time 
+ * spent loading or reading it.
+ * 
+ * For each file it keeps how many times it was loaded, how long that took, how much 
+ * of that was parsing and how many bytes were read.  It also counts accessor calls 
+ * for each top-level section and how many reads came back empty, either because 
+ * there was nothing there or because the value was the wrong type.  Reads of a 
+ * top-level key that isn't in the configuration are all counted as OTHER_SECTION, 
+ * so asking for made up keys can't grow the counts forever.
+ * 
+ * Everything is a LongAdder, so counting from lots of threads at once doesn't make 
+ * them wait on each other.  The accessors only ever increment, the totals are added 
+ * up when they're read, either through snapshot() or over JMX where the shared 
+ * instance is registered as 
+ * 
+ *   com.hiklas.cucumber.quickstart.utils:type=YamlConfigurationMetrics
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+public final class YamlConfigurationMetrics implements YamlConfigurationMetricsMXBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationMetrics.class);
+  
+  public static final String OBJECT_NAME = "com.hiklas.cucumber.quickstart.utils:type=YamlConfigurationMetrics";
+  
+  /**
+   * Where accesses to top-level keys that aren't in the configuration are counted
+   */
+  public static final String OTHER_SECTION = "(other)";
+  
+  private static final YamlConfigurationMetrics SHARED = register(new YamlConfigurationMetrics());
+  
+  private final ConcurrentMap<String, FileCounters> files = new ConcurrentHashMap<String, FileCounters>();
+  
+  private final ConcurrentMap<String, LongAdder> sectionAccesses = new ConcurrentHashMap<String, LongAdder>();
+  
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder typeMismatches = new LongAdder();
+  
+  private volatile long parsedFootprint;
+  private volatile long frozenFootprint;
+  
+  
+  YamlConfigurationMetrics() {
+  }
+  
+  /**
+   * @return the metrics shared by every YamlConfiguration in this JVM
+   */
+  public static YamlConfigurationMetrics shared() {
+    return SHARED;
+  }
+  
+  /**
+   * @return a copy of the current totals
+   */
+  public Snapshot snapshot() {
+    Map<String, FileStatistics> fileStatistics = new TreeMap<String, FileStatistics>();
+    for (Map.Entry<String, FileCounters> entry : files.entrySet()) {
+      fileStatistics.put(entry.getKey(), entry.getValue().statistics());
+    }
+    return new Snapshot(fileStatistics, sumAll(sectionAccesses), misses.sum(), typeMismatches.sum(), 
+        parsedFootprint, frozenFootprint);
+  }
+  
+  @Override
+  public void reset() {
+    files.clear();
+    sectionAccesses.clear();
+    misses.reset();
+    typeMismatches.reset();
+  }
+  
+  
+  //
+  // Recording, called by YamlConfiguration
+  //
+  
+  void recordLoad(String file, long bytesRead, long loadNanos, long parseNanos) {
+    FileCounters counters = fileCounters(file);
+    counters.loads.increment();
+    counters.bytesRead.add(bytesRead);
+    counters.loadNanos.add(loadNanos);
+    counters.parseNanos.add(parseNanos);
+  }
+  
+  /**
+   * Parsing done after the file was loaded, i.e. lazily loaded sections
+   */
+  void recordParse(String file, long parseNanos) {
+    fileCounters(file).parseNanos.add(parseNanos);
+  }
+  
+  void recordAccess(String section) {
+    LongAdder counter = sectionAccesses.get(section);
+    if (counter == null) {
+      counter = sectionAccesses.computeIfAbsent(section, key -> new LongAdder());
+    }
+    counter.increment();
+  }
+  
+  void recordMiss() {
+    misses.increment();
+  }
+  
+  void recordTypeMismatch() {
+    typeMismatches.increment();
+  }
+  
+  void recordFootprint(long parsedBytes, long frozenBytes) {
+    parsedFootprint = parsedBytes;
+    frozenFootprint = frozenBytes;
+  }
+  
+  
+  //
+  // JMX
+  //
+  
+  @Override
+  public Map<String, Long> getLoadCountByFile() {
+    return perFile(FileStatistics::loadCount);
+  }
+  
+  @Override
+  public Map<String, Long> getLoadTimeNanosByFile() {
+    return perFile(FileStatistics::loadTimeNanos);
+  }
+  
+  @Override
+  public Map<String, Long> getParseTimeNanosByFile() {
+    return perFile(FileStatistics::parseTimeNanos);
+  }
+  
+  @Override
+  public Map<String, Long> getBytesReadByFile() {
+    return perFile(FileStatistics::bytesRead);
+  }
+  
+  @Override
+  public Map<String, Long> getAccessCountBySection() {
+    return sumAll(sectionAccesses);
+  }
+  
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+  
+  @Override
+  public long getTypeMismatchCount() {
+    return typeMismatches.sum();
+  }
+  
+  @Override
+  public long getParsedFootprintBytes() {
+    return parsedFootprint;
+  }
+  
+  @Override
+  public long getFrozenFootprintBytes() {
+    return frozenFootprint;
+  }
+  
+  @Override
+  public long getCacheHitCount() {
+    return YamlConfigurationCache.shared().hitCount();
+  }
+  
+  @Override
+  public long getCacheMissCount() {
+    return YamlConfigurationCache.shared().missCount();
+  }
+  
+  
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+  
+  private FileCounters fileCounters(String file) {
+    FileCounters counters = files.get(file);
+    if (counters == null) {
+      counters = files.computeIfAbsent(file, key -> new FileCounters());
+    }
+    return counters;
+  }
+  
+  private Map<String, Long> perFile(ToLongFunction<FileStatistics> statistic) {
+    Map<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, FileCounters> entry : files.entrySet()) {
+      result.put(entry.getKey(), statistic.applyAsLong(entry.getValue().statistics()));
+    }
+    return result;
+  }
+  
+  private static Map<String, Long> sumAll(Map<String, LongAdder> counters) {
+    Map<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+    return result;
+  }
+  
+  private static YamlConfigurationMetrics register(YamlConfigurationMetrics metrics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(metrics, name);
+      }
+    } catch (JMException | SecurityException e) {
+      LOGGER.debug("Couldn't register the metrics with JMX, exception: {}", e);
+    }
+    return metrics;
+  }
+  
+  
+  private static final class FileCounters {
+    
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    
+    FileStatistics statistics() {
+      return new FileStatistics(loads.sum(), loadNanos.sum(), parseNanos.sum(), bytesRead.sum());
+    }
+  }
+  
+  
+  /**
+   * Totals for one file
+   */
+  public static final class FileStatistics {
+    
+    private final long loadCount;
+    private final long loadTimeNanos;
+    private final long parseTimeNanos;
+    private final long bytesRead;
+    
+    FileStatistics(long loadCount, long loadTimeNanos, long parseTimeNanos, long bytesRead) {
+      this.loadCount = loadCount;
+      this.loadTimeNanos = loadTimeNanos;
+      this.parseTimeNanos = parseTimeNanos;
+      this.bytesRead = bytesRead;
+    }
+    
+    public long loadCount() {
+      return loadCount;
+    }
+    
+    /**
+     * @return time spent reading and parsing the file
+     */
+    public long loadTimeNanos() {
+      return loadTimeNanos;
+    }
+    
+    /**
+     * @return time spent parsing the file, including sections parsed lazily after 
+     *         it was loaded
+     */
+    public long parseTimeNanos() {
+      return parseTimeNanos;
+    }
+    
+    public long bytesRead() {
+      return bytesRead;
+    }
+  }
+  
+  
+  /**
+   * The totals at the time snapshot() was called
+   */
+  public static final class Snapshot {
+    
+    private final Map<String, FileStatistics> files;
+    private final Map<String, Long> accessCounts;
+    private final long missCount;
+    private final long typeMismatchCount;
+    private final long parsedFootprint;
+    private final long frozenFootprint;
+    
+    Snapshot(Map<String, FileStatistics> files, Map<String, Long> accessCounts, long missCount, 
+        long typeMismatchCount, long parsedFootprint, long frozenFootprint) {
+      this.files = Collections.unmodifiableMap(files);
+      this.accessCounts = Collections.unmodifiableMap(accessCounts);
+      this.missCount = missCount;
+      this.typeMismatchCount = typeMismatchCount;
+      this.parsedFootprint = parsedFootprint;
+      this.frozenFootprint = frozenFootprint;
+    }
+    
+    public Map<String, FileStatistics> files() {
+      return files;
+    }
+    
+    /**
+     * @return statistics for the given file, or null if it's never been loaded
+     */
+    public FileStatistics file(String file) {
+      return files.get(file);
+    }
+    
+    public Map<String, Long> accessCounts() {
+      return accessCounts;
+    }
+    
+    public long accessCount(String section) {
+      Long count = accessCounts.get(section);
+      return count == null ? 0 : count;
+    }
+    
+    /**
+     * @return reads that found nothing and returned an empty value
+     */
+    public long missCount() {
+      return missCount;
+    }
+    
+    /**
+     * @return reads that found a value of the wrong type and returned an empty value
+     */
+    public long typeMismatchCount() {
+      return typeMismatchCount;
+    }
+    
+    /**
+     * @return estimated size of the last configuration parsed, before freezing
+     */
+    public long parsedFootprint() {
+      return parsedFootprint;
+    }
+    
+    /**
+     * @return estimated size of the last configuration parsed, after freezing
+     */
+    public long frozenFootprint() {
+      return frozenFootprint;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.util.Map;
+
+/**
+ * What YamlConfigurationMetrics shows over JMX.  Per file values are keyed by the 
+ * file's name, or its full path when it's read from a configuration directory. 
+ * Times are in nanoseconds.
+ * 
+ * @author Fiona Bianchi
+ *
+ */
+public interface YamlConfigurationMetricsMXBean {
+
+  Map<String, Long> getLoadCountByFile();
+  
+  Map<String, Long> getLoadTimeNanosByFile();
+  
+  Map<String, Long> getParseTimeNanosByFile();
+  
+  Map<String, Long> getBytesReadByFile();
+  
+  Map<String, Long> getAccessCountBySection();
+  
+  long getMissCount();
+  
+  long getTypeMismatchCount();
+  
+  long getParsedFootprintBytes();
+  
+  long getFrozenFootprintBytes();
+  
+  long getCacheHitCount();
+  
+  long getCacheMissCount();
+  
+  void reset();
+}
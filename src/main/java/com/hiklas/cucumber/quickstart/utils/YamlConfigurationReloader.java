@@ -0,0 +1,399 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Watches the resolved common and environment files, and every file they include,
+ * and reloads whichever layer changed.
+ *
+ * This is opt-in, see YamlConfiguration.enableHotReload() and the
+ * yaml.config.hot.reload system property.  There is one reloader per pair of
+ * files, set of overrides and loading settings in the JVM, see
+ * YamlConfiguration.loadingSettings(), and every YamlConfiguration with those
+ * reads through it.  As they all load the same way the reloader loads with any
+ * one of them, it only holds them weakly so it doesn't keep them alive.  Once
+ * none is left, because each has been collected or called stopHotReload(), the
+ * reloader stops and its watch thread ends.
+ *
+ * Only the layer that changed is loaded again, the other layer is taken from the
+ * current snapshot.  A change to an included file reloads the layer including it.
+ * The files included can change with each reload, so after each one the watches
+ * are brought up to date with the includes just loaded, see ConfigurationIncludes.  The new snapshot is built completely off to the side and then
+ * published with a single reference swap, so readers never block and never see a
+ * half merged configuration.  Editors tend to write a file in several steps, so a
+ * reload only happens once the files have been quiet for the debounce period,
+ * yaml.config.reload.debounce.millis, 250ms by default.
+ *
+ * Files that aren't on the filesystem, e.g. inside a jar, can't be watched and are
+ * just left as they are, if neither file can be there's no reloader at all.  A
+ * change that doesn't parse, or doesn't match the ConfigurationSchema, is logged and
+ * the previous configuration kept.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public final class YamlConfigurationReloader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlConfigurationReloader.class);
+
+  public static final String DEBOUNCE_PROPERTY = "yaml.config.reload.debounce.millis";
+  public static final long DEFAULT_DEBOUNCE_MILLIS = 250;
+
+  private static final Map<String, YamlConfigurationReloader> RELOADERS =
+      new HashMap<String, YamlConfigurationReloader>();
+
+  /**
+   * What the reloader is kept in RELOADERS under
+   */
+  private final String key;
+
+  private final String commonFilename;
+  private final String environmentFilename;
+  private final String commonKey;
+  private final String environmentKey;
+  private final Path commonPath;
+  private final Path environmentPath;
+  /**
+   * The configurations reading through the reloader, only touched while synchronized 
+   * on the class
+   */
+  private final List<WeakReference<YamlConfiguration>> users = new ArrayList<WeakReference<YamlConfiguration>>();
+  private final YamlConfigurationCache cache;
+  private final long debounceMillis;
+
+  private final AtomicReference<ConfigurationSnapshot> current;
+
+  private final WatchService watchService;
+
+  /**
+   * The directories being watched, only touched while synchronized on the reloader
+   */
+  private final Map<Path, WatchKey> watchedDirectories = new HashMap<Path, WatchKey>();
+
+  //
+  // The files making up each layer, each one's own file and everything it includes
+  //
+  private volatile Set<Path> commonFiles = Collections.emptySet();
+  private volatile Set<Path> environmentFiles = Collections.emptySet();
+  private final ScheduledExecutorService debounceExecutor;
+  private final Thread watchThread;
+
+  //
+  // Only touched on the debounce executor's single thread
+  //
+  private ScheduledFuture<?> pendingReload;
+  private boolean commonChanged;
+  private boolean environmentChanged;
+  private long firstChangeNanos;
+
+  private volatile long reloadCount;
+  private volatile long lastReloadLatencyNanos;
+  private volatile long maxReloadLatencyNanos;
+
+
+  private YamlConfigurationReloader(String key, YamlConfiguration layerLoader, YamlConfigurationCache cache,
+      String commonFilename, String environmentFilename, Path commonPath, Path environmentPath,
+      ConfigurationSnapshot initialSnapshot) throws IOException {
+    this.key = key;
+    this.users.add(new WeakReference<YamlConfiguration>(layerLoader));
+    this.cache = cache;
+    this.commonFilename = commonFilename;
+    this.environmentFilename = environmentFilename;
+    this.commonKey = layerLoader.getConfigurationKey(commonFilename);
+    this.environmentKey = layerLoader.getConfigurationKey(environmentFilename);
+    this.commonPath = commonPath;
+    this.environmentPath = environmentPath;
+    this.debounceMillis = Long.getLong(DEBOUNCE_PROPERTY, DEFAULT_DEBOUNCE_MILLIS);
+    this.current = new AtomicReference<ConfigurationSnapshot>(initialSnapshot);
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.debounceExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("yaml-reload"));
+    watchFiles(layerLoader);
+    this.watchThread = daemonThreads("yaml-watch").newThread(this::watchForChanges);
+    this.watchThread.start();
+  }
+
+  /**
+   * Return the reloader for the files the given configuration resolves to, with the
+   * snapshot's overrides and the configuration's loading settings, starting one if 
+   * there isn't one already.  The configuration is one of the reloader's users until 
+   * it calls release().
+   *
+   * @param commonFilename as returned by getCommonYamlFilename()
+   * @param environmentFilename as returned by getEnvironmentYamlFilename()
+   * @return the reloader, or null if neither file can be watched
+   */
+  static synchronized YamlConfigurationReloader watch(YamlConfiguration configuration,
+      YamlConfigurationCache cache, String commonFilename, String environmentFilename,
+      ConfigurationSnapshot initialSnapshot) throws IOException {
+    Path commonPath = toPath(configuration.getYamlFileResource(commonFilename));
+    Path environmentPath = toPath(configuration.getYamlFileResource(environmentFilename));
+    if (commonPath == null && environmentPath == null) {
+      LOGGER.debug("Neither '{}' nor '{}' can be watched", commonFilename, environmentFilename);
+      return null;
+    }
+    String key = configuration.getConfigurationKey(commonFilename) + "|"
+        + configuration.getConfigurationKey(environmentFilename) + "|" + initialSnapshot.overrides().key()
+        + "|" + configuration.loadingSettings();
+    YamlConfigurationReloader reloader = RELOADERS.get(key);
+    if (reloader == null) {
+      LOGGER.debug("Watching '{}' and '{}' for changes", commonPath, environmentPath);
+      reloader = new YamlConfigurationReloader(key, configuration, cache, commonFilename,
+          environmentFilename, commonPath, environmentPath, initialSnapshot);
+      RELOADERS.put(key, reloader);
+    } else if (reloader.users.stream().noneMatch(user -> user.get() == configuration)) {
+      reloader.users.add(new WeakReference<YamlConfiguration>(configuration));
+    }
+    return reloader;
+  }
+
+  /**
+   * The configuration no longer reads through the reloader, if it was the last one 
+   * the reloader stops
+   */
+  static synchronized void release(YamlConfigurationReloader reloader, YamlConfiguration configuration) {
+    reloader.users.removeIf(user -> user.get() == null || user.get() == configuration);
+    if (reloader.users.isEmpty()) {
+      reloader.stop();
+      RELOADERS.remove(reloader.key, reloader);
+    }
+  }
+
+  /**
+   * Stop every reloader in the JVM, configurations using them keep their last snapshot
+   */
+  public static synchronized void stopAll() {
+    for (YamlConfigurationReloader reloader : RELOADERS.values()) {
+      reloader.stop();
+    }
+    RELOADERS.clear();
+  }
+
+  /**
+   * @return the most recently published snapshot
+   */
+  ConfigurationSnapshot current() {
+    return current.get();
+  }
+
+  public long reloadCount() {
+    return reloadCount;
+  }
+
+  /**
+   * @return time from the first change being noticed to the new snapshot being
+   *         published for the last reload, including the debounce period
+   */
+  public long lastReloadLatencyNanos() {
+    return lastReloadLatencyNanos;
+  }
+
+  public long maxReloadLatencyNanos() {
+    return maxReloadLatencyNanos;
+  }
+
+  /**
+   * @return true until the reloader has been stopped
+   */
+  public boolean isRunning() {
+    return !debounceExecutor.isShutdown();
+  }
+
+  /**
+   * @return a configuration to load with, or null if they've all gone
+   */
+  private YamlConfiguration layerLoader() {
+    synchronized (YamlConfigurationReloader.class) {
+      users.removeIf(user -> user.get() == null);
+      return users.isEmpty() ? null : users.get(0).get();
+    }
+  }
+
+  private void stop() {
+    LOGGER.debug("Stopping watching '{}' and '{}'", commonPath, environmentPath);
+    debounceExecutor.shutdownNow();
+    try {
+      watchService.close();
+    } catch (IOException ie) {
+      LOGGER.error("Failed to close the watch service");
+    }
+  }
+
+  /**
+   * Work out which files make up each layer and watch the directories they're in, 
+   * no longer watching any directory that doesn't hold one of them
+   */
+  private synchronized void watchFiles(YamlConfiguration layerLoader) throws IOException {
+    Set<Path> newCommonFiles = layerFiles(layerLoader, commonFilename, commonPath);
+    Set<Path> newEnvironmentFiles = layerFiles(layerLoader, environmentFilename, environmentPath);
+    Set<Path> directories = new HashSet<Path>();
+    for (Path file : newCommonFiles) {
+      directories.add(file.getParent());
+    }
+    for (Path file : newEnvironmentFiles) {
+      directories.add(file.getParent());
+    }
+    for (Path directory : directories) {
+      if (!watchedDirectories.containsKey(directory)) {
+        watchedDirectories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY));
+      }
+    }
+    Iterator<Map.Entry<Path, WatchKey>> watched = watchedDirectories.entrySet().iterator();
+    while (watched.hasNext()) {
+      Map.Entry<Path, WatchKey> entry = watched.next();
+      if (!directories.contains(entry.getKey())) {
+        entry.getValue().cancel();
+        watched.remove();
+      }
+    }
+    commonFiles = newCommonFiles;
+    environmentFiles = newEnvironmentFiles;
+  }
+
+  /**
+   * @return the layer's own file, if it can be watched, and every file it includes 
+   *         that can be
+   */
+  private static Set<Path> layerFiles(YamlConfiguration layerLoader, String filename, Path path) throws IOException {
+    Set<Path> files = new HashSet<Path>();
+    if (path != null) {
+      files.add(path);
+    }
+    for (String included : new ConfigurationIncludes(layerLoader).includedFiles(filename)) {
+      Path includedPath = toPath(layerLoader.getYamlFileResource(included));
+      if (includedPath != null) {
+        files.add(includedPath);
+      }
+    }
+    return files;
+  }
+
+  private void watchForChanges() {
+    try {
+      while (true) {
+        WatchKey watchKey = watchService.take();
+        Path directory = (Path)watchKey.watchable();
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+          if (event.context() instanceof Path) {
+            fileChanged(directory.resolve((Path)event.context()));
+          }
+        }
+        watchKey.reset();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException cwse) {
+      LOGGER.debug("Watch service closed");
+    }
+  }
+
+  private void fileChanged(Path changedFile) {
+    final boolean common = commonFiles.contains(changedFile);
+    final boolean environment = environmentFiles.contains(changedFile);
+    if (common || environment) {
+      final long noticedNanos = System.nanoTime();
+      debounceExecutor.execute(() -> scheduleReload(common, environment, noticedNanos));
+    }
+  }
+
+  private void scheduleReload(boolean common, boolean environment, long noticedNanos) {
+    if (pendingReload == null) {
+      firstChangeNanos = noticedNanos;
+    } else {
+      pendingReload.cancel(false);
+    }
+    commonChanged |= common;
+    environmentChanged |= environment;
+    pendingReload = debounceExecutor.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void reload() {
+    boolean reloadCommon = commonChanged;
+    boolean reloadEnvironment = environmentChanged;
+    long startNanos = firstChangeNanos;
+    pendingReload = null;
+    commonChanged = false;
+    environmentChanged = false;
+    YamlConfiguration layerLoader = layerLoader();
+    if (layerLoader == null) {
+      LOGGER.debug("Nothing reads through the reloader any more, stopping");
+      release(this, null);
+      return;
+    }
+    try {
+      ConfigurationSnapshot snapshot = current.get();
+      if (reloadCommon) {
+        snapshot = snapshot.withCommonLayer(layerLoader.loadLayer(commonFilename));
+      }
+      if (reloadEnvironment) {
+        snapshot = snapshot.withEnvironmentLayer(layerLoader.loadLayer(environmentFilename));
+      }
+      snapshot = layerLoader.validate(snapshot);
+      current.set(snapshot);
+      cache.put(commonKey, environmentKey, layerLoader.isLazyLoading(), snapshot);
+      watchFiles(layerLoader);
+      recordReload(System.nanoTime() - startNanos);
+      LOGGER.debug("Reloaded configuration, common: {}, environment: {}", reloadCommon, reloadEnvironment);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Failed to reload configuration, keeping the previous one", e);
+    }
+  }
+
+  private void recordReload(long latencyNanos) {
+    lastReloadLatencyNanos = latencyNanos;
+    if (latencyNanos > maxReloadLatencyNanos) {
+      maxReloadLatencyNanos = latencyNanos;
+    }
+    reloadCount++;
+  }
+
+  private static Path toPath(URL resource) throws IOException {
+    Path path = null;
+    if (resource != null && "file".equals(resource.getProtocol())) {
+      try {
+        path = Paths.get(resource.toURI()).toAbsolutePath();
+      } catch (URISyntaxException use) {
+        throw new IOException("Can't watch resource " + resource, use);
+      }
+    } else if (resource != null) {
+      LOGGER.debug("Can't watch '{}' as it isn't a file", resource);
+    }
+    return path;
+  }
+
+  private static ThreadFactory daemonThreads(final String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,46 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Turns Yaml text into the tree YamlConfiguration reads from.
+ *
+ * Backends are found with ServiceLoader, so another one can be added by putting a
+ * jar on the classpath that lists it in
+ * META-INF/services/com.hiklas.cucumber.quickstart.utils.YamlParserBackend.  The one
+ * used is picked by name with the yaml.config.parser system property or
+ * YamlConfiguration.setParserBackend().
+ *
+ * Every backend has to give back exactly the same tree for the same text, otherwise
+ * switching backends would change what the configuration says.  That tree is the one
+ * yamlbeans has always given:
+ *
+ *   - mappings are Maps and sequences are Lists
+ *   - every scalar is a String, as written, so 12, true, ~ and null are all strings
+ *     and an empty value is ""
+ *   - tags are ignored and << isn't a merge, it's just another key
+ *   - an alias is the same object as its anchor
+ *   - literal and folded block scalars lose their last line break unless they're
+ *     kept with |+ or >+
+ *   - only the first document is read, an empty one is null
+ *
+ * Backends are shared between threads so mustn't keep any state between calls.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+public interface YamlParserBackend {
+
+  /**
+   * @return what this backend is picked by
+   */
+  String name();
+
+  /**
+   * @return the first document in the Yaml, a Map, List or String, or null if
+   *         there isn't one
+   * @throws IOException if the Yaml can't be read or isn't valid
+   */
+  Object parse(Reader yaml) throws IOException;
+}
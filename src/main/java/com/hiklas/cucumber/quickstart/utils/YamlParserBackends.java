@@ -0,0 +1,72 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * The YamlParserBackends found on the classpath, looked up by name.
+ *
+ * They're found once with ServiceLoader the first time one is asked for, the
+ * classpath doesn't change while the JVM is running.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class YamlParserBackends {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(YamlParserBackends.class);
+
+  static final String DEFAULT_BACKEND = SnakeYamlParserBackend.NAME;
+
+  private YamlParserBackends() {
+  }
+
+  /**
+   * @return the backend picked with yaml.config.parser, or the default
+   */
+  static YamlParserBackend fromSystemProperties() {
+    return named(System.getProperty(YamlConfiguration.PARSER_PROPERTY, DEFAULT_BACKEND));
+  }
+
+  /**
+   * @throws IllegalArgumentException if there's no backend with that name
+   */
+  static YamlParserBackend named(String name) {
+    YamlParserBackend backend = Found.BACKENDS.get(name);
+    if (backend == null) {
+      throw new IllegalArgumentException("No Yaml parser backend called '" + name + "', there's " + names());
+    }
+    return backend;
+  }
+
+  static Set<String> names() {
+    return Found.BACKENDS.keySet();
+  }
+
+
+  /**
+   * Holds the backends so they're only looked for when first needed
+   */
+  private static final class Found {
+
+    private static final Map<String, YamlParserBackend> BACKENDS = load();
+
+    private static Map<String, YamlParserBackend> load() {
+      Map<String, YamlParserBackend> backends = new LinkedHashMap<String, YamlParserBackend>();
+      for (YamlParserBackend backend : ServiceLoader.load(YamlParserBackend.class, YamlParserBackend.class.getClassLoader())) {
+        if (backends.putIfAbsent(backend.name(), backend) != null) {
+          LOGGER.warn("Ignoring {}, there's already a Yaml parser backend called '{}'",
+              backend.getClass().getName(), backend.name());
+        }
+      }
+      LOGGER.debug("Found Yaml parser backends {}", backends.keySet());
+      return Collections.unmodifiableMap(backends);
+    }
+  }
+}
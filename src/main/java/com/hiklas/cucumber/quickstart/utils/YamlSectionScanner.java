@@ -0,0 +1,185 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds where each top-level key starts and ends in a Yaml file without parsing it.
+ *
+ * Any line starting in the first column, that isn't a comment, starts a new
+ * top-level key and everything up to the next one belongs to it.  That's all that's
+ * needed to parse one section on its own later, see LazyConfigurationMap.
+ *
+ * Anything the scanner isn't sure about makes it give up and return null, the file
+ * is then parsed in one go as usual.  That covers files that aren't a block mapping
+ * at the top, directives, complex keys, quoted keys with escapes and anchors or
+ * aliases, which could point from one section into another.  Only the first document
+ * in a file is scanned, which is all the Yaml parser reads.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+final class YamlSectionScanner {
+
+  private YamlSectionScanner() {
+  }
+
+  /**
+   * @return the sections in the order they appear, or null if the file can't be
+   *         split safely
+   */
+  static List<Section> scan(byte[] yaml) {
+    List<Section> sections = new ArrayList<Section>();
+    String currentKey = null;
+    int currentStart = 0;
+    int lineStart = hasByteOrderMark(yaml) ? 3 : 0;
+    int end = yaml.length;
+    while (lineStart < yaml.length) {
+      int lineEnd = endOfLine(yaml, lineStart);
+      byte first = yaml[lineStart];
+      if (hasAnchorOrAlias(yaml, lineStart, lineEnd)) {
+        return null;
+      }
+      if (startsWith(yaml, lineStart, lineEnd, "---") || startsWith(yaml, lineStart, lineEnd, "...")) {
+        if (currentKey != null) {
+          end = lineStart;
+          break;
+        }
+      } else if (!isContinuation(first)) {
+        String key = readKey(yaml, lineStart, lineEnd);
+        if (key == null) {
+          return null;
+        }
+        if (currentKey != null) {
+          sections.add(new Section(currentKey, currentStart, lineStart));
+        }
+        currentKey = key;
+        currentStart = lineStart;
+      }
+      lineStart = nextLine(yaml, lineEnd);
+    }
+    if (currentKey != null) {
+      sections.add(new Section(currentKey, currentStart, end));
+    }
+    return sections;
+  }
+
+  private static boolean hasByteOrderMark(byte[] yaml) {
+    return yaml.length >= 3 && yaml[0] == (byte)0xEF && yaml[1] == (byte)0xBB && yaml[2] == (byte)0xBF;
+  }
+
+  private static boolean isContinuation(byte first) {
+    return first == ' ' || first == '\t' || first == '#' || first == '\r' || first == '\n';
+  }
+
+  private static String readKey(byte[] yaml, int lineStart, int lineEnd) {
+    byte first = yaml[lineStart];
+    if (first == '-' || first == '[' || first == '{' || first == '%' || first == '?'
+        || first == '!' || first == '|' || first == '>') {
+      return null;
+    }
+    int colon = -1;
+    int keyStart = lineStart;
+    int keyEnd;
+    if (first == '\'' || first == '"') {
+      int quoteEnd = indexOf(yaml, first, lineStart + 1, lineEnd);
+      if (quoteEnd < 0 || indexOf(yaml, (byte)'\\', lineStart, quoteEnd) >= 0
+          || (first == '\'' && quoteEnd + 1 < lineEnd && yaml[quoteEnd + 1] == '\'')) {
+        return null;
+      }
+      keyStart = lineStart + 1;
+      keyEnd = quoteEnd;
+      colon = quoteEnd + 1 < lineEnd && yaml[quoteEnd + 1] == ':' ? quoteEnd + 1 : -1;
+    } else {
+      for (int index = lineStart; index < lineEnd; index++) {
+        if (yaml[index] == ':' && (index + 1 == lineEnd || yaml[index + 1] == ' ' || yaml[index + 1] == '\t')) {
+          colon = index;
+          break;
+        }
+      }
+      keyEnd = colon;
+      while (keyEnd > keyStart && (yaml[keyEnd - 1] == ' ' || yaml[keyEnd - 1] == '\t')) {
+        keyEnd--;
+      }
+    }
+    if (colon < 0) {
+      return null;
+    }
+    return new String(yaml, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Deliberately cautious, anything that looks like it could be an anchor or alias
+   * counts, even inside a quoted string
+   */
+  private static boolean hasAnchorOrAlias(byte[] yaml, int lineStart, int lineEnd) {
+    for (int index = lineStart; index + 1 < lineEnd; index++) {
+      byte character = yaml[index];
+      if ((character == '&' || character == '*')
+          && (index == lineStart || yaml[index - 1] == ' ' || yaml[index - 1] == '\t')
+          && yaml[index + 1] != ' ') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean startsWith(byte[] yaml, int lineStart, int lineEnd, String marker) {
+    if (lineEnd - lineStart < marker.length()) {
+      return false;
+    }
+    for (int index = 0; index < marker.length(); index++) {
+      if (yaml[lineStart + index] != marker.charAt(index)) {
+        return false;
+      }
+    }
+    return lineEnd - lineStart == marker.length() || yaml[lineStart + marker.length()] == ' ';
+  }
+
+  private static int indexOf(byte[] yaml, byte wanted, int from, int to) {
+    for (int index = from; index < to; index++) {
+      if (yaml[index] == wanted) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private static int endOfLine(byte[] yaml, int lineStart) {
+    int index = lineStart;
+    while (index < yaml.length && yaml[index] != '\n' && yaml[index] != '\r') {
+      index++;
+    }
+    return index;
+  }
+
+  private static int nextLine(byte[] yaml, int lineEnd) {
+    int index = lineEnd;
+    if (index < yaml.length && yaml[index] == '\r') {
+      index++;
+    }
+    if (index < yaml.length && yaml[index] == '\n') {
+      index++;
+    }
+    return index;
+  }
+
+
+  /**
+   * A top-level key and the bytes it covers, from the start of its line up to the
+   * start of the next top-level key
+   */
+  static final class Section {
+
+    final String key;
+    final int start;
+    final int end;
+
+    Section(String key, int start, int end) {
+      this.key = key;
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
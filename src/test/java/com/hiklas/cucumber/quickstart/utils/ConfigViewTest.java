@@ -0,0 +1,184 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ConfigViewTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  @ConfigView
+  public interface ScreenInfo {
+    String url();
+    String title();
+    List<String> checkForIds();
+    @ConfigKey("get_here_by")
+    String method();
+    List<String> formData();
+  }
+
+  @ConfigView
+  public interface Selenium {
+    String browser();
+  }
+
+  @ConfigView
+  public interface WebpageClient {
+    String baseUrl();
+    String defaultClient();
+    Selenium selenium();
+  }
+
+  @ConfigView
+  public interface Settings {
+    String proxyUrl();
+    int proxyPort();
+    long restTimeout();
+    boolean verbose();
+    WebpageClient webpageClient();
+    Map<String, ScreenInfo> screens();
+    Map<String, List<String>> elementGroups();
+  }
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.loadConfiguration();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_screen_view() {
+    ScreenInfo userDetails = configuration.view(ScreenInfo.class, YamlConfiguration.SCREENS, "User Details");
+
+    assertThat(userDetails.url(), equalTo("/user"));
+    assertThat(userDetails.title(), equalTo("User details"));
+    assertThat(userDetails.method(), equalTo("POST"));
+    assertThat(userDetails.formData().size(), equalTo(6));
+    assertThat(userDetails.checkForIds().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_view_bound_once() {
+    ScreenInfo search = configuration.view(ScreenInfo.class, YamlConfiguration.SCREENS, "Search");
+
+    assertThat(configuration.view(ScreenInfo.class, YamlConfiguration.SCREENS, "Search"), sameInstance(search));
+    assertThat(search.checkForIds(), equalTo(Arrays.asList("input-name", "name-label", "id-label")));
+  }
+
+  @Test
+  public void test_view_of_whole_configuration() {
+    Settings settings = configuration.view(Settings.class);
+
+    assertThat(settings.proxyUrl(), equalTo("127.0.0.1"));
+    assertThat(settings.proxyPort(), equalTo(28080));
+    assertThat(settings.restTimeout(), equalTo(60L));
+    assertThat(settings.verbose(), equalTo(false));
+    assertThat(settings.webpageClient().baseUrl(), equalTo("ankhmorpork:8700"));
+    assertThat(settings.webpageClient().selenium().browser(), equalTo("FIREFOX"));
+    assertThat(settings.screens().keySet(), contains("Search", "User Details"));
+    assertThat(settings.screens().get("User Details").url(), equalTo("/user"));
+    assertThat(settings.elementGroups().get("Discworld").size(), equalTo(3));
+  }
+
+  @Test
+  public void test_view_of_missing_path_is_empty() {
+    ScreenInfo missing = configuration.view(ScreenInfo.class, YamlConfiguration.SCREENS, "Unseen University");
+
+    assertThat(missing.url(), equalTo(""));
+    assertThat(missing.formData().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_generated_implementation_name() {
+    ScreenInfo search = configuration.view(ScreenInfo.class, YamlConfiguration.SCREENS, "Search");
+
+    assertThat(search.getClass().getName(), 
+        equalTo("com.hiklas.cucumber.quickstart.utils.ConfigViewTest_ScreenInfoConfigView"));
+    assertThat(search.toString(), containsString("url=/"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_unparseable_number_fails_bind() {
+    Map<String, Object> settings = new HashMap<String, Object>();
+    settings.put("proxy_port", "eighty");
+
+    ConfigViews.bind(Settings.class, settings);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_view_must_be_annotated() {
+    configuration.view(Runnable.class);
+  }
+
+  @Test
+  public void test_processor_rejects_unsupported_types() throws Exception {
+    Path source = temporaryFolder.getRoot().toPath().resolve("BadView.java");
+    Files.write(source, ("@com.hiklas.cucumber.quickstart.utils.ConfigView\n" +
+        "public interface BadView {\n  Object anything();\n}\n").getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+    int result = compile(source, errors);
+
+    assertThat(result, not(equalTo(0)));
+    assertThat(errors.toString(), containsString("@ConfigView methods need no parameters"));
+  }
+
+  @Test
+  public void test_processor_rejects_classes() throws Exception {
+    Path source = temporaryFolder.getRoot().toPath().resolve("BadView.java");
+    Files.write(source, ("@com.hiklas.cucumber.quickstart.utils.ConfigView\n" +
+        "public class BadView {\n}\n").getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+    int result = compile(source, errors);
+
+    assertThat(result, not(equalTo(0)));
+    assertThat(errors.toString(), containsString("@ConfigView can only be used on an interface"));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private int compile(Path source, ByteArrayOutputStream errors) throws Exception {
+    String mainClasses = Paths.get(ConfigViewProcessor.class.getProtectionDomain()
+        .getCodeSource().getLocation().toURI()).toString();
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    return javac.run(null, null, errors, "-classpath", mainClasses,
+        "-processor", ConfigViewProcessor.class.getName(),
+        "-d", temporaryFolder.getRoot().toString(), source.toString());
+  }
+}
@@ -0,0 +1,190 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ConfigurationDiskCacheTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private AtomicInteger parseCount;
+
+  @Before
+  public void setupProperties() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    cacheDirectory = temporaryFolder.newFolder("yaml-cache").toPath();
+    parseCount = new AtomicInteger();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_encode_decode_round_trip() throws Exception {
+    Map tree = new LinkedHashMap();
+    tree.put("screens", singletonMap("Search", singletonMap("url", "/")));
+    tree.put("ids", Arrays.asList("one", "two", "one"));
+    tree.put("empty", null);
+    tree.put("empty_list", Arrays.asList());
+
+    Map decoded = ConfigurationDiskCache.decode(ByteBuffer.wrap(ConfigurationDiskCache.encode(tree)));
+
+    assertThat(decoded, equalTo(tree));
+    assertThat(decoded, instanceOf(CompactMap.class));
+    List ids = (List)decoded.get("ids");
+    assertThat(ids.get(2), sameInstance(ids.get(0)));
+  }
+
+  @Test
+  public void test_unsupported_values_not_encoded() throws Exception {
+    assertThat(ConfigurationDiskCache.encode(singletonMap("port", 8080)), nullValue());
+  }
+
+  @Test(expected = IOException.class)
+  public void test_truncated_entry_rejected() throws Exception {
+    byte[] encoded = ConfigurationDiskCache.encode(singletonMap("url", "/"));
+    ConfigurationDiskCache.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 2)));
+  }
+
+  @Test
+  public void test_corrupt_lengths_rejected() throws Exception {
+    byte[] encoded = ConfigurationDiskCache.encode(singletonMap("ids", Arrays.asList("one", "two")));
+    // where the map's size, the key's length, the list's length and the first item's length are
+    for (int length : new int[] { -1, Integer.MAX_VALUE, encoded.length }) {
+      for (int offset : new int[] { 9, 14, 22, 27 }) {
+        ByteBuffer corrupt = ByteBuffer.wrap(encoded.clone());
+        corrupt.putInt(offset, length);
+        try {
+          ConfigurationDiskCache.decode(corrupt);
+          fail("Expected a length of " + length + " at " + offset + " to be rejected");
+        } catch (IOException ie) {
+          assertThat(ie.getMessage(), containsString("length of " + length));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void test_corrupt_length_read_as_a_miss() throws Exception {
+    ConfigurationDiskCache cache = new ConfigurationDiskCache(temporaryFolder.newFolder("corrupt").toPath());
+    byte[] encoded = ConfigurationDiskCache.encode(singletonMap("url", "/"));
+    ByteBuffer.wrap(encoded).putInt(9, Integer.MAX_VALUE);
+    Files.write(cache.entryFile("corrupt"), encoded);
+
+    assertThat(cache.read("corrupt"), nullValue());
+  }
+
+  @Test
+  public void test_second_load_read_from_disk() throws Exception {
+    Map parsed = newConfiguration().loadConfiguration();
+
+    assertThat(parseCount.get(), equalTo(2));
+    assertThat(cacheEntries().size(), equalTo(2));
+
+    Map cached = newConfiguration().loadConfiguration();
+
+    assertThat(parseCount.get(), equalTo(2));
+    assertThat(cached, equalTo(parsed));
+  }
+
+  @Test
+  public void test_changed_file_parsed_again() throws Exception {
+    Path configurationDirectory = temporaryFolder.newFolder("config").toPath();
+    write(configurationDirectory.resolve("test-common.yaml"), "messages:\n  not_registered: Not registered\n");
+    write(configurationDirectory.resolve("test-discworld.yaml"), "webpage_client:\n  base_url: ankhmorpork:8700\n");
+    newConfiguration(configurationDirectory).loadConfiguration();
+    write(configurationDirectory.resolve("test-common.yaml"), "messages:\n  not_registered: Still not registered\n");
+    YamlConfiguration configuration = newConfiguration(configurationDirectory);
+    configuration.loadConfiguration();
+
+    assertThat(configuration.message("not_registered"), equalTo("Still not registered"));
+    assertThat(cacheEntries().size(), equalTo(3));
+  }
+
+  @Test
+  public void test_corrupt_entry_ignored() throws Exception {
+    newConfiguration().loadConfiguration();
+    for (Path entry : cacheEntries()) {
+      write(entry, "not a cache entry");
+    }
+    YamlConfiguration configuration = newConfiguration();
+    configuration.loadConfiguration();
+
+    assertThat(parseCount.get(), equalTo(4));
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration() {
+    YamlConfiguration configuration = new YamlConfiguration() {
+      @Override
+      protected Map loadYaml(InputStream yamlInputStream) throws IOException {
+        if (yamlInputStream != null) {
+          parseCount.incrementAndGet();
+        }
+        return super.loadYaml(yamlInputStream);
+      }
+    };
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.setDiskCacheDirectory(cacheDirectory);
+    return configuration;
+  }
+
+  private YamlConfiguration newConfiguration(Path configurationDirectory) {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.setConfigurationDirectory(configurationDirectory);
+    return configuration;
+  }
+
+  private List<Path> cacheEntries() throws IOException {
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      return files.filter(file -> file.toString().endsWith(ConfigurationDiskCache.FILE_EXTENSION))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private void write(Path file, String contents) throws IOException {
+    Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Map singletonMap(Object key, Object value) {
+    Map map = new LinkedHashMap();
+    map.put(key, value);
+    return map;
+  }
+}
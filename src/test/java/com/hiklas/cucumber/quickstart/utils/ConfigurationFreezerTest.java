@@ -0,0 +1,121 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ConfigurationFreezerTest {
+
+  public static final String TEST_SCREEN_KEY = "User Details";
+  public static final String TEST_URL = "/user";
+
+  private ConfigurationFreezer freezerToTest;
+
+  @Before
+  public void setupFreezerToTest() {
+    freezerToTest = new ConfigurationFreezer();
+  }
+
+  @Test
+  public void test_frozen_map_equals_source() {
+    Map source = createScreens(3);
+
+    Map frozen = freezerToTest.freezeMap(source);
+
+    assertThat(frozen, equalTo(source));
+    assertThat(frozen, instanceOf(CompactMap.class));
+  }
+
+  @Test
+  public void test_large_frozen_map_equals_source() {
+    Map source = createScreens(CompactMap.LINEAR_SCAN_LIMIT * 20);
+
+    Map frozen = freezerToTest.freezeMap(source);
+
+    assertThat(frozen, equalTo(source));
+    assertThat(frozen.get(TEST_SCREEN_KEY + 42), equalTo(source.get(TEST_SCREEN_KEY + 42)));
+    assertThat(frozen.get("wibble"), nullValue());
+    assertThat(frozen.containsKey(TEST_SCREEN_KEY + 0), equalTo(true));
+  }
+
+  @Test
+  public void test_frozen_list_is_exact_copy() {
+    Map source = createScreens(1);
+
+    Map frozen = freezerToTest.freezeMap(source);
+    List checkForIds = (List)((Map)frozen.get(TEST_SCREEN_KEY + 0)).get(YamlConfiguration.CHECK_FOR_IDS);
+
+    assertThat(checkForIds, instanceOf(CompactList.class));
+    assertThat(checkForIds, equalTo((List)Arrays.asList("input-name", "name-label")));
+  }
+
+  @Test
+  public void test_keys_are_interned() {
+    Map source = new HashMap();
+    source.put(new String(YamlConfiguration.URL), TEST_URL);
+
+    Map frozen = freezerToTest.freezeMap(source);
+
+    assertThat(frozen.keySet().iterator().next(), sameInstance((Object)YamlConfiguration.URL));
+  }
+
+  @Test
+  public void test_null_values_are_kept() {
+    Map source = new HashMap();
+    source.put(YamlConfiguration.CHECK_FOR_IDS, null);
+
+    Map frozen = freezerToTest.freezeMap(source);
+
+    assertThat(frozen.containsKey(YamlConfiguration.CHECK_FOR_IDS), equalTo(true));
+    assertThat(frozen.get(YamlConfiguration.CHECK_FOR_IDS), nullValue());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void test_frozen_map_cannot_be_modified() {
+    Map frozen = freezerToTest.freezeMap(createScreens(1));
+    frozen.put(TEST_SCREEN_KEY, TEST_URL);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void test_frozen_list_cannot_be_modified() {
+    Map frozen = freezerToTest.freezeMap(createScreens(1));
+    List checkForIds = (List)((Map)frozen.get(TEST_SCREEN_KEY + 0)).get(YamlConfiguration.CHECK_FOR_IDS);
+    checkForIds.add("wibble");
+  }
+
+  @Test
+  public void test_frozen_footprint_is_smaller() {
+    Map source = createScreens(100);
+
+    long parsed = FootprintEstimator.estimate(source);
+    long frozen = FootprintEstimator.estimate(freezerToTest.freezeMap(source));
+
+    assertThat(frozen, lessThan(parsed));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Map createScreens(int count) {
+    Map screens = new HashMap();
+    for (int index = 0; index < count; index++) {
+      Map screen = new HashMap();
+      screen.put(new String(YamlConfiguration.URL), TEST_URL + index);
+      screen.put(new String(YamlConfiguration.CHECK_FOR_IDS),
+          new ArrayList(Arrays.asList(new String("input-name"), new String("name-label"))));
+      screens.put(TEST_SCREEN_KEY + index, screen);
+    }
+    return screens;
+  }
+}
@@ -0,0 +1,215 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes"})
+public class ConfigurationIncludesTest {
+
+  public static final String TEST_COMMON_FILE = "common";
+  public static final String TEST_ENVIRONMENT = "discworld";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private YamlConfigurationMetrics metrics;
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    ConfigurationIncludes.clear();
+    directory = temporaryFolder.getRoot().toPath();
+    metrics = new YamlConfigurationMetrics();
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.setMetrics(metrics);
+    configuration.setConfigurationDirectory(directory);
+    write("discworld.yaml", 
+        "webpage_client:\n" +
+        "  base_url: ankhmorpork:8700\n");
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_included_screens_merged() throws Exception {
+    write("common.yaml", 
+        "include:\n" +
+        "  - screens/search.yaml\n" +
+        "  - screens/accounts.yaml\n" +
+        "screens:\n" +
+        "  Search:\n" +
+        "    title: Search again\n");
+    write("screens/search.yaml", 
+        "screens:\n" +
+        "  Search:\n" +
+        "    url: /\n" +
+        "    title: Search\n");
+    write("screens/accounts.yaml", 
+        "screens:\n" +
+        "  Accounts:\n" +
+        "    url: /accounts\n");
+    configuration.loadConfiguration();
+
+    assertThat(configuration.url_for("Search"), equalTo("/"));
+    assertThat(configuration.title_for("Search"), equalTo("Search again"));
+    assertThat(configuration.url_for("Accounts"), equalTo("/accounts"));
+    assertThat(configuration.get(YamlConfiguration.INCLUDE), nullValue());
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+  @Test
+  public void test_shared_include_parsed_once() throws Exception {
+    write("common.yaml", "include: [a.yaml, b.yaml]\n");
+    write("a.yaml", "include: shared/messages.yaml\na: one\n");
+    write("b.yaml", "include: /shared/messages.yaml\nb: two\n");
+    write("shared/messages.yaml", "messages:\n  not_registered: Not registered\n");
+    configuration.loadConfiguration();
+
+    assertThat(configuration.message("not_registered"), equalTo("Not registered"));
+    assertThat(loadCount("shared/messages.yaml"), equalTo(1L));
+
+    YamlConfiguration another = new YamlConfiguration();
+    another.setCache(new YamlConfigurationCache());
+    another.setMetrics(metrics);
+    another.setConfigurationDirectory(directory);
+    another.loadConfiguration();
+
+    assertThat(loadCount("shared/messages.yaml"), equalTo(1L));
+    assertThat(loadCount("a.yaml"), equalTo(1L));
+  }
+
+  @Test
+  public void test_changed_include_parsed_again() throws Exception {
+    write("common.yaml", "include: messages.yaml\n");
+    write("messages.yaml", "messages:\n  not_registered: Not registered\n");
+    configuration.loadConfiguration();
+    write("messages.yaml", "messages:\n  not_registered: Still not registered\n");
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.loadConfiguration();
+
+    assertThat(configuration.message("not_registered"), equalTo("Still not registered"));
+    assertThat(loadCount("messages.yaml"), equalTo(2L));
+  }
+
+  @Test
+  public void test_cycle_reported() throws Exception {
+    write("common.yaml", "include: a.yaml\n");
+    write("a.yaml", "include: b/b.yaml\n");
+    write("b/b.yaml", "include: ../a.yaml\n");
+    try {
+      configuration.loadConfiguration();
+      fail("Expected the cycle to be reported");
+    } catch (IOException ie) {
+      assertThat(ie.getMessage(), containsString("/common.yaml -> /a.yaml -> /b/b.yaml -> /a.yaml"));
+    }
+  }
+
+  @Test
+  public void test_missing_include_reported() throws Exception {
+    write("common.yaml", "include: nowhere.yaml\n");
+    try {
+      configuration.loadConfiguration();
+      fail("Expected the missing file to be reported");
+    } catch (FileNotFoundException fnfe) {
+      assertThat(fnfe.getMessage(), containsString("'/nowhere.yaml'"));
+    }
+  }
+
+  @Test
+  public void test_include_from_lazy_layer() throws Exception {
+    write("common.yaml", 
+        "include: screens.yaml\n" +
+        "messages:\n" +
+        "  not_registered: Not registered\n");
+    write("screens.yaml", "screens:\n  Search:\n    url: /\n");
+    configuration.enableLazyLoading();
+    configuration.loadConfiguration();
+
+    assertThat(configuration.url_for("Search"), equalTo("/"));
+    assertThat(configuration.message("not_registered"), equalTo("Not registered"));
+  }
+
+  @Test
+  public void test_lazy_layer_stays_lazy() throws Exception {
+    write("common.yaml", 
+        "include: screens.yaml\n" +
+        "messages:\n" +
+        "  not_registered: Not registered\n" +
+        "screens:\n" +
+        "  Search:\n" +
+        "    title: Search again\n");
+    write("screens.yaml", "screens:\n  Search:\n    url: /\n  Accounts:\n    url: /accounts\n");
+    configuration.enableLazyLoading();
+    Map layer = configuration.loadLayer("/common.yaml");
+
+    assertThat(layer, instanceOf(LazyConfigurationMap.class));
+    assertThat(((LazyConfigurationMap)layer).parsedSectionCount(), equalTo(0));
+    assertThat(layer.containsKey(YamlConfiguration.INCLUDE), equalTo(false));
+
+    Map search = (Map)((Map)layer.get(YamlConfiguration.SCREENS)).get("Search");
+    assertThat(search.get(YamlConfiguration.URL), equalTo((Object)"/"));
+    assertThat(search.get(YamlConfiguration.TITLE), equalTo((Object)"Search again"));
+    assertThat(((Map)layer.get(YamlConfiguration.SCREENS)).containsKey("Accounts"), equalTo(true));
+    assertThat(((LazyConfigurationMap)layer).parsedSectionCount(), equalTo(1));
+  }
+
+  @Test
+  public void test_names_resolved() {
+    assertThat(ConfigurationIncludes.resolveName("/common.yaml", "screens/a.yaml"), equalTo("/screens/a.yaml"));
+    assertThat(ConfigurationIncludes.resolveName("/screens/a.yaml", "b.yaml"), equalTo("/screens/b.yaml"));
+    assertThat(ConfigurationIncludes.resolveName("/screens/a.yaml", "./../b.yaml"), equalTo("/b.yaml"));
+    assertThat(ConfigurationIncludes.resolveName("/screens/a.yaml", "/b.yaml"), equalTo("/b.yaml"));
+  }
+
+  @Test
+  public void test_included_from_classpath() throws Exception {
+    YamlConfiguration classpathConfiguration = new YamlConfiguration();
+    classpathConfiguration.setCache(new YamlConfigurationCache());
+    Map including = Collections.singletonMap(YamlConfiguration.INCLUDE, Arrays.asList("test-lancre.yaml"));
+    Map layer = new ConfigurationIncludes(classpathConfiguration).resolve("/included.yaml", including);
+
+    assertThat(((Map)layer.get(YamlConfiguration.WEBPAGE_CLIENT)).get(YamlConfiguration.BASE_URL), 
+        equalTo((Object)"lancre:8700"));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private void write(String filename, String yaml) throws IOException {
+    Path file = directory.resolve(filename);
+    Files.createDirectories(file.getParent());
+    Files.write(file, yaml.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private long loadCount(String filename) {
+    YamlConfigurationMetrics.FileStatistics statistics = 
+        metrics.snapshot().file(directory.resolve(filename).toAbsolutePath().toString());
+    return statistics == null ? 0 : statistics.loadCount();
+  }
+}
@@ -0,0 +1,215 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes"})
+public class ConfigurationInterpolatorTest {
+
+  public static final String TEST_COMMON_YAML =
+      "webpage_client:\n" +
+      "  base_url: localhost:8700\n" +
+      "api_url: ${webpage_client/base_url}/api\n" +
+      "screens:\n" +
+      "  Search:\n" +
+      "    url: /\n" +
+      "    title: Search\n" +
+      "  User Details:\n" +
+      "    url: /user\n" +
+      "    title: ${screens/Search/title} results\n" +
+      "messages:\n" +
+      "    not_registered: 'This customer is not yet registered'\n";
+
+  public static final String TEST_ENVIRONMENT_YAML =
+      "webpage_client:\n" +
+      "  base_url: http://ankhmorpork:8700\n";
+
+  @Test
+  public void test_references_replaced() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml(TEST_COMMON_YAML));
+
+    assertThat(tree.get("api_url"), equalTo((Object)"localhost:8700/api"));
+    assertThat(((Map)((Map)tree.get("screens")).get("User Details")).get("title"), 
+        equalTo((Object)"Search results"));
+  }
+
+  @Test
+  public void test_unchanged_sections_shared() throws Exception {
+    Map original = yaml(TEST_COMMON_YAML);
+    Map tree = ConfigurationInterpolator.interpolate(original);
+
+    assertThat(tree.get("messages"), sameInstance(original.get("messages")));
+    assertThat(tree.get("webpage_client"), sameInstance(original.get("webpage_client")));
+  }
+
+  @Test
+  public void test_whole_value_reference_keeps_type() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml(
+        "ids: [one, two]\n" +
+        "copy: ${ids}\n"));
+
+    assertThat((List)tree.get("copy"), equalTo((List)Arrays.asList("one", "two")));
+  }
+
+  @Test
+  public void test_chained_references() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml(
+        "a: ${b}/a\n" +
+        "b: ${c}/b\n" +
+        "c: c\n"));
+
+    assertThat(tree.get("a"), equalTo((Object)"c/b/a"));
+  }
+
+  @Test
+  public void test_cycle_reported() throws Exception {
+    try {
+      ConfigurationInterpolator.interpolate(yaml(
+          "a: ${b}\n" +
+          "b: x${c}\n" +
+          "c: ${a}\n"));
+      fail("Expected the cycle to be reported");
+    } catch (ConfigurationReferenceCycleException cycle) {
+      assertThat(cycle.getMessage(), containsString("b -> c -> a -> b"));
+      assertThat(cycle.cycle(), contains("b", "c", "a", "b"));
+    }
+  }
+
+  @Test
+  public void test_cycle_thrown_from_load() throws Exception {
+    YamlConfiguration configuration = cyclicConfiguration();
+    try {
+      configuration.loadConfiguration();
+      fail("Expected the cycle to be reported");
+    } catch (ConfigurationReferenceCycleException cycle) {
+      assertThat(cycle.cycle(), anyOf(contains("a", "b", "a"), contains("b", "a", "b")));
+    }
+  }
+
+  @Test
+  public void test_cycle_thrown_from_await() throws Exception {
+    YamlConfiguration configuration = cyclicConfiguration();
+    configuration.loadConfigurationAsync();
+    try {
+      configuration.awaitConfiguration();
+      fail("Expected the cycle to be reported");
+    } catch (ConfigurationReferenceCycleException cycle) {
+      assertThat(cycle.cycle(), anyOf(contains("a", "b", "a"), contains("b", "a", "b")));
+    }
+  }
+
+  @Test
+  public void test_missing_reference_left_alone() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml("a: x ${no/such/key} y\n"));
+
+    assertThat(tree.get("a"), equalTo((Object)"x ${no/such/key} y"));
+  }
+
+  @Test
+  public void test_reference_to_key_with_dots() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml(
+        "hosts:\n" +
+        "  ankhmorpork.example.com: 8700\n" +
+        "port: ${hosts/ankhmorpork.example.com}\n"));
+
+    assertThat(tree.get("port"), equalTo((Object)"8700"));
+  }
+
+  @Test
+  public void test_escaped_reference() throws Exception {
+    Map tree = ConfigurationInterpolator.interpolate(yaml(
+        "a: $${b} and ${b}\n" +
+        "b: bee\n"));
+
+    assertThat(tree.get("a"), equalTo((Object)"${b} and bee"));
+  }
+
+  @Test
+  public void test_common_reference_resolved_against_environment() throws Exception {
+    YamlConfiguration configuration = YamlConfiguration.fromSnapshot(
+        ConfigurationSnapshot.of(yaml(TEST_COMMON_YAML), yaml(TEST_ENVIRONMENT_YAML)));
+
+    assertThat(configuration.get("api_url"), equalTo((Object)"http://ankhmorpork:8700/api"));
+    assertThat(configuration.absolute_url_for("User Details"), equalTo("http://ankhmorpork:8700/user"));
+    assertThat(configuration.title_for("User Details"), equalTo("Search results"));
+  }
+
+  @Test
+  public void test_overlay_resolves_common_sections_per_environment() throws Exception {
+    ConfigurationSnapshot base = ConfigurationSnapshot.of(yaml(TEST_COMMON_YAML), CompactMap.EMPTY);
+    ConfigurationSnapshot overlay = ConfigurationSnapshot.overlay(base, yaml(TEST_ENVIRONMENT_YAML));
+
+    assertThat(overlay.lookup("api_url"), equalTo((Object)"http://ankhmorpork:8700/api"));
+    assertThat(base.lookup("api_url"), equalTo((Object)"localhost:8700/api"));
+    assertThat(overlay.lookup("messages"), sameInstance(base.lookup("messages")));
+    assertThat(YamlConfiguration.fromSnapshot(overlay).absolute_url_for("Search"), 
+        equalTo("http://ankhmorpork:8700/"));
+  }
+
+  @Test
+  public void test_lazy_matches_eager() throws Exception {
+    ConfigurationSnapshot eager = ConfigurationSnapshot.of(yaml(TEST_COMMON_YAML), yaml(TEST_ENVIRONMENT_YAML));
+    ConfigurationSnapshot lazy = ConfigurationSnapshot.of(lazyYaml(TEST_COMMON_YAML), lazyYaml(TEST_ENVIRONMENT_YAML));
+
+    assertThat(lazy.lookup("api_url"), equalTo(eager.lookup("api_url")));
+    assertThat(lazy.tree(), equalTo(eager.tree()));
+  }
+
+  @Test
+  public void test_absolute_url_for_test_files() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, "test-common");
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, "test-discworld");
+    try {
+      YamlConfiguration configuration = new YamlConfiguration();
+      configuration.loadConfiguration();
+
+      assertThat(configuration.absolute_url_for("User Details"), equalTo("ankhmorpork:8700/user"));
+      assertThat(configuration.absolute_url_for("Unseen University"), equalTo(""));
+    } finally {
+      System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+      System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+    }
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Map yaml(String yaml) throws IOException {
+    return (Map)new ConfigurationFreezer().freeze(new YamlConfiguration().load(
+        new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  private YamlConfiguration cyclicConfiguration() {
+    YamlConfiguration configuration = new YamlConfiguration() {
+      @Override
+      Map loadCommonLayer() throws IOException {
+        return yaml("a: ${b}\nb: ${a}\n");
+      }
+
+      @Override
+      Map loadEnvironmentLayer() {
+        return CompactMap.EMPTY;
+      }
+    };
+    configuration.setCache(new YamlConfigurationCache());
+    return configuration;
+  }
+
+  private Map lazyYaml(String yaml) {
+    YamlConfiguration parser = new YamlConfiguration();
+    return LazyConfigurationMap.scan(yaml.getBytes(StandardCharsets.UTF_8), 
+        (bytes, start, end) -> parser.load(new ByteArrayInputStream(bytes, start, end - start)));
+  }
+}
@@ -0,0 +1,171 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ConfigurationOverridesTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  public static final String BASE_URL_OVERRIDE = ConfigurationOverrides.PROPERTY_PREFIX + "webpage_client.base_url";
+  public static final String BROWSER_OVERRIDE = ConfigurationOverrides.PROPERTY_PREFIX + "webpage_client.selenium.browser";
+
+  private YamlConfigurationCache cache;
+
+  @Before
+  public void setupProperties() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    cache = new YamlConfigurationCache();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+    System.clearProperty(BASE_URL_OVERRIDE);
+    System.clearProperty(BROWSER_OVERRIDE);
+  }
+
+  @Test
+  public void test_environment_variables_converted_to_paths() {
+    ConfigurationOverrides overrides = ConfigurationOverrides.from(new Properties(), 
+        environment("YAML_CFG_WEBPAGE_CLIENT__SELENIUM__BROWSER", "CHROME", "PATH", "/usr/bin"));
+
+    assertThat(overrides.values(), equalTo((Map)Collections.singletonMap("webpage_client.selenium.browser", "CHROME")));
+  }
+
+  @Test
+  public void test_system_overrides_read_again_only_when_changed() {
+    ConfigurationOverrides before = ConfigurationOverrides.fromSystem();
+    assertThat(ConfigurationOverrides.fromSystem(), sameInstance(before));
+
+    System.setProperty(BASE_URL_OVERRIDE, "lancre:9000");
+    ConfigurationOverrides added = ConfigurationOverrides.fromSystem();
+    assertThat(added.values().get("webpage_client.base_url"), equalTo("lancre:9000"));
+    assertThat(ConfigurationOverrides.fromSystem(), sameInstance(added));
+
+    System.setProperty(BASE_URL_OVERRIDE, "klatch:9000");
+    assertThat(ConfigurationOverrides.fromSystem().values().get("webpage_client.base_url"), equalTo("klatch:9000"));
+
+    System.clearProperty(BASE_URL_OVERRIDE);
+    assertThat(ConfigurationOverrides.fromSystem().key(), equalTo(before.key()));
+  }
+
+  @Test
+  public void test_system_properties_win_over_environment_variables() {
+    Properties properties = new Properties();
+    properties.setProperty(BASE_URL_OVERRIDE, "lancre:9000");
+    ConfigurationOverrides overrides = ConfigurationOverrides.from(properties, 
+        environment("YAML_CFG_WEBPAGE_CLIENT__BASE_URL", "klatch:9000"));
+
+    assertThat(overrides.values().get("webpage_client.base_url"), equalTo("lancre:9000"));
+  }
+
+  @Test
+  public void test_no_overrides() {
+    ConfigurationOverrides overrides = ConfigurationOverrides.from(new Properties(), environment("PATH", "/usr/bin"));
+
+    assertThat(overrides, sameInstance(ConfigurationOverrides.NONE));
+    assertThat(overrides.key(), equalTo(""));
+  }
+
+  @Test
+  public void test_apply_copies_changed_maps_only() {
+    Map selenium = new LinkedHashMap();
+    selenium.put("browser", "FIREFOX");
+    Map client = new LinkedHashMap();
+    client.put("selenium", selenium);
+    Map tree = new LinkedHashMap();
+    tree.put("webpage_client", client);
+    tree.put("messages", Collections.singletonMap("not_registered", "Not registered"));
+    Properties properties = new Properties();
+    properties.setProperty(BROWSER_OVERRIDE, "CHROME");
+    properties.setProperty("cfg.proxy.port", "8080");
+
+    Map overridden = ConfigurationOverrides.from(properties, environment()).apply(tree);
+
+    assertThat(((Map)((Map)overridden.get("webpage_client")).get("selenium")).get("browser"), equalTo((Object)"CHROME"));
+    assertThat(((Map)overridden.get("proxy")).get("port"), equalTo((Object)"8080"));
+    assertThat(overridden.get("messages"), sameInstance(tree.get("messages")));
+    assertThat(selenium.get("browser"), equalTo((Object)"FIREFOX"));
+  }
+
+  @Test
+  public void test_override_applied_when_loading() throws Exception {
+    System.setProperty(BASE_URL_OVERRIDE, "lancre:9000");
+    YamlConfiguration configuration = newConfiguration();
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo("lancre:9000"));
+    assertThat(configuration.absolute_url_for("User Details"), equalTo("lancre:9000/user"));
+    assertThat(configuration.browser(), equalTo("FIREFOX"));
+  }
+
+  @Test
+  public void test_overrides_part_of_cache_key() throws Exception {
+    newConfiguration().loadConfiguration();
+    System.setProperty(BASE_URL_OVERRIDE, "lancre:9000");
+    YamlConfiguration overridden = newConfiguration();
+    overridden.loadConfiguration();
+
+    assertThat(overridden.base_url(), equalTo("lancre:9000"));
+    assertThat(cache.size(), equalTo(2));
+
+    System.clearProperty(BASE_URL_OVERRIDE);
+    YamlConfiguration notOverridden = newConfiguration();
+    notOverridden.loadConfiguration();
+
+    assertThat(notOverridden.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(cache.hitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_lazy_overrides_match_eager() throws Exception {
+    System.setProperty(BROWSER_OVERRIDE, "CHROME");
+    System.setProperty("cfg.proxy.port", "8080");
+    try {
+      YamlConfiguration configuration = newConfiguration();
+      Map eager = configuration.loadSnapshot().tree();
+      configuration.enableLazyLoading();
+      ConfigurationSnapshot lazySnapshot = configuration.loadSnapshot();
+
+      assertThat(lazySnapshot.tree(), instanceOf(LazyConfigurationMap.class));
+      assertThat(lazySnapshot.tree(), equalTo(eager));
+      assertThat(YamlConfiguration.fromSnapshot(lazySnapshot).browser(), equalTo("CHROME"));
+    } finally {
+      System.clearProperty("cfg.proxy.port");
+    }
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration() {
+    YamlConfiguration configuration = new YamlConfiguration();
+    configuration.setCache(cache);
+    return configuration;
+  }
+
+  private Map<String, String> environment(String... namesAndValues) {
+    Map<String, String> environment = new HashMap<String, String>();
+    for (int index = 0; index < namesAndValues.length; index += 2) {
+      environment.put(namesAndValues[index], namesAndValues[index + 1]);
+    }
+    return environment;
+  }
+}
@@ -0,0 +1,137 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ConfigurationResourcesTest {
+
+  public static final String TEST_COMMON_FILE = "directory-common";
+  public static final String TEST_ENVIRONMENT = "directory-environment";
+
+  public static final String TEST_COMMON_YAML =
+      "webpage_client:\n  base_url: localhost:8700\n  selenium:\n    browser: firefox\n" +
+      "messages:\n  greeting: 'Ça va, Rincewind?'\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void setupFiles() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    directory = temporaryFolder.getRoot().toPath();
+    writeFile(directory.resolve(TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION), TEST_COMMON_YAML);
+    writeFile(directory.resolve(TEST_ENVIRONMENT + YamlConfiguration.FILE_EXTENSION),
+        "webpage_client:\n  base_url: ankhmorpork:8700\n");
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_classpath_resource_found() {
+    URL resource = ConfigurationResources.classpathResource(YamlConfiguration.class, "/test-common.yaml");
+
+    assertThat(resource, notNullValue());
+    assertThat(ConfigurationResources.classpathResource(YamlConfiguration.class, "/test-common.yaml"),
+        sameInstance(resource));
+  }
+
+  @Test
+  public void test_classpath_resource_missing() {
+    assertThat(ConfigurationResources.classpathResource(YamlConfiguration.class, "/no-such-file.yaml"),
+        nullValue());
+    assertThat(ConfigurationResources.classpathResource(YamlConfiguration.class, "/no-such-file.yaml"),
+        nullValue());
+  }
+
+  @Test
+  public void test_decode_utf8() throws Exception {
+    Path file = directory.resolve(TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION);
+
+    assertThat(ConfigurationResources.decodeUtf8(ConfigurationResources.readBytes(file)), equalTo(TEST_COMMON_YAML));
+  }
+
+  @Test(expected = CharacterCodingException.class)
+  public void test_decode_utf8_rejects_bad_encoding() throws Exception {
+    ConfigurationResources.decodeUtf8("greeting: 'Ça va'\n".getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  @Test
+  public void test_load_from_directory() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.setConfigurationDirectory(directory);
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(configuration.message("greeting"), equalTo("Ça va, Rincewind?"));
+  }
+
+  @Test
+  public void test_load_from_directory_property() throws Exception {
+    System.setProperty(YamlConfiguration.CONFIG_DIRECTORY_PROPERTY, directory.toString());
+    try {
+      YamlConfiguration configuration = newConfiguration();
+      configuration.loadConfiguration();
+
+      assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+    } finally {
+      System.clearProperty(YamlConfiguration.CONFIG_DIRECTORY_PROPERTY);
+    }
+  }
+
+  @Test
+  public void test_load_from_directory_lazily() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.setConfigurationDirectory(directory);
+    configuration.enableLazyLoading();
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(configuration.message("greeting"), equalTo("Ça va, Rincewind?"));
+  }
+
+  @Test
+  public void test_load_from_directory_missing_environment() throws Exception {
+    Files.delete(directory.resolve(TEST_ENVIRONMENT + YamlConfiguration.FILE_EXTENSION));
+    YamlConfiguration configuration = newConfiguration();
+    configuration.setConfigurationDirectory(directory);
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo("localhost:8700"));
+    assertThat(configuration.getEnvironmentYamlFileResourceStream(), nullValue());
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration() {
+    YamlConfiguration configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    return configuration;
+  }
+
+  private void writeFile(Path file, String yaml) throws IOException {
+    Files.write(file, yaml.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,190 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes"})
+public class ConfigurationSchemaTest {
+
+  public static final String TEST_COMMON_FILE = "common";
+  public static final String TEST_ENVIRONMENT = "discworld";
+
+  public static final String TEST_BAD_COMMON =
+      "webpage_client:\n" +
+      "  base_url:\n" +
+      "    - ankhmorpork:8700\n" +
+      "screens:\n" +
+      "  Search:\n" +
+      "    url: /\n" +
+      "    check_for_ids: search-form\n" +
+      "  User Details:\n" +
+      "    - /user\n" +
+      "element_groups:\n" +
+      "  Discworld:\n" +
+      "    - Search Form\n" +
+      "    - nested: list\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    directory = temporaryFolder.getRoot().toPath();
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.setConfigurationDirectory(directory);
+    write("discworld.yaml", "messages:\n  not_registered: Not registered\n");
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_standard_schema_compiled_once() {
+    assertThat(ConfigurationSchema.standard(), sameInstance(ConfigurationSchema.standard()));
+  }
+
+  @Test
+  public void test_test_configuration_is_valid() throws Exception {
+    Map common = new YamlConfiguration().loadYaml(getClass().getResourceAsStream("/test-common.yaml"));
+
+    assertThat(ConfigurationSchema.standard().violations(common), empty());
+  }
+
+  @Test
+  public void test_every_violation_listed() throws Exception {
+    write("common.yaml", TEST_BAD_COMMON);
+
+    try {
+      configuration.loadConfiguration();
+      fail("Expected a ConfigurationValidationException");
+    } catch (ConfigurationValidationException cve) {
+      assertThat(cve.violations(), containsInAnyOrder(
+          "webpage_client/base_url should be a single value but is a list",
+          "screens/Search/check_for_ids should be a list but is a single value",
+          "screens/User Details should be a map but is a list",
+          "element_groups/Discworld/[1] should be a single value but is a map"));
+      assertThat(cve.getMessage(), containsString("4 problems"));
+      assertThat(cve.getMessage(), containsString("/common.yaml"));
+    }
+  }
+
+  @Test
+  public void test_validation_failure_is_an_io_exception() throws Exception {
+    write("common.yaml", TEST_BAD_COMMON);
+
+    try {
+      configuration.loadConfiguration();
+      fail("Expected an IOException");
+    } catch (IOException ie) {
+      assertThat(ie, instanceOf(ConfigurationValidationException.class));
+    }
+  }
+
+  @Test
+  public void test_empty_values_and_unknown_keys_allowed() throws Exception {
+    write("common.yaml",
+        "webpage_client:\n" +
+        "  base_url:\n" +
+        "  phantom:\n" +
+        "    anything: [goes, here]\n" +
+        "screens:\n" +
+        "  Search:\n" +
+        "    check_for_ids:\n" +
+        "    form_data: []\n" +
+        "wizards:\n" +
+        "  - Rincewind\n");
+
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo(""));
+    assertThat(configuration.check_for_ids_for("Search").isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_validation_disabled() throws Exception {
+    write("common.yaml", TEST_BAD_COMMON);
+    configuration.disableValidation();
+
+    configuration.loadConfiguration();
+
+    assertThat(configuration.url_for("Search"), equalTo("/"));
+  }
+
+  @Test
+  public void test_validated_accessors() throws Exception {
+    write("common.yaml",
+        "webpage_client:\n" +
+        "  base_url: ankhmorpork:8700\n" +
+        "  selenium:\n" +
+        "    browser: FIREFOX\n" +
+        "element_ids:\n" +
+        "  Search Form: search-form\n");
+
+    configuration.loadConfiguration();
+
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(configuration.browser(), equalTo("FIREFOX"));
+    assertThat(configuration.element_id("Search Form"), equalTo("search-form"));
+    assertThat(configuration.element_id("Broom Cupboard"), equalTo(""));
+    assertThat(configuration.message("not_registered"), equalTo("Not registered"));
+  }
+
+  @Test
+  public void test_validated_copy_made_once() throws Exception {
+    write("common.yaml", "element_ids:\n  Search Form: search-form\n");
+    ConfigurationSnapshot loaded = ConfigurationSnapshot.of(configuration.loadCommonLayer(), 
+        configuration.loadEnvironmentLayer());
+
+    ConfigurationSnapshot validated = configuration.validate(loaded);
+
+    assertThat(loaded.isValidated(), equalTo(false));
+    assertThat(validated.isValidated(), equalTo(true));
+    assertThat(validated.tree(), sameInstance(loaded.tree()));
+    assertThat(configuration.validate(loaded), sameInstance(validated));
+    assertThat(configuration.validate(validated), sameInstance(validated));
+  }
+
+  @Test
+  public void test_unknown_type_in_schema() throws Exception {
+    try {
+      ConfigurationSchema.compile((Map)parse("type: object\nproperties:\n  screens:\n    type: number\n"));
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      assertThat(iae.getMessage(), containsString("'number'"));
+      assertThat(iae.getMessage(), containsString("'screens'"));
+    }
+  }
+
+  /* PRIVATE METHODS */
+
+  private void write(String filename, String yaml) throws Exception {
+    Files.write(directory.resolve(filename), yaml.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Object parse(String yaml) throws IOException {
+    return YamlParserBackends.named(YamlParserBackends.DEFAULT_BACKEND).parse(new StringReader(yaml));
+  }
+}
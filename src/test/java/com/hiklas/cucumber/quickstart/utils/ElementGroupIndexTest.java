@@ -0,0 +1,118 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ElementGroupIndexTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.loadConfiguration();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_group_resolved_to_ids() {
+    assertThat(configuration.element_ids_for("Discworld"), 
+        equalTo((List)Arrays.asList("search-form", "name-input", "id-input")));
+    assertThat(configuration.unresolved_element_keys().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_group_resolved_once() {
+    assertThat(configuration.element_ids_for("Discworld"), sameInstance(configuration.element_ids_for("Discworld")));
+  }
+
+  @Test
+  public void test_matches_element_id_lookups() {
+    List ids = configuration.element_ids_for("Discworld");
+    List keys = configuration.element_group("Discworld");
+
+    for (int index = 0; index < keys.size(); index++) {
+      assertThat(ids.get(index), equalTo((Object)configuration.element_id((String)keys.get(index))));
+    }
+  }
+
+  @Test
+  public void test_missing_group_is_empty() {
+    assertThat(configuration.element_ids_for("Unseen University").isEmpty(), equalTo(true));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void test_ids_cannot_be_changed() {
+    configuration.element_ids_for("Discworld").add("wibble");
+  }
+
+  @Test
+  public void test_batch_of_groups() throws Exception {
+    YamlConfiguration grouped = YamlConfiguration.fromSnapshot(ConfigurationSnapshot.of(
+        layer(groups("Header", "Search Form"), "Login", Arrays.asList("User", "Password")), CompactMap.EMPTY));
+
+    assertThat(grouped.element_ids_for_groups("Header", "Login", "Unseen University"), 
+        equalTo((List)Arrays.asList("search-form", "user", "password")));
+  }
+
+  @Test
+  public void test_unresolved_keys_reported_and_left_out() throws Exception {
+    YamlConfiguration grouped = YamlConfiguration.fromSnapshot(ConfigurationSnapshot.of(
+        layer(groups("Header", "Search Form"), "Broken", Arrays.asList("User", "Wibble", "Gibber")), 
+        CompactMap.EMPTY));
+
+    assertThat(grouped.element_ids_for("Broken"), equalTo((List)Arrays.asList("user")));
+    assertThat(grouped.unresolved_element_keys(), contains("Broken/Wibble", "Broken/Gibber"));
+  }
+
+  @Test
+  public void test_overlay_shares_index_with_common() throws Exception {
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(Arrays.asList(TEST_ENVIRONMENT, "test-lancre"));
+
+    assertThat(matrix.snapshot(TEST_ENVIRONMENT).elementGroupIndex(), 
+        sameInstance(matrix.snapshot("test-lancre").elementGroupIndex()));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Map groups(String group, String... keys) {
+    Map groups = new HashMap();
+    groups.put(group, Arrays.asList(keys));
+    return groups;
+  }
+
+  private Map layer(Map groups, String extraGroup, List extraKeys) {
+    Map ids = new HashMap();
+    ids.put("Search Form", "search-form");
+    ids.put("User", "user");
+    ids.put("Password", "password");
+    groups.put(extraGroup, extraKeys);
+    Map layer = new HashMap();
+    layer.put(YamlConfiguration.ELEMENT_IDS, ids);
+    layer.put(YamlConfiguration.ELEMENT_GROUPS, groups);
+    return layer;
+  }
+}
@@ -0,0 +1,157 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class EnvironmentContextTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+  public static final String OTHER_ENVIRONMENT = "test-lancre";
+
+  public static final int READER_THREADS = 8;
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_bound_environment_overrides_property() {
+    try (EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      assertThat(configuration.getEnvironmentYamlFilename(), equalTo("/test-lancre.yaml"));
+    }
+    assertThat(configuration.getEnvironmentYamlFilename(), equalTo("/test-discworld.yaml"));
+  }
+
+  @Test
+  public void test_nested_contexts_restore_previous() {
+    try (EnvironmentContext outer = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      try (EnvironmentContext inner = EnvironmentContext.bind(TEST_ENVIRONMENT)) {
+        assertThat(EnvironmentContext.currentEnvironment(), equalTo(TEST_ENVIRONMENT));
+      }
+      assertThat(EnvironmentContext.currentEnvironment(), equalTo(OTHER_ENVIRONMENT));
+    }
+    assertThat(EnvironmentContext.currentEnvironment(), nullValue());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_close_out_of_order() {
+    EnvironmentContext outer = EnvironmentContext.bind(OTHER_ENVIRONMENT);
+    EnvironmentContext inner = EnvironmentContext.bind(TEST_ENVIRONMENT);
+    try {
+      outer.close();
+    } finally {
+      inner.close();
+      outer.close();
+    }
+  }
+
+  @Test
+  public void test_close_on_another_thread() throws Exception {
+    EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT);
+    try {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      Future<?> closed = executor.submit(context::close);
+      executor.shutdown();
+      Throwable failure = null;
+      try {
+        closed.get();
+      } catch (ExecutionException ee) {
+        failure = ee.getCause();
+      }
+      assertThat(failure, instanceOf(IllegalStateException.class));
+    } finally {
+      context.close();
+    }
+  }
+
+  @Test
+  public void test_load_in_bound_environment() throws Exception {
+    try (EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      configuration.loadConfiguration();
+    }
+
+    assertThat(configuration.base_url(), equalTo("lancre:8700"));
+    assertThat(configuration.url_for("User Details"), equalTo("/user"));
+  }
+
+  @Test
+  public void test_shared_configuration_follows_each_thread() throws Exception {
+    configuration.loadConfiguration();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(READER_THREADS);
+    List<Future<String>> baseUrls = new ArrayList<Future<String>>();
+    for (int reader = 0; reader < READER_THREADS; reader++) {
+      String environment = reader % 2 == 0 ? TEST_ENVIRONMENT : OTHER_ENVIRONMENT;
+      baseUrls.add(executor.submit(readBaseUrl(environment, start)));
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+
+    for (int reader = 0; reader < READER_THREADS; reader++) {
+      String expected = reader % 2 == 0 ? "ankhmorpork:8700" : "lancre:8700";
+      assertThat(baseUrls.get(reader).get(), equalTo(expected));
+    }
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+  @Test
+  public void test_environment_snapshot_shared_between_instances() throws Exception {
+    YamlConfigurationCache cache = new YamlConfigurationCache();
+    configuration.setCache(cache);
+    YamlConfiguration another = new YamlConfiguration();
+    another.setCache(cache);
+    configuration.loadConfiguration();
+    another.loadConfiguration();
+
+    try (EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      assertThat(configuration.webpage_client(), sameInstance(another.webpage_client()));
+      assertThat(cache.missCount(), equalTo(2L));
+    }
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Callable<String> readBaseUrl(String environment, CountDownLatch start) {
+    return () -> {
+      try (EnvironmentContext context = EnvironmentContext.bind(environment)) {
+        start.await();
+        String baseUrl = null;
+        for (int read = 0; read < 1000; read++) {
+          baseUrl = configuration.base_url();
+        }
+        return baseUrl;
+      }
+    };
+  }
+}
@@ -0,0 +1,118 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes"})
+public class LazyConfigurationMapTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  public static final String TEST_YAML =
+      "# comment\n" +
+      "webpage_client:\n" +
+      "  base_url: localhost:8700\n" +
+      "\n" +
+      "'quoted key': value\n" +
+      "messages:\n" +
+      "    not_registered: 'This customer is not yet registered'\n" +
+      "---\n" +
+      "ignored: second document\n";
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() {
+    configuration = new YamlConfiguration();
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_scan_finds_top_level_keys() {
+    List<YamlSectionScanner.Section> sections = YamlSectionScanner.scan(bytes(TEST_YAML));
+
+    assertThat(sections, notNullValue());
+    assertThat(sections.size(), equalTo(3));
+    assertThat(sections.get(0).key, equalTo("webpage_client"));
+    assertThat(sections.get(1).key, equalTo("quoted key"));
+    assertThat(sections.get(2).key, equalTo("messages"));
+    assertThat(sections.get(2).end, equalTo(TEST_YAML.indexOf("---")));
+  }
+
+  @Test
+  public void test_scan_gives_up_on_top_level_list() {
+    assertThat(YamlSectionScanner.scan(bytes("- one\n- two\n")), nullValue());
+  }
+
+  @Test
+  public void test_scan_gives_up_on_aliases() {
+    assertThat(YamlSectionScanner.scan(bytes("base: &base\n  url: x\nother: *base\n")), nullValue());
+  }
+
+  @Test
+  public void test_sections_only_parsed_when_used() throws Exception {
+    LazyConfigurationMap lazyMap = LazyConfigurationMap.scan(bytes(TEST_YAML), this::parseSection);
+
+    assertThat(lazyMap.size(), equalTo(3));
+    assertThat(lazyMap.parsedSectionCount(), equalTo(0));
+
+    Map messages = (Map)lazyMap.get(YamlConfiguration.MESSAGES);
+
+    assertThat(messages.get("not_registered"), equalTo((Object)"This customer is not yet registered"));
+    assertThat(lazyMap.parsedSectionCount(), equalTo(1));
+    assertThat(lazyMap.get(YamlConfiguration.MESSAGES), sameInstance((Object)messages));
+  }
+
+  @Test
+  public void test_lazy_configuration_matches_eager() throws Exception {
+    Map eager = configuration.loadSnapshot().tree();
+    configuration.enableLazyLoading();
+    ConfigurationSnapshot lazySnapshot = configuration.loadSnapshot();
+
+    assertThat(lazySnapshot.tree(), instanceOf(LazyConfigurationMap.class));
+    assertThat(lazySnapshot.tree(), equalTo(eager));
+  }
+
+  @Test
+  public void test_lazy_configuration_accessors() throws Exception {
+    configuration.enableLazyLoading();
+    YamlConfiguration lazyConfiguration = YamlConfiguration.fromSnapshot(configuration.loadSnapshot());
+
+    assertThat(lazyConfiguration.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(lazyConfiguration.url_for("User Details"), equalTo("/user"));
+    assertThat(lazyConfiguration.element_group("Discworld").size(), equalTo(3));
+    assertThat(lazyConfiguration.get(YamlConfiguration.WEBPAGE_CLIENT, YamlConfiguration.SELENIUM,
+        YamlConfiguration.BROWSER), equalTo((Object)"FIREFOX"));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Object parseSection(byte[] yaml, int start, int end) throws IOException {
+    return configuration.load(new ByteArrayInputStream(yaml, start, end - start));
+  }
+
+  private byte[] bytes(String yaml) {
+    return yaml.getBytes(StandardCharsets.UTF_8);
+  }
+}
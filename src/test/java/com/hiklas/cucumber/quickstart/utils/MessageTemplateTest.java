@@ -0,0 +1,115 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class MessageTemplateTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.loadConfiguration();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_message_formatted() {
+    assertThat(configuration.message("not_found", "Rincewind", 3), 
+        equalTo("Customer Rincewind could not be found after 3 searches"));
+  }
+
+  @Test
+  public void test_message_without_placeholders_unchanged() {
+    assertThat(configuration.message("not_registered", "ignored"), 
+        equalTo(configuration.message("not_registered")));
+  }
+
+  @Test
+  public void test_missing_message_is_empty() {
+    assertThat(configuration.message("no_such_message", "Rincewind"), equalTo(""));
+  }
+
+  @Test
+  public void test_fast_path_skips_message_format() {
+    assertThat(MessageTemplate.compile("key", "It's plain").hasPlaceholders(), equalTo(false));
+    assertThat(MessageTemplate.compile("key", "It's plain").format("ignored"), equalTo("It's plain"));
+    assertThat(MessageTemplate.compile("key", "Hello {0}").hasPlaceholders(), equalTo(true));
+  }
+
+  @Test
+  public void test_apostrophes_kept_with_or_without_placeholders() {
+    assertThat(MessageTemplate.compile("key", "it's {0}").format("x"), equalTo("it's x"));
+    assertThat(MessageTemplate.compile("key", "the wizards' {0}").format("x"), equalTo("the wizards' x"));
+    assertThat(MessageTemplate.compile("key", "it''s {0}").format("x"), equalTo("it's x"));
+    assertThat(MessageTemplate.compile("key", "it's plain").format("x"), equalTo("it's plain"));
+  }
+
+  @Test
+  public void test_quote_pairs_still_quote() {
+    assertThat(MessageTemplate.compile("key", "it's '{0}'").format("x"), equalTo("it's {0}"));
+    assertThat(MessageTemplate.compile("key", "'{0}' isn't {0}").format("x"), equalTo("{0} isn't x"));
+    assertThat(MessageTemplate.compile("key", "'{0} can''t' {0}").format("x"), equalTo("{0} can't x"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_bad_pattern_rejected() {
+    MessageTemplate.compile("key", "Hello {0");
+  }
+
+  @Test
+  public void test_formatting_from_many_threads() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int thread = 0; thread < 8; thread++) {
+        final String name = "Customer" + thread;
+        results.add(executor.submit(formatRepeatedly(name)));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(), equalTo(true));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Callable<Boolean> formatRepeatedly(String name) {
+    return () -> {
+      String expected = "Customer " + name + " could not be found after 7 searches";
+      for (int attempt = 0; attempt < 1000; attempt++) {
+        if (!expected.equals(configuration.message("not_found", name, 7))) {
+          return false;
+        }
+      }
+      return true;
+    };
+  }
+}
@@ -0,0 +1,88 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes"})
+public class ScreenRecordTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.loadConfiguration();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_record_matches_accessors() {
+    ScreenRecord record = configuration.screen_record("Search");
+
+    assertThat(record.name(), equalTo("Search"));
+    assertThat(record.url(), equalTo(configuration.url_for("Search")));
+    assertThat(record.title(), equalTo(configuration.title_for("Search")));
+    assertThat(record.getHereBy(), equalTo("GET"));
+    assertThat(record.checkForIds(), equalTo(configuration.check_for_ids_for("Search")));
+    assertThat(record.formData().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_record_built_once() {
+    assertThat(configuration.screen_record("User Details"), sameInstance(configuration.screen_record("User Details")));
+    assertThat(configuration.form_data_for("User Details"), 
+        sameInstance(configuration.screen_record("User Details").formData()));
+  }
+
+  @Test
+  public void test_missing_values_are_empty() {
+    ScreenRecord record = configuration.screen_record("User Details");
+
+    assertThat(record.getHereBy(), equalTo("POST"));
+    assertThat(record.checkForIds().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_missing_screen_is_empty() {
+    ScreenRecord record = configuration.screen_record("Unseen University");
+
+    assertThat(record.name(), equalTo("Unseen University"));
+    assertThat(record.url(), equalTo(""));
+    assertThat(record.checkForIds().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_bulk_records_in_order() {
+    List<ScreenRecord> records = configuration.screen_records("User Details", "Unseen University", "Search");
+
+    assertThat(records.size(), equalTo(3));
+    assertThat(records.get(0).url(), equalTo("/user"));
+    assertThat(records.get(1).url(), equalTo(""));
+    assertThat(records.get(2).url(), equalTo("/"));
+  }
+
+  @Test
+  public void test_lazy_records_match_eager() throws Exception {
+    configuration.enableLazyLoading();
+    YamlConfiguration lazyConfiguration = YamlConfiguration.fromSnapshot(configuration.loadSnapshot());
+
+    assertThat(lazyConfiguration.screen_record("Search").toString(), 
+        equalTo(configuration.screen_record("Search").toString()));
+  }
+}
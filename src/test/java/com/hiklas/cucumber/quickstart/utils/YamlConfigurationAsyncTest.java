@@ -0,0 +1,144 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes"})
+public class YamlConfigurationAsyncTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+  public static final String OTHER_ENVIRONMENT = "test-lancre";
+
+  public static final String TEST_BASE_URL_FROM_DISCWORLD = "ankhmorpork:8700";
+  public static final String TEST_BASE_URL_FROM_LANCRE = "lancre:8700";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private CountDownLatch commonFileRead;
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    commonFileRead = new CountDownLatch(0);
+    configuration = new YamlConfiguration() {
+      @Override
+      protected InputStream getCommonYamlFileResourceStream() {
+        try {
+          commonFileRead.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getCommonYamlFileResourceStream();
+      }
+    };
+    configuration.setCache(new YamlConfigurationCache());
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_async_load_gives_same_configuration() throws Exception {
+    Map loaded = configuration.loadConfigurationAsync().get(10, TimeUnit.SECONDS);
+
+    YamlConfiguration synchronous = new YamlConfiguration();
+    synchronous.setCache(new YamlConfigurationCache());
+    assertThat(loaded, equalTo(synchronous.loadConfiguration()));
+    assertThat(configuration.base_url(), equalTo(TEST_BASE_URL_FROM_DISCWORLD));
+  }
+
+  @Test
+  public void test_reads_wait_for_pending_load() throws Exception {
+    commonFileRead = new CountDownLatch(1);
+    CompletableFuture<Map> load = configuration.loadConfigurationAsync();
+    ExecutorService reader = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> baseUrl = reader.submit(configuration::base_url);
+      Thread.sleep(100);
+
+      assertThat(load.isDone(), equalTo(false));
+      assertThat(baseUrl.isDone(), equalTo(false));
+
+      commonFileRead.countDown();
+
+      assertThat(baseUrl.get(10, TimeUnit.SECONDS), equalTo(TEST_BASE_URL_FROM_DISCWORLD));
+      assertThat(load.isDone(), equalTo(true));
+    } finally {
+      commonFileRead.countDown();
+      reader.shutdownNow();
+    }
+  }
+
+  @Test
+  public void test_await_configuration() throws Exception {
+    assertThat(configuration.awaitConfiguration(), nullValue());
+
+    configuration.loadConfigurationAsync();
+
+    assertThat(configuration.awaitConfiguration().containsKey(YamlConfiguration.WEBPAGE_CLIENT), equalTo(true));
+  }
+
+  @Test
+  public void test_bound_environment_used_for_async_load() throws Exception {
+    try (EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      configuration.loadConfigurationAsync().get(10, TimeUnit.SECONDS);
+      assertThat(configuration.base_url(), equalTo(TEST_BASE_URL_FROM_LANCRE));
+    }
+  }
+
+  @Test
+  public void test_failure_is_an_io_exception() throws Exception {
+    Files.write(temporaryFolder.getRoot().toPath().resolve(TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION),
+        "screens: [unclosed\n".getBytes(StandardCharsets.UTF_8));
+    configuration.setConfigurationDirectory(temporaryFolder.getRoot().toPath());
+
+    CompletableFuture<Map> load = configuration.loadConfigurationAsync();
+
+    try {
+      load.get(10, TimeUnit.SECONDS);
+      fail("Expected an ExecutionException");
+    } catch (ExecutionException ee) {
+      assertThat(ee.getCause(), instanceOf(IOException.class));
+    }
+    try {
+      configuration.awaitConfiguration();
+      fail("Expected an IOException");
+    } catch (IOException ie) {
+      assertThat(ie, sameInstance(load.handle((result, failure) -> failure).get()));
+    }
+    try {
+      configuration.base_url();
+      fail("Expected an UncheckedIOException");
+    } catch (UncheckedIOException uie) {
+      assertThat(uie.getCause(), instanceOf(IOException.class));
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class YamlConfigurationCacheTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfigurationCache cacheToTest;
+
+  @Before
+  public void setupCacheToTest() {
+    cacheToTest = new YamlConfigurationCache();
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_first_load_is_a_miss() throws Exception {
+    newConfiguration().loadConfiguration();
+
+    assertThat(cacheToTest.missCount(), equalTo(1L));
+    assertThat(cacheToTest.hitCount(), equalTo(0L));
+    assertThat(cacheToTest.size(), equalTo(1));
+  }
+
+  @Test
+  public void test_second_instance_reuses_snapshot() throws Exception {
+    Map first = newConfiguration().loadConfiguration();
+    Map second = newConfiguration().loadConfiguration();
+
+    assertThat(second, sameInstance(first));
+    assertThat(cacheToTest.missCount(), equalTo(1L));
+    assertThat(cacheToTest.hitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_different_environment_is_a_different_snapshot() throws Exception {
+    Map discworld = newConfiguration().loadConfiguration();
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+    Map localhost = newConfiguration().loadConfiguration();
+
+    assertThat(localhost, not(sameInstance(discworld)));
+    assertThat(cacheToTest.missCount(), equalTo(2L));
+    assertThat(cacheToTest.size(), equalTo(2));
+  }
+
+  @Test
+  public void test_lazy_and_eager_are_different_snapshots() throws Exception {
+    YamlConfiguration lazy = newConfiguration();
+    lazy.enableLazyLoading();
+    Map lazyMap = lazy.loadConfiguration();
+    Map eagerMap = newConfiguration().loadConfiguration();
+
+    assertThat(lazyMap, instanceOf(LazyConfigurationMap.class));
+    assertThat(eagerMap, not(instanceOf(LazyConfigurationMap.class)));
+    assertThat(cacheToTest.missCount(), equalTo(2L));
+    assertThat(cacheToTest.size(), equalTo(2));
+  }
+
+  @Test
+  public void test_invalidate_forces_reload() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    Map first = configuration.loadConfiguration();
+    cacheToTest.invalidate(configuration.getCommonYamlFilename(), configuration.getEnvironmentYamlFilename());
+    Map second = newConfiguration().loadConfiguration();
+
+    assertThat(second, not(sameInstance(first)));
+    assertThat(second, equalTo(first));
+    assertThat(cacheToTest.missCount(), equalTo(2L));
+  }
+
+  @Test
+  public void test_invalidate_all_empties_cache() throws Exception {
+    newConfiguration().loadConfiguration();
+    cacheToTest.invalidateAll();
+
+    assertThat(cacheToTest.size(), equalTo(0));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void test_snapshot_cannot_be_modified() throws Exception {
+    Map configurationMap = newConfiguration().loadConfiguration();
+    Map webpageClient = (Map)configurationMap.get(YamlConfiguration.WEBPAGE_CLIENT);
+    webpageClient.put(YamlConfiguration.BASE_URL, "wibble");
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration() {
+    YamlConfiguration configuration = new YamlConfiguration();
+    configuration.setCache(cacheToTest);
+    return configuration;
+  }
+}
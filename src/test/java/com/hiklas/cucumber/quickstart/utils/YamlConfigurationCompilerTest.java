@@ -0,0 +1,180 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class YamlConfigurationCompilerTest {
+
+  public static final String TEST_PACKAGE = "com.hiklas.generated";
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+  public static final String TEST_CLASS_NAME = "TestCommonTestDiscworldConfiguration";
+
+  public static final String TEST_BASE_URL_FROM_DISCWORLD = "ankhmorpork:8700";
+  public static final String TEST_SCREEN_KEY = "User Details";
+  public static final String TEST_SCREEN_RESULT = "/user";
+  public static final String TEST_MESSAGE_KEY = "not_registered";
+  public static final String TEST_MESSAGE_RESULT = "This customer is not yet registered";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path sourceDirectory;
+  private Path classDirectory;
+  private URLClassLoader classLoader;
+
+  @Before
+  public void setupDirectories() throws Exception {
+    sourceDirectory = temporaryFolder.newFolder("src").toPath();
+    classDirectory = temporaryFolder.newFolder("classes").toPath();
+  }
+
+  @After
+  public void closeClassLoader() throws Exception {
+    if (classLoader != null) {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void test_class_name() {
+    assertThat(YamlConfigurationCompiler.className(TEST_COMMON_FILE, TEST_ENVIRONMENT),
+        equalTo(TEST_CLASS_NAME));
+  }
+
+  @Test
+  public void test_literal_escapes() {
+    assertThat(YamlConfigurationCompiler.literal("a\"b\\c\né"), equalTo("\"a\\\"b\\\\c\\n\\u00e9\""));
+  }
+
+  @Test
+  public void test_compiled_configuration_matches_loaded() throws Exception {
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(TEST_PACKAGE, testResources());
+    String className = compiler.compileTo(sourceDirectory, TEST_COMMON_FILE, TEST_ENVIRONMENT);
+
+    CompiledConfiguration compiled = compileAndLoad(className);
+    YamlConfiguration configuration = compiled.toYamlConfiguration();
+
+    assertThat(compiled.commonYamlFilename(), equalTo("/" + TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION));
+    assertThat(configuration.base_url(), equalTo(TEST_BASE_URL_FROM_DISCWORLD));
+    assertThat(configuration.url_for(TEST_SCREEN_KEY), equalTo(TEST_SCREEN_RESULT));
+    assertThat(configuration.message(TEST_MESSAGE_KEY), equalTo(TEST_MESSAGE_RESULT));
+    assertThat(configuration.form_data_for(TEST_SCREEN_KEY).size(), equalTo(6));
+    assertThat(compiled.getClass().getField("BASE_URL").get(null), equalTo((Object)TEST_BASE_URL_FROM_DISCWORLD));
+  }
+
+  @Test
+  public void test_large_maps_are_split_into_methods() throws Exception {
+    Path yamlDirectory = temporaryFolder.newFolder("yaml").toPath();
+    StringBuilder yaml = new StringBuilder("element_ids:\n");
+    int elementCount = YamlConfigurationCompiler.NODES_PER_METHOD * 3 + 7;
+    for (int index = 0; index < elementCount; index++) {
+      yaml.append("  Element ").append(index).append(": element-").append(index).append("\n");
+    }
+    Files.write(yamlDirectory.resolve("big.yaml"), yaml.toString().getBytes(StandardCharsets.UTF_8));
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(TEST_PACKAGE, yamlDirectory);
+
+    String className = compiler.compileTo(sourceDirectory, "big", "none");
+    YamlConfiguration configuration = compileAndLoad(className).toYamlConfiguration();
+
+    assertThat(configuration.element_ids().size(), equalTo(elementCount));
+    assertThat(configuration.element_id("Element 601"), equalTo("element-601"));
+  }
+
+  @Test
+  public void test_deep_trees_of_small_maps_are_split_into_methods() throws Exception {
+    Path yamlDirectory = temporaryFolder.newFolder("yaml").toPath();
+    StringBuilder yaml = new StringBuilder("screens:\n");
+    for (int screen = 0; screen < 150; screen++) {
+      yaml.append("  Screen ").append(screen).append(":\n");
+      for (int field = 0; field < 150; field++) {
+        yaml.append("    field_").append(field).append(": value-").append(screen).append("-").append(field).append("\n");
+      }
+    }
+    Files.write(yamlDirectory.resolve("deep.yaml"), yaml.toString().getBytes(StandardCharsets.UTF_8));
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(TEST_PACKAGE, yamlDirectory);
+
+    String className = compiler.compileTo(sourceDirectory, "deep", "none");
+    YamlConfiguration configuration = compileAndLoad(className).toYamlConfiguration();
+
+    assertThat(configuration.screens().size(), equalTo(150));
+    assertThat(configuration.get(YamlConfiguration.SCREENS, "Screen 149", "field_149"), 
+        equalTo((Object)"value-149-149"));
+  }
+
+  @Test
+  public void test_included_files_are_compiled_in() throws Exception {
+    Path yamlDirectory = temporaryFolder.newFolder("yaml").toPath();
+    Files.write(yamlDirectory.resolve("split.yaml"),
+        "include: screens.yaml\nwebpage_client:\n  base_url: ankhmorpork:8700\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(yamlDirectory.resolve("screens.yaml"),
+        "screens:\n  Search:\n    url: /search\n".getBytes(StandardCharsets.UTF_8));
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(TEST_PACKAGE, yamlDirectory);
+
+    String className = compiler.compileTo(sourceDirectory, "split", "none");
+    YamlConfiguration configuration = compileAndLoad(className).toYamlConfiguration();
+
+    assertThat(configuration.url_for("Search"), equalTo("/search"));
+    assertThat(configuration.base_url(), equalTo(TEST_BASE_URL_FROM_DISCWORLD));
+    assertThat(configuration.get(YamlConfiguration.INCLUDE), nullValue());
+  }
+
+  @Test
+  public void test_compiled_trees_are_frozen_and_interpolated() throws Exception {
+    Path yamlDirectory = temporaryFolder.newFolder("yaml").toPath();
+    Files.write(yamlDirectory.resolve("linked.yaml"),
+        ("webpage_client:\n  base_url: ankhmorpork:8700\napi_url: ${webpage_client/base_url}/api\n" +
+         "screens:\n  Search:\n    url: /search\n").getBytes(StandardCharsets.UTF_8));
+    YamlConfigurationCompiler compiler = new YamlConfigurationCompiler(TEST_PACKAGE, yamlDirectory);
+
+    String className = compiler.compileTo(sourceDirectory, "linked", "none");
+    CompiledConfiguration compiled = compileAndLoad(className);
+    ConfigurationSnapshot snapshot = compiled.toSnapshot();
+
+    assertThat(snapshot.tree(), sameInstance(compiled.tree()));
+    assertThat(snapshot.tree(), instanceOf(CompactMap.class));
+    assertThat(snapshot.tree().get(YamlConfiguration.SCREENS), instanceOf(CompactMap.class));
+    assertThat(snapshot.tree().get(YamlConfiguration.SCREENS),
+        sameInstance(snapshot.commonLayer().get(YamlConfiguration.SCREENS)));
+    assertThat(snapshot.tree().get("api_url"), equalTo((Object)(TEST_BASE_URL_FROM_DISCWORLD + "/api")));
+    assertThat(compiled.toSnapshot(), sameInstance(snapshot));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private Path testResources() throws Exception {
+    return Paths.get(getClass().getResource("/" + TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION).toURI())
+        .getParent();
+  }
+
+  private CompiledConfiguration compileAndLoad(String className) throws Exception {
+    String mainClasses = Paths.get(CompiledConfiguration.class.getProtectionDomain()
+        .getCodeSource().getLocation().toURI()).toString();
+    File sourceFile = sourceDirectory.resolve(className.replace('.', '/') + ".java").toFile();
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    int result = javac.run(null, null, null, "-nowarn", "-classpath", mainClasses,
+        "-d", classDirectory.toString(), sourceFile.getPath());
+    assertThat(result, equalTo(0));
+    classLoader = new URLClassLoader(new URL[] { classDirectory.toUri().toURL() }, getClass().getClassLoader());
+    return (CompiledConfiguration)classLoader.loadClass(className).getDeclaredConstructor().newInstance();
+  }
+}
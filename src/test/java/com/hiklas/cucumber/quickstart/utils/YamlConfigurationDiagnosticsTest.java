@@ -0,0 +1,131 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class YamlConfigurationDiagnosticsTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfigurationDiagnostics diagnostics;
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    diagnostics = new YamlConfigurationDiagnostics(true, 1.0);
+    configuration = new YamlConfiguration();
+    configuration.setDiagnostics(diagnostics);
+    configuration.loadConfiguration();
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_misses_counted_per_path() {
+    for (int count = 0; count < 5; count++) {
+      configuration.url_for("Unseen University");
+    }
+    configuration.message("wibble");
+
+    assertThat(diagnostics.missCount("screens/Unseen University/url", String.class), equalTo(5L));
+    assertThat(diagnostics.missCount("messages/wibble", String.class), equalTo(1L));
+    assertThat(diagnostics.missCount("messages/wibble", Map.class), equalTo(0L));
+  }
+
+  @Test
+  public void test_type_mismatches_counted_per_path() {
+    readUrlAsMap();
+
+    assertThat(diagnostics.typeMismatchCount(YamlConfiguration.URL, Map.class), equalTo(1L));
+    assertThat(diagnostics.missCount(YamlConfiguration.URL, Map.class), equalTo(0L));
+  }
+
+  @Test
+  public void test_summary_most_missed_first() {
+    configuration.message("wibble");
+    for (int count = 0; count < 3; count++) {
+      readUrlAsMap();
+    }
+    List<String> summary = diagnostics.summary();
+
+    assertThat(summary, contains(
+        "key 'url' missed 3 times, expected Map got String",
+        "key 'messages/wibble' missed 1 times, expected String"));
+  }
+
+  @Test
+  public void test_hits_not_counted() {
+    configuration.url_for("User Details");
+    configuration.element_group("Discworld");
+
+    assertThat(diagnostics.summary().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_disabled_counts_nothing() {
+    diagnostics = new YamlConfigurationDiagnostics(false, 1.0);
+    configuration.setDiagnostics(diagnostics);
+    configuration.url_for("Unseen University");
+
+    assertThat(diagnostics.summary().isEmpty(), equalTo(true));
+  }
+
+  @Test
+  public void test_sampling_counts_a_fraction() {
+    diagnostics = new YamlConfigurationDiagnostics(true, 0.1);
+    configuration.setDiagnostics(diagnostics);
+    for (int count = 0; count < 10000; count++) {
+      configuration.url_for("Unseen University");
+    }
+    long sampled = diagnostics.missCount("screens/Unseen University/url", String.class);
+
+    assertThat(sampled, greaterThan(500L));
+    assertThat(sampled, lessThan(1500L));
+  }
+
+  @Test
+  public void test_untracked_paths_counted_together() {
+    diagnostics = new YamlConfigurationDiagnostics(true, 1.0, 2);
+    configuration.setDiagnostics(diagnostics);
+    for (int screen = 0; screen < 5; screen++) {
+      configuration.url_for("Unseen University " + screen);
+    }
+
+    assertThat(diagnostics.missCount("screens/Unseen University 0/url", String.class), equalTo(1L));
+    assertThat(diagnostics.missCount("screens/Unseen University 1/url", String.class), equalTo(1L));
+    assertThat(diagnostics.missCount("screens/Unseen University 4/url", String.class), equalTo(0L));
+    assertThat(diagnostics.missCount(YamlConfigurationDiagnostics.OTHER_PATHS, String.class), equalTo(3L));
+  }
+
+  @Test
+  public void test_reset() {
+    configuration.url_for("Unseen University");
+    diagnostics.reset();
+
+    assertThat(diagnostics.summary().isEmpty(), equalTo(true));
+  }
+
+  /* PRIVATE METHODS */
+
+  /**
+   * The schema makes sure the accessors find what they expect, so a mismatch has 
+   * to come from reading a map directly
+   */
+  private void readUrlAsMap() {
+    configuration.readMapFromMap(configuration.screen_info("User Details"), YamlConfiguration.URL);
+  }
+}
@@ -0,0 +1,263 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import org.openjdk.jol.vm.VirtualMachine;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Guards how much memory a loaded configuration holds on to, and how much reading
+ * from it allocates, against the limits in footprint-thresholds.properties.
+ *
+ * Configurations of each size are generated with ten values per screen, spread
+ * across screens, element_ids, element_groups and messages the same way as a real
+ * configuration.  Retained sizes are measured with JOL, allocation with the
+ * per-thread counters in ThreadMXBean after the accessors have been warmed up.
+ *
+ * If a change legitimately needs more, raise the limit in the properties file in
+ * the same commit and say why.  The limits are for a 64-bit JVM with compressed
+ * references, on any other heap layout the checks are skipped.
+ *
+ * @author Fiona Bianchi
+ *
+ */
+@RunWith(Parameterized.class)
+@SuppressWarnings({"rawtypes"})
+public class YamlConfigurationFootprintTest {
+
+  public static final String THRESHOLDS = "/footprint-thresholds.properties";
+
+  public static final String TEST_COMMON_FILE = "common";
+  public static final String TEST_ENVIRONMENT = "footprint";
+
+  public static final int VALUES_PER_SCREEN = 10;
+
+  public static final int WARMUP_CALLS = 50000;
+  public static final int MEASURED_CALLS = 20000;
+
+  @ClassRule
+  public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Generated files by size, each size is only generated once
+   */
+  private static final Map<Integer, Path> DIRECTORIES = new HashMap<Integer, Path>();
+
+  private static volatile Object sink;
+
+  private final int keys;
+
+  private YamlConfiguration configuration;
+  private Properties thresholds;
+
+  @Parameterized.Parameters(name = "{0} keys")
+  public static Collection<Object[]> sizes() {
+    Collection<Object[]> sizes = new ArrayList<Object[]>();
+    sizes.add(new Object[] { 1000 });
+    sizes.add(new Object[] { 10000 });
+    sizes.add(new Object[] { 100000 });
+    return sizes;
+  }
+
+  public YamlConfigurationFootprintTest(int keys) {
+    this.keys = keys;
+  }
+
+  @Before
+  public void setupConfiguration() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.setMetrics(new YamlConfigurationMetrics());
+    configuration.setDiagnostics(new YamlConfigurationDiagnostics(false, 1.0));
+    configuration.setConfigurationDirectory(directoryFor(keys));
+    thresholds = new Properties();
+    try (InputStream stream = getClass().getResourceAsStream(THRESHOLDS)) {
+      thresholds.load(stream);
+    }
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @AfterClass
+  public static void forgetDirectories() {
+    DIRECTORIES.clear();
+  }
+
+  @Test
+  public void test_loaded_tree_retained_size() throws Exception {
+    Map tree = configuration.loadConfiguration();
+
+    assertWithinThreshold("tree.bytes." + keys, GraphLayout.parseInstance(tree).totalSize());
+  }
+
+  @Test
+  public void test_snapshot_retained_size() throws Exception {
+    ConfigurationSnapshot snapshot = configuration.loadSnapshot();
+
+    assertWithinThreshold("snapshot.bytes." + keys, GraphLayout.parseInstance(snapshot).totalSize());
+  }
+
+  @Test
+  public void test_accessor_allocation() throws Exception {
+    configuration.loadConfiguration();
+    String screen = "Screen " + (keys / VALUES_PER_SCREEN - 1);
+    String index = String.valueOf(keys / VALUES_PER_SCREEN - 1);
+    String element = "Header " + index;
+    String group = "Group " + index;
+    String message = "message_" + index;
+
+    Map<String, Supplier<Object>> accessors = new LinkedHashMap<String, Supplier<Object>>();
+    accessors.put("base_url", configuration::base_url);
+    accessors.put("browser", configuration::browser);
+    accessors.put("url_for", () -> configuration.url_for(screen));
+    accessors.put("absolute_url_for", () -> configuration.absolute_url_for(screen));
+    accessors.put("check_for_ids_for", () -> configuration.check_for_ids_for(screen));
+    accessors.put("screen_record", () -> configuration.screen_record(screen));
+    accessors.put("screen_info", () -> configuration.screen_info(screen));
+    accessors.put("element_id", () -> configuration.element_id(element));
+    accessors.put("element_group", () -> configuration.element_group(group));
+    accessors.put("element_ids_for", () -> configuration.element_ids_for(group));
+    accessors.put("message", () -> configuration.message(message));
+    String[] path = {YamlConfiguration.SCREENS, screen, YamlConfiguration.URL};
+    accessors.put("get", () -> configuration.get(path));
+
+    assertAllocationWithinThresholds(accessors);
+  }
+
+  @Test
+  public void test_read_from_map_allocation() throws Exception {
+    Map tree = configuration.loadConfiguration();
+    Map screens = (Map)tree.get(YamlConfiguration.SCREENS);
+    Map screen = (Map)screens.get("Screen " + (keys / VALUES_PER_SCREEN - 1));
+
+    Map<String, Supplier<Object>> helpers = new LinkedHashMap<String, Supplier<Object>>();
+    helpers.put("readMapFromMap", () -> configuration.readMapFromMap(tree, YamlConfiguration.SCREENS));
+    helpers.put("readStringFromMap", () -> configuration.readStringFromMap(screen, "url"));
+    helpers.put("readListFromMap", () -> configuration.readListFromMap(screen, "check_for_ids"));
+
+    assertAllocationWithinThresholds(helpers);
+  }
+
+  /* PRIVATE METHODS */
+
+  private void assertAllocationWithinThresholds(Map<String, Supplier<Object>> calls) {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue("Needs per-thread allocation counters",
+        threads instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported());
+    for (Map.Entry<String, Supplier<Object>> call : calls.entrySet()) {
+      assertWithinThreshold("allocation.bytes." + call.getKey(),
+          bytesPerCall((com.sun.management.ThreadMXBean)threads, call.getValue()));
+    }
+  }
+
+  private void assertWithinThreshold(String name, long measured) {
+    assumeCompressedReferences();
+    String threshold = thresholds.getProperty(name);
+    assertThat("No threshold for " + name + " in " + THRESHOLDS, threshold, notNullValue());
+    assertThat(name + " is over its threshold", measured, lessThanOrEqualTo(Long.parseLong(threshold.trim())));
+  }
+
+  /**
+   * An array of four references is 16 bytes bigger than an empty one when each
+   * reference is compressed to 4 bytes
+   */
+  private static void assumeCompressedReferences() {
+    VirtualMachine vm = VM.current();
+    Assume.assumeTrue("Thresholds are for a 64-bit JVM with compressed references",
+        vm.addressSize() == 8 && vm.sizeOf(new Object[4]) - vm.sizeOf(new Object[0]) == 16);
+  }
+
+  private static long bytesPerCall(com.sun.management.ThreadMXBean threads, Supplier<Object> call) {
+    long thread = Thread.currentThread().getId();
+    threads.setThreadAllocatedMemoryEnabled(true);
+    for (int count = 0; count < WARMUP_CALLS; count++) {
+      sink = call.get();
+    }
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int count = 0; count < MEASURED_CALLS; count++) {
+      sink = call.get();
+    }
+    long after = threads.getThreadAllocatedBytes(thread);
+    return (after - before) / MEASURED_CALLS;
+  }
+
+  private static synchronized Path directoryFor(int keys) throws Exception {
+    Path directory = DIRECTORIES.get(keys);
+    if (directory == null) {
+      directory = temporaryFolder.newFolder("keys-" + keys).toPath();
+      Files.write(directory.resolve(TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION),
+          syntheticYaml(keys / VALUES_PER_SCREEN).getBytes(StandardCharsets.UTF_8));
+      Files.write(directory.resolve(TEST_ENVIRONMENT + YamlConfiguration.FILE_EXTENSION),
+          "webpage_client:\n  base_url: ankhmorpork:8700\n  selenium:\n    browser: firefox\n"
+              .getBytes(StandardCharsets.UTF_8));
+      DIRECTORIES.put(keys, directory);
+    }
+    return directory;
+  }
+
+  /**
+   * @return a common file with ten values for each screen, five in the screen
+   *         itself and the rest in its elements, group and message
+   */
+  private static String syntheticYaml(int screens) {
+    StringBuilder yaml = new StringBuilder();
+    yaml.append("screens:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Screen ").append(screen).append(":\n")
+          .append("    url: /screen/").append(screen).append('\n')
+          .append("    title: Screen ").append(screen).append('\n')
+          .append("    check_for_ids:\n")
+          .append("      - header-").append(screen).append('\n')
+          .append("      - input-").append(screen).append('\n')
+          .append("    get_here_by: GET\n");
+    }
+    yaml.append("\nelement_ids:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Header ").append(screen).append(": header-").append(screen).append('\n')
+          .append("  Input ").append(screen).append(": input-").append(screen).append('\n');
+    }
+    yaml.append("\nelement_groups:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Group ").append(screen).append(":\n")
+          .append("    - Header ").append(screen).append('\n')
+          .append("    - Input ").append(screen).append('\n');
+    }
+    yaml.append("\nmessages:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  message_").append(screen).append(": 'Message for screen ").append(screen).append("'\n");
+    }
+    return yaml.toString();
+  }
+}
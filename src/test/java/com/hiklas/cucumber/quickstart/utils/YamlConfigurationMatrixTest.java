@@ -0,0 +1,164 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class YamlConfigurationMatrixTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+  public static final String OTHER_ENVIRONMENT = "test-lancre";
+
+  public static final int NIGHTLY_ENVIRONMENTS = 150;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private YamlConfigurationCache cache;
+  private YamlConfigurationMetrics metrics;
+  private YamlConfiguration loader;
+
+  @Before
+  public void setupLoader() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    cache = new YamlConfigurationCache();
+    metrics = new YamlConfigurationMetrics();
+    loader = new YamlConfiguration();
+    loader.setCache(cache);
+    loader.setMetrics(metrics);
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_each_environment_loaded() throws Exception {
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, 
+        Arrays.asList(TEST_ENVIRONMENT, OTHER_ENVIRONMENT));
+
+    assertThat(matrix.environments(), contains(TEST_ENVIRONMENT, OTHER_ENVIRONMENT));
+    assertThat(matrix.configuration(TEST_ENVIRONMENT).base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).base_url(), equalTo("lancre:8700"));
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).browser(), equalTo("CHROME"));
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).url_for("User Details"), equalTo("/user"));
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).element_group("Discworld").size(), equalTo(3));
+  }
+
+  @Test
+  public void test_merged_like_a_normal_load() throws Exception {
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, Arrays.asList(TEST_ENVIRONMENT));
+    YamlConfiguration normal = new YamlConfiguration();
+    normal.setCache(new YamlConfigurationCache());
+
+    assertThat(matrix.snapshot(TEST_ENVIRONMENT).tree(), equalTo(normal.loadConfiguration()));
+  }
+
+  @Test
+  public void test_common_layer_shared() throws Exception {
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, 
+        Arrays.asList(TEST_ENVIRONMENT, OTHER_ENVIRONMENT));
+
+    assertThat(matrix.snapshot(TEST_ENVIRONMENT).isOverlay(), equalTo(true));
+    assertThat(matrix.configuration(TEST_ENVIRONMENT).screens(), 
+        sameInstance(matrix.configuration(OTHER_ENVIRONMENT).screens()));
+    assertThat(metrics.snapshot().file("/test-common.yaml").loadCount(), equalTo(1L));
+    assertThat(metrics.snapshot().file("/test-lancre.yaml").loadCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_environments_cached() throws Exception {
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, 
+        Arrays.asList(TEST_ENVIRONMENT, OTHER_ENVIRONMENT));
+    YamlConfiguration later = new YamlConfiguration();
+    later.setCache(cache);
+
+    try (EnvironmentContext context = EnvironmentContext.bind(OTHER_ENVIRONMENT)) {
+      assertThat(later.loadConfiguration(), sameInstance(matrix.snapshot(OTHER_ENVIRONMENT).tree()));
+    }
+    assertThat(cache.missCount(), equalTo(0L));
+  }
+
+  @Test
+  public void test_lazy_loader() throws Exception {
+    loader.enableLazyLoading();
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, 
+        Arrays.asList(TEST_ENVIRONMENT, OTHER_ENVIRONMENT));
+
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).base_url(), equalTo("lancre:8700"));
+    assertThat(matrix.configuration(OTHER_ENVIRONMENT).url_for("User Details"), equalTo("/user"));
+  }
+
+  @Test
+  public void test_invalid_environment_not_cached() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    copyResource("/test-common.yaml", directory.resolve("test-common.yaml"));
+    Files.write(directory.resolve("broken.yaml"), 
+        "webpage_client:\n  base_url:\n    - ankhmorpork:8700\n".getBytes(StandardCharsets.UTF_8));
+    loader.setConfigurationDirectory(directory);
+
+    try {
+      YamlConfigurationMatrix.load(loader, Arrays.asList("broken"));
+      fail("Expected a ConfigurationValidationException");
+    } catch (ConfigurationValidationException cve) {
+      assertThat(cve.violations(), contains("webpage_client/base_url should be a single value but is a list"));
+    }
+    assertThat(cache.size(), equalTo(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_unknown_environment() throws Exception {
+    YamlConfigurationMatrix.load(loader, Arrays.asList(TEST_ENVIRONMENT)).configuration(OTHER_ENVIRONMENT);
+  }
+
+  @Test
+  public void test_memory_grows_with_environment_deltas() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    copyResource("/test-common.yaml", directory.resolve("test-common.yaml"));
+    List<String> environments = new ArrayList<String>();
+    for (int environment = 0; environment < NIGHTLY_ENVIRONMENTS; environment++) {
+      String name = "nightly-" + environment;
+      environments.add(name);
+      Files.write(directory.resolve(name + YamlConfiguration.FILE_EXTENSION), 
+          ("webpage_client:\n  base_url: nightly" + environment + ":8700\n  selenium:\n    browser: firefox\n")
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    loader.setConfigurationDirectory(directory);
+
+    YamlConfigurationMatrix matrix = YamlConfigurationMatrix.load(loader, environments);
+    long fullFootprint = ConfigurationSnapshot.of(matrix.snapshot("nightly-0").tree(), CompactMap.EMPTY)
+        .frozenFootprint();
+
+    assertThat(matrix.configuration("nightly-149").base_url(), equalTo("nightly149:8700"));
+    assertThat(matrix.frozenFootprint(), lessThan(NIGHTLY_ENVIRONMENTS * fullFootprint / 3));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private void copyResource(String resource, Path target) throws Exception {
+    try (InputStream stream = getClass().getResourceAsStream(resource)) {
+      Files.copy(stream, target);
+    }
+  }
+}
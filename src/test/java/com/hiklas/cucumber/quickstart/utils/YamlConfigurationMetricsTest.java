@@ -0,0 +1,145 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class YamlConfigurationMetricsTest {
+
+  public static final String TEST_COMMON_FILE = "test-common";
+  public static final String TEST_ENVIRONMENT = "test-discworld";
+
+  private YamlConfigurationMetrics metrics;
+  private YamlConfiguration configuration;
+
+  @Before
+  public void setupConfiguration() {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    metrics = new YamlConfigurationMetrics();
+    configuration = new YamlConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.setMetrics(metrics);
+  }
+
+  @After
+  public void clearProperties() {
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+  }
+
+  @Test
+  public void test_load_recorded_per_file() throws Exception {
+    configuration.loadConfiguration();
+    YamlConfigurationMetrics.Snapshot snapshot = metrics.snapshot();
+
+    for (String file : Arrays.asList("/test-common.yaml", "/test-discworld.yaml")) {
+      YamlConfigurationMetrics.FileStatistics statistics = snapshot.file(file);
+      assertThat(statistics, notNullValue());
+      assertThat(statistics.loadCount(), equalTo(1L));
+      assertThat(statistics.bytesRead(), greaterThan(0L));
+      assertThat(statistics.parseTimeNanos(), greaterThan(0L));
+      assertThat(statistics.loadTimeNanos(), greaterThanOrEqualTo(statistics.parseTimeNanos()));
+    }
+    assertThat(snapshot.frozenFootprint(), greaterThan(0L));
+  }
+
+  @Test
+  public void test_cached_load_not_recorded() throws Exception {
+    YamlConfigurationCache cache = new YamlConfigurationCache();
+    configuration.setCache(cache);
+    configuration.loadConfiguration();
+    YamlConfiguration another = new YamlConfiguration();
+    another.setCache(cache);
+    another.setMetrics(metrics);
+    another.loadConfiguration();
+
+    assertThat(metrics.snapshot().file("/test-common.yaml").loadCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_accesses_counted_per_section() throws Exception {
+    configuration.loadConfiguration();
+    configuration.url_for("User Details");
+    configuration.title_for("User Details");
+    configuration.base_url();
+    configuration.get(YamlConfiguration.MESSAGES, "not_registered");
+    YamlConfigurationMetrics.Snapshot snapshot = metrics.snapshot();
+
+    assertThat(snapshot.accessCount(YamlConfiguration.SCREENS), equalTo(2L));
+    assertThat(snapshot.accessCount(YamlConfiguration.WEBPAGE_CLIENT), equalTo(1L));
+    assertThat(snapshot.accessCount(YamlConfiguration.MESSAGES), equalTo(1L));
+    assertThat(snapshot.accessCount(YamlConfiguration.ELEMENT_IDS), equalTo(0L));
+  }
+
+  @Test
+  public void test_unknown_sections_counted_together() throws Exception {
+    configuration.loadConfiguration();
+    for (int section = 0; section < 100; section++) {
+      configuration.get("made_up_" + section, "key");
+    }
+    configuration.view(ConfigViewTest.ScreenInfo.class, "also_made_up", "Search");
+    configuration.get(YamlConfiguration.MESSAGES, "not_registered");
+    YamlConfigurationMetrics.Snapshot snapshot = metrics.snapshot();
+
+    assertThat(snapshot.accessCount(YamlConfigurationMetrics.OTHER_SECTION), equalTo(101L));
+    assertThat(snapshot.accessCount("made_up_0"), equalTo(0L));
+    assertThat(snapshot.accessCounts().keySet(), 
+        containsInAnyOrder(YamlConfigurationMetrics.OTHER_SECTION, YamlConfiguration.MESSAGES));
+  }
+
+  @Test
+  public void test_misses_and_type_mismatches_counted() throws Exception {
+    configuration.loadConfiguration();
+    configuration.url_for("Unseen University");
+    configuration.message("wibble");
+    configuration.readMapFromMap(configuration.screen_info("User Details"), YamlConfiguration.URL);
+    YamlConfigurationMetrics.Snapshot snapshot = metrics.snapshot();
+
+    assertThat(snapshot.missCount(), equalTo(2L));
+    assertThat(snapshot.typeMismatchCount(), equalTo(1L));
+  }
+
+  @Test
+  public void test_lazy_section_parse_recorded() throws Exception {
+    configuration.enableLazyLoading();
+    configuration.loadConfiguration();
+    long parsedOnLoad = metrics.snapshot().file("/test-common.yaml").parseTimeNanos();
+    configuration.element_group("Discworld");
+
+    assertThat(metrics.snapshot().file("/test-common.yaml").parseTimeNanos(), greaterThan(parsedOnLoad));
+  }
+
+  @Test
+  public void test_reset() throws Exception {
+    configuration.loadConfiguration();
+    configuration.url_for("Unseen University");
+    metrics.reset();
+    YamlConfigurationMetrics.Snapshot snapshot = metrics.snapshot();
+
+    assertThat(snapshot.files().isEmpty(), equalTo(true));
+    assertThat(snapshot.accessCounts().isEmpty(), equalTo(true));
+    assertThat(snapshot.missCount(), equalTo(0L));
+  }
+
+  @Test
+  public void test_shared_metrics_registered_with_jmx() throws Exception {
+    YamlConfigurationMetrics.shared().recordAccess(YamlConfiguration.SCREENS);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(YamlConfigurationMetrics.OBJECT_NAME);
+
+    assertThat(server.isRegistered(name), equalTo(true));
+    assertThat(server.getAttribute(name, "MissCount"), instanceOf(Long.class));
+    List attributes = Arrays.asList(server.getMBeanInfo(name).getAttributes());
+    assertThat(attributes.size(), equalTo(11));
+  }
+}
@@ -0,0 +1,359 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+@SuppressWarnings({"rawtypes"})
+public class YamlConfigurationReloaderTest {
+
+  public static final String TEST_COMMON_FILE = "reload-common";
+  public static final String TEST_ENVIRONMENT = "reload-environment";
+
+  public static final String TEST_COMMON_YAML =
+      "webpage_client:\n  base_url: localhost:8700\n  selenium:\n    browser: firefox\n" +
+      "messages:\n  not_registered: 'This customer is not yet registered'\n";
+
+  public static final long WAIT_FOR_RELOAD_MILLIS = 10000;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path commonFile;
+  private Path environmentFile;
+
+  @Before
+  public void setupFiles() throws Exception {
+    System.setProperty(YamlConfiguration.COMMON_FILE_PROPERTY, TEST_COMMON_FILE);
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, TEST_ENVIRONMENT);
+    System.setProperty(YamlConfigurationReloader.DEBOUNCE_PROPERTY, "50");
+    commonFile = temporaryFolder.getRoot().toPath().resolve(TEST_COMMON_FILE + YamlConfiguration.FILE_EXTENSION);
+    environmentFile = temporaryFolder.getRoot().toPath().resolve(TEST_ENVIRONMENT + YamlConfiguration.FILE_EXTENSION);
+    writeFile(commonFile, TEST_COMMON_YAML);
+    writeFile(environmentFile, "webpage_client:\n  base_url: ankhmorpork:8700\n");
+  }
+
+  @After
+  public void stopReloaders() {
+    YamlConfigurationReloader.stopAll();
+    System.clearProperty(YamlConfiguration.COMMON_FILE_PROPERTY);
+    System.clearProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY);
+    System.clearProperty(YamlConfigurationReloader.DEBOUNCE_PROPERTY);
+  }
+
+  @Test
+  public void test_included_file_change_is_picked_up() throws Exception {
+    Path screensFile = temporaryFolder.newFolder("screens").toPath().resolve("search.yaml");
+    writeFile(screensFile, "screens:\n  Search:\n    url: /\n");
+    writeFile(environmentFile, "include: screens/search.yaml\nwebpage_client:\n  base_url: ankhmorpork:8700\n");
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+    assertThat(configuration.url_for("Search"), equalTo("/"));
+
+    writeFile(screensFile, "screens:\n  Search:\n    url: /search\n");
+
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.url_for("Search"), equalTo("/search"));
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+  @Test
+  public void test_newly_included_file_is_watched() throws Exception {
+    Path screensFile = temporaryFolder.newFolder("screens").toPath().resolve("search.yaml");
+    writeFile(screensFile, "screens:\n  Search:\n    url: /\n");
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    writeFile(environmentFile, "include: screens/search.yaml\nwebpage_client:\n  base_url: ankhmorpork:8700\n");
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.url_for("Search"), equalTo("/"));
+    writeFile(screensFile, "screens:\n  Search:\n    url: /search\n");
+
+    waitForReload(configuration.reloader(), 2);
+    assertThat(configuration.url_for("Search"), equalTo("/search"));
+  }
+
+  @Test
+  public void test_no_reloader_unless_enabled() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.loadConfiguration();
+
+    assertThat(configuration.reloader(), nullValue());
+  }
+
+  @Test
+  public void test_environment_change_is_picked_up() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+
+    writeFile(environmentFile, "webpage_client:\n  base_url: quirm:8700\n");
+
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.base_url(), equalTo("quirm:8700"));
+    assertThat(configuration.message("not_registered"), equalTo("This customer is not yet registered"));
+    assertThat(configuration.reloader().lastReloadLatencyNanos(), greaterThan(0L));
+  }
+
+  @Test
+  public void test_common_change_keeps_environment() throws Exception {
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    writeFile(commonFile, TEST_COMMON_YAML.replace("This customer", "That customer"));
+
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.message("not_registered"), equalTo("That customer is not yet registered"));
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+  @Test
+  public void test_reload_keeps_included_files() throws Exception {
+    writeFile(commonFile, TEST_COMMON_YAML + "include: reload-screens.yaml\n");
+    writeFile(temporaryFolder.getRoot().toPath().resolve("reload-screens.yaml"),
+        "screens:\n  Search:\n    url: /search\n");
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    writeFile(commonFile, TEST_COMMON_YAML.replace("This customer", "That customer")
+        + "include: reload-screens.yaml\n");
+
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.message("not_registered"), equalTo("That customer is not yet registered"));
+    assertThat(configuration.url_for("Search"), equalTo("/search"));
+    assertThat(configuration.get(YamlConfiguration.INCLUDE), nullValue());
+  }
+
+  @Test
+  public void test_runtime_failure_keeps_previous_and_carries_on() throws Exception {
+    AtomicBoolean failParsing = new AtomicBoolean();
+    YamlConfiguration configuration = new TemporaryFolderConfiguration() {
+      @Override
+      protected Map loadYaml(InputStream yamlInputStream) throws IOException {
+        if (failParsing.get()) {
+          throw new IllegalStateException("Parser fell over");
+        }
+        return super.loadYaml(yamlInputStream);
+      }
+    };
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    failParsing.set(true);
+    writeFile(environmentFile, "webpage_client:\n  base_url: quirm:8700\n");
+    Thread.sleep(500);
+    assertThat(configuration.reloader().reloadCount(), equalTo(0L));
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+
+    failParsing.set(false);
+    writeFile(environmentFile, "webpage_client:\n  base_url: sto-helit:8700\n");
+    waitForReload(configuration.reloader(), 1);
+    assertThat(configuration.base_url(), equalTo("sto-helit:8700"));
+  }
+
+  @Test
+  public void test_instances_share_reloader() throws Exception {
+    YamlConfiguration first = newConfiguration();
+    first.enableHotReload();
+    first.loadConfiguration();
+    YamlConfiguration second = newConfiguration();
+    second.enableHotReload();
+    second.loadConfiguration();
+
+    assertThat(second.reloader(), sameInstance(first.reloader()));
+  }
+
+  @Test
+  public void test_loading_settings_get_their_own_reloader() throws Exception {
+    YamlConfiguration validated = newConfiguration();
+    validated.enableHotReload();
+    validated.loadConfiguration();
+    YamlConfiguration unvalidated = newConfiguration();
+    unvalidated.enableHotReload();
+    unvalidated.disableValidation();
+    unvalidated.loadConfiguration();
+
+    assertThat(unvalidated.reloader(), not(sameInstance(validated.reloader())));
+  }
+
+  @Test
+  public void test_stop_hot_reload() throws Exception {
+    YamlConfiguration first = newConfiguration();
+    first.enableHotReload();
+    first.loadConfiguration();
+    YamlConfiguration second = newConfiguration();
+    second.enableHotReload();
+    second.loadConfiguration();
+    YamlConfigurationReloader reloader = first.reloader();
+
+    first.stopHotReload();
+    assertThat(first.reloader(), nullValue());
+    assertThat(reloader.isRunning(), equalTo(true));
+    writeFile(environmentFile, "webpage_client:\n  base_url: quirm:8700\n");
+    waitForReload(reloader, 1);
+    assertThat(second.base_url(), equalTo("quirm:8700"));
+    assertThat(first.base_url(), equalTo("ankhmorpork:8700"));
+
+    second.stopHotReload();
+    assertThat(reloader.isRunning(), equalTo(false));
+    assertThat(second.base_url(), equalTo("quirm:8700"));
+  }
+
+  @Test
+  public void test_environment_context_change_is_picked_up() throws Exception {
+    Path lancreFile = temporaryFolder.getRoot().toPath().resolve("reload-lancre" + YamlConfiguration.FILE_EXTENSION);
+    writeFile(lancreFile, "webpage_client:\n  base_url: lancre:8700\n");
+    YamlConfiguration configuration = newConfiguration();
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    try (EnvironmentContext context = EnvironmentContext.bind("reload-lancre")) {
+      assertThat(configuration.base_url(), equalTo("lancre:8700"));
+      writeFile(lancreFile, "webpage_client:\n  base_url: bad-ass:8700\n");
+
+      long giveUpAt = System.currentTimeMillis() + WAIT_FOR_RELOAD_MILLIS;
+      while (!configuration.base_url().equals("bad-ass:8700") && System.currentTimeMillis() < giveUpAt) {
+        Thread.sleep(20);
+      }
+      assertThat(configuration.base_url(), equalTo("bad-ass:8700"));
+    }
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+  @Test
+  public void test_overrides_get_their_own_reloader() throws Exception {
+    YamlConfiguration plain = newConfiguration();
+    plain.enableHotReload();
+    plain.loadConfiguration();
+    YamlConfiguration overridden = newConfiguration();
+    overridden.enableHotReload();
+    System.setProperty(ConfigurationOverrides.PROPERTY_PREFIX + "webpage_client.base_url", "quirm:8700");
+    try {
+      overridden.loadConfiguration();
+    } finally {
+      System.clearProperty(ConfigurationOverrides.PROPERTY_PREFIX + "webpage_client.base_url");
+    }
+
+    assertThat(overridden.reloader(), not(sameInstance(plain.reloader())));
+    assertThat(plain.base_url(), equalTo("ankhmorpork:8700"));
+    assertThat(overridden.base_url(), equalTo("quirm:8700"));
+  }
+
+  @Test
+  public void test_environments_get_their_own_reloader() throws Exception {
+    writeFile(temporaryFolder.getRoot().toPath().resolve("reload-other.yaml"),
+        "webpage_client:\n  base_url: quirm:8700\n");
+    YamlConfiguration first = newConfiguration();
+    first.enableHotReload();
+    first.loadConfiguration();
+    YamlConfiguration second = newConfiguration();
+    second.enableHotReload();
+    System.setProperty(YamlConfiguration.TEST_ENVIRONMENT_PROPERTY, "reload-other");
+    second.loadConfiguration();
+
+    assertThat(second.reloader(), not(sameInstance(first.reloader())));
+    assertThat(second.base_url(), equalTo("quirm:8700"));
+  }
+
+  @Test
+  public void test_no_reloader_when_files_cant_be_watched() throws Exception {
+    YamlConfiguration configuration = new TemporaryFolderConfiguration() {
+      @Override
+      protected URL getYamlFileResource(String filename) {
+        try {
+          return new URL("jar:file:/configuration.jar!" + filename);
+        } catch (MalformedURLException mue) {
+          throw new IllegalStateException(mue);
+        }
+      }
+    };
+    configuration.setCache(new YamlConfigurationCache());
+    configuration.enableHotReload();
+    configuration.loadConfiguration();
+
+    assertThat(configuration.reloader(), nullValue());
+    assertThat(configuration.base_url(), equalTo("ankhmorpork:8700"));
+  }
+
+
+  /* *************** */
+  /* PRIVATE METHODS */
+  /* *************** */
+
+  private YamlConfiguration newConfiguration() {
+    YamlConfiguration configuration = new TemporaryFolderConfiguration();
+    configuration.setCache(new YamlConfigurationCache());
+    return configuration;
+  }
+
+  private void waitForReload(YamlConfigurationReloader reloader, long reloads) throws InterruptedException {
+    long giveUpAt = System.currentTimeMillis() + WAIT_FOR_RELOAD_MILLIS;
+    while (reloader.reloadCount() < reloads && System.currentTimeMillis() < giveUpAt) {
+      Thread.sleep(20);
+    }
+    assertThat(reloader.reloadCount(), greaterThanOrEqualTo(reloads));
+  }
+
+  private void writeFile(Path file, String content) throws IOException {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+  /**
+   * Loads the files from the temporary folder rather than the classpath
+   */
+  private class TemporaryFolderConfiguration extends YamlConfiguration {
+
+    @Override
+    protected URL getYamlFileResource(String filename) {
+      try {
+        return temporaryFile(filename).toUri().toURL();
+      } catch (MalformedURLException mue) {
+        throw new IllegalStateException(mue);
+      }
+    }
+
+    @Override
+    protected InputStream getCommonYamlFileResourceStream() {
+      return openStream(getCommonYamlFilename());
+    }
+
+    @Override
+    protected InputStream getEnvironmentYamlFileResourceStream() {
+      return openStream(getEnvironmentYamlFilename());
+    }
+
+    private InputStream openStream(String filename) {
+      try {
+        return Files.newInputStream(temporaryFile(filename));
+      } catch (IOException ie) {
+        throw new IllegalStateException(ie);
+      }
+    }
+
+    private Path temporaryFile(String filename) {
+      return temporaryFolder.getRoot().toPath().resolve(filename.substring(1));
+    }
+  }
+}
@@ -2,8 +2,12 @@ package com.hiklas.cucumber.quickstart.utils;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -11,6 +15,10 @@ import java.util.Properties;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+/**
+ * Run once for each YamlParserBackend, they should all give the same answers
+ */
+@RunWith(Parameterized.class)
 @SuppressWarnings({"rawtypes"})
 public class YamlConfigurationTest {
 
@@ -42,11 +50,28 @@ public class YamlConfigurationTest {
   public static final String TEST_ELEMENT_GROUP_KEY = "Discworld";
   
   
+  private final String parserBackend;
+  
   private YamlConfiguration yamlConfigToTest;
   
+  @Parameterized.Parameters(name = "{0}")
+  public static Collection<Object[]> parserBackends() {
+    Collection<Object[]> backends = new ArrayList<Object[]>();
+    for (String name : YamlParserBackends.names()) {
+      backends.add(new Object[] { name });
+    }
+    return backends;
+  }
+  
+  public YamlConfigurationTest(String parserBackend) {
+    this.parserBackend = parserBackend;
+  }
+  
   @Before
   public void setupObjectToTest() {
     yamlConfigToTest = new YamlConfiguration();
+    yamlConfigToTest.setParserBackend(parserBackend);
+    yamlConfigToTest.setCache(new YamlConfigurationCache());
     setCommonProperty(null);
     setEnvironmentProperty(null);
   }
@@ -525,6 +550,76 @@ public class YamlConfigurationTest {
     assertThat(titles, notNullValue());
   }  
 
+
+  @Test
+  public void test_load_configuration_common_and_environment_get_by_path() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    setEnvironmentProperty(TEST_ENVIRONMENT);
+
+    yamlConfigToTest.loadConfiguration();
+    
+    Object screenUrl = yamlConfigToTest.get(YamlConfiguration.SCREENS, TEST_SCREEN_KEY, YamlConfiguration.URL);
+    assertThat(screenUrl, equalTo((Object)TEST_SCREEN_RESULT));
+  }  
+
+  @Test
+  public void test_load_configuration_common_and_environment_get_by_path_missing() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    setEnvironmentProperty(TEST_ENVIRONMENT);
+
+    yamlConfigToTest.loadConfiguration();
+    
+    Object missing = yamlConfigToTest.get(YamlConfiguration.SCREENS, TEST_NULL_KEY, YamlConfiguration.URL);
+    assertThat(missing, nullValue());
+  }  
+
+  @Test
+  public void test_load_configuration_common_and_environment_key_with_separator() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    setEnvironmentProperty(TEST_ENVIRONMENT);
+
+    yamlConfigToTest.loadConfiguration();
+    
+    String screenUrl = yamlConfigToTest.url_for(TEST_SCREEN_KEY + YamlConfiguration.PATH_SEPARATOR);
+    Map screen = yamlConfigToTest.screen_info(TEST_SCREEN_KEY + YamlConfiguration.PATH_SEPARATOR + YamlConfiguration.URL);
+    assertThat(screenUrl, equalTo(""));
+    assertThat(screen.isEmpty(), equalTo(true));
+  }  
+
+  @Test
+  public void test_load_configuration_common_and_environment_get_missing_screen_url() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    setEnvironmentProperty(TEST_ENVIRONMENT);
+
+    yamlConfigToTest.loadConfiguration();
+    
+    String screenUrl = yamlConfigToTest.url_for(TEST_NULL_KEY);
+    assertThat(screenUrl, equalTo(""));
+  }  
+
+  @Test
+  public void test_load_configuration_in_parallel_common_and_environment() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    setEnvironmentProperty(TEST_ENVIRONMENT);
+    
+    Map sequential = yamlConfigToTest.loadSnapshot().tree();
+    yamlConfigToTest.enableParallelLoading();
+    Map parallel = yamlConfigToTest.loadSnapshot().tree();
+    
+    assertThat(parallel, equalTo(sequential));
+    assertThat(parallel, not(sameInstance(sequential)));
+  }  
+
+  @Test
+  public void test_load_configuration_in_parallel_only_common_get_base_url() throws Exception {
+    setCommonProperty(TEST_COMMON_FILE);
+    
+    yamlConfigToTest.enableParallelLoading();
+    yamlConfigToTest.loadConfiguration();
+    
+    String baseUrl = yamlConfigToTest.base_url();
+    assertThat(baseUrl, equalTo(TEST_BASE_URL_FROM_COMMON));
+  }
     
   
   /* *************** */
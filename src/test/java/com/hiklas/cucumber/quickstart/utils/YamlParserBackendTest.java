@@ -0,0 +1,165 @@
+package com.hiklas.cucumber.quickstart.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@SuppressWarnings({"rawtypes"})
+public class YamlParserBackendTest {
+
+  public static final List<String> TEST_RESOURCES =
+      Arrays.asList("/test-common.yaml", "/test-discworld.yaml", "/test-lancre.yaml", "/test-string.yaml");
+
+  /**
+   * Corners where a parser could easily give a different tree to yamlbeans
+   */
+  public static final List<String> TEST_SNIPPETS = Arrays.asList(
+      "a: 12\nb: true\nc: ~\nd: null\ne:\nf: !!str 3.5\n1: one\n",
+      "empty_map: {}\nempty_list: []\nflow: {x: [1, 2], y: 'q'}\n",
+      "base: &base\n  url: /home\ncopy: *base\nmerged:\n  <<: *base\n  title: Home\n",
+      "clip: |\n  l1\n  l2\n\nnext: x\n",
+      "keep: |+\n  l1\n  l2\n\nnext: x\n",
+      "keep_one: |+\n  l1\nnext: x\n",
+      "strip: |-\n  l1\n  l2\n",
+      "indented: |2\n   l1\nfolded: >\n  f1\n  f2\n\nfolded_keep: >2+\n   f1\n\n",
+      "last: |\n  no line break at the end",
+      "empty_block: |\nafter: x\n",
+      "anchored: &x |+\n  keep\n\ntagged: !!str >+\n  keep\n\nboth: !!str &y |2+\n   keep\n\n",
+      "anchored_clip: &z |\n  clip\n\nafter: *z\n",
+      "quoted: \"x\\n\"\nsingle: 'it''s'\nplain: one\n  two\n",
+      "emoji: \"\\U0001F600 \\U0001F600\"\nliteral: |\n  \uD83D\uDE00\n",
+      "? complex key\n: value\n",
+      "- one\n- two: 2\n- [three]\n",
+      "just a string",
+      "first: document\n---\nsecond: document\n",
+      "# nothing but a comment\n",
+      "");
+
+  @Test
+  public void test_both_backends_found() {
+    assertThat(YamlParserBackends.names(),
+        hasItems(SnakeYamlParserBackend.NAME, YamlBeansParserBackend.NAME));
+  }
+
+  @Test
+  public void test_default_backend() {
+    assertThat(YamlParserBackends.fromSystemProperties().name(), equalTo(YamlParserBackends.DEFAULT_BACKEND));
+  }
+
+  @Test
+  public void test_unknown_backend() {
+    try {
+      YamlParserBackends.named("Hex");
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException iae) {
+      assertThat(iae.getMessage(), containsString("'Hex'"));
+      assertThat(iae.getMessage(), containsString(YamlBeansParserBackend.NAME));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_set_unknown_backend() {
+    new YamlConfiguration().setParserBackend("Hex");
+  }
+
+  @Test
+  public void test_same_tree_for_test_resources() throws Exception {
+    for (String resource : TEST_RESOURCES) {
+      for (YamlParserBackend backend : backends()) {
+        assertThat(resource + " with " + backend.name(), parseResource(backend, resource),
+            equalTo(parseResource(YamlParserBackends.named(YamlBeansParserBackend.NAME), resource)));
+      }
+    }
+  }
+
+  @Test
+  public void test_same_tree_for_snippets() throws Exception {
+    for (String snippet : TEST_SNIPPETS) {
+      Object expected = parse(YamlParserBackends.named(YamlBeansParserBackend.NAME), snippet);
+      for (YamlParserBackend backend : backends()) {
+        assertThat(snippet + " with " + backend.name(), parse(backend, snippet), equalTo(expected));
+      }
+    }
+  }
+
+  @Test
+  public void test_same_tree_for_large_config() throws Exception {
+    String yaml = syntheticYaml(2000);
+    Object expected = parse(YamlParserBackends.named(YamlBeansParserBackend.NAME), yaml);
+    for (YamlParserBackend backend : backends()) {
+      assertThat(backend.name(), parse(backend, yaml), equalTo(expected));
+    }
+  }
+
+  @Test
+  public void test_scalars_stay_strings() throws Exception {
+    Map parsed = (Map)parse(YamlParserBackends.named(SnakeYamlParserBackend.NAME), TEST_SNIPPETS.get(0));
+    assertThat(parsed.get("a"), equalTo((Object)"12"));
+    assertThat(parsed.get("b"), equalTo((Object)"true"));
+    assertThat(parsed.get("c"), equalTo((Object)"~"));
+    assertThat(parsed.get("e"), equalTo((Object)""));
+  }
+
+  @Test
+  public void test_alias_is_same_object() throws Exception {
+    Map parsed = (Map)parse(YamlParserBackends.named(SnakeYamlParserBackend.NAME), TEST_SNIPPETS.get(2));
+    assertThat(parsed.get("copy"), sameInstance(parsed.get("base")));
+  }
+
+  @Test
+  public void test_invalid_yaml() {
+    for (YamlParserBackend backend : backends()) {
+      try {
+        parse(backend, "a: [1, 2\nb: }");
+        fail("Expected an IOException from " + backend.name());
+      } catch (IOException ie) {
+        // expected
+      }
+    }
+  }
+
+  /* PRIVATE METHODS */
+
+  private static List<YamlParserBackend> backends() {
+    return Arrays.asList(YamlParserBackends.named(SnakeYamlParserBackend.NAME),
+        YamlParserBackends.named(YamlBeansParserBackend.NAME));
+  }
+
+  private static Object parse(YamlParserBackend backend, String yaml) throws IOException {
+    return backend.parse(new StringReader(yaml));
+  }
+
+  private static Object parseResource(YamlParserBackend backend, String resource) throws IOException {
+    try (InputStream stream = YamlParserBackendTest.class.getResourceAsStream(resource);
+         Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+      return backend.parse(reader);
+    }
+  }
+
+  private static String syntheticYaml(int screens) {
+    StringBuilder yaml = new StringBuilder("screens:\n");
+    for (int screen = 0; screen < screens; screen++) {
+      yaml.append("  Screen ").append(screen).append(":\n")
+          .append("    url: /screen/").append(screen).append('\n')
+          .append("    title: 'Screen ").append(screen).append("'\n")
+          .append("    check_for_ids:\n")
+          .append("      - header-").append(screen).append('\n')
+          .append("      - footer-").append(screen).append('\n')
+          .append("    notes: |\n")
+          .append("      Screen ").append(screen).append(" notes\n");
+    }
+    return yaml.toString();
+  }
+}